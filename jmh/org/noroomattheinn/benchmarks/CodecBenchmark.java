@@ -0,0 +1,80 @@
+/*
+ * CodecBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.noroomattheinn.tesla.BaseState;
+import org.noroomattheinn.tesla.ChargeState;
+import org.noroomattheinn.tesla.StateCodec;
+import org.noroomattheinn.tesla.VehicleState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * CodecBenchmark: Encoding and decoding state objects with StateCodec
+ * compared with the JSON round trip (rawState.toString() and parsing it back
+ * into a state object) it replaces.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private ChargeState charge;
+    private VehicleState vehicleState;
+    private byte[] chargeBinary, vehicleStateBinary;
+    private String chargeJSON, vehicleStateJSON;
+
+    @Setup public void setup() throws JSONException {
+        charge = new ChargeState(new JSONObject(StateBenchmark.ChargeJSON));
+        vehicleState = new VehicleState(new JSONObject(StateBenchmark.VehicleStateJSON));
+        chargeBinary = StateCodec.encode(charge);
+        vehicleStateBinary = StateCodec.encode(vehicleState);
+        chargeJSON = charge.rawState.toString();
+        vehicleStateJSON = vehicleState.rawState.toString();
+    }
+
+    @Benchmark public byte[] encodeCharge() { return StateCodec.encode(charge); }
+
+    @Benchmark public String encodeChargeJSON() { return charge.rawState.toString(); }
+
+    @Benchmark public BaseState decodeCharge() throws IOException {
+        return StateCodec.decode(chargeBinary);
+    }
+
+    @Benchmark public ChargeState decodeChargeJSON() throws JSONException {
+        return new ChargeState(new JSONObject(chargeJSON));
+    }
+
+    @Benchmark public byte[] encodeVehicleState() { return StateCodec.encode(vehicleState); }
+
+    @Benchmark public String encodeVehicleStateJSON() { return vehicleState.rawState.toString(); }
+
+    @Benchmark public BaseState decodeVehicleState() throws IOException {
+        return StateCodec.decode(vehicleStateBinary);
+    }
+
+    @Benchmark public VehicleState decodeVehicleStateJSON() throws JSONException {
+        return new VehicleState(new JSONObject(vehicleStateJSON));
+    }
+}
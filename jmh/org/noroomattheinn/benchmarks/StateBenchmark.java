@@ -0,0 +1,198 @@
+/*
+ * StateBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.noroomattheinn.tesla.ChargeState;
+import org.noroomattheinn.tesla.HVACState;
+import org.noroomattheinn.tesla.LazyChargeState;
+import org.noroomattheinn.tesla.LazyHVACState;
+import org.noroomattheinn.tesla.LazyVehicleState;
+import org.noroomattheinn.tesla.Options;
+import org.noroomattheinn.tesla.VehicleState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * StateBenchmark: The cost of turning a response into state objects, both
+ * from an already parsed JSONObject and from the response text, and of
+ * parsing a vehicle's option codes. The poll benchmarks compare the eager and
+ * lazily decoded state objects the way a polling loop uses them: build one
+ * per response and read a few fields. The FromText variants include parsing
+ * the response, which a real poll pays for too. Run them with "-prof gc" to
+ * compare the allocation rates as well.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+
+    static final String ChargeJSON =
+            "{\"charging_state\":\"Charging\",\"charge_limit_soc\":90," +
+            "\"charge_limit_soc_std\":90,\"charge_limit_soc_min\":50," +
+            "\"charge_limit_soc_max\":100,\"charge_to_max_range\":false," +
+            "\"battery_heater_on\":false,\"not_enough_power_to_heat\":false," +
+            "\"max_range_charge_counter\":0,\"fast_charger_present\":false," +
+            "\"fast_charger_type\":\"<invalid>\",\"battery_range\":201.55," +
+            "\"est_battery_range\":180.12,\"ideal_battery_range\":240.7," +
+            "\"battery_level\":72,\"usable_battery_level\":71," +
+            "\"charge_energy_added\":12.4,\"charge_miles_added_rated\":41.5," +
+            "\"charge_miles_added_ideal\":49.0,\"charger_voltage\":240," +
+            "\"charger_pilot_current\":40,\"charger_actual_current\":40," +
+            "\"charger_power\":10,\"time_to_full_charge\":1.75," +
+            "\"trip_charging\":false,\"charge_rate\":29.6," +
+            "\"charge_port_door_open\":true,\"conn_charge_cable\":\"SAE\"," +
+            "\"scheduled_charging_start_time\":null," +
+            "\"scheduled_charging_pending\":false,\"user_charge_enable_request\":null," +
+            "\"charge_enable_request\":true,\"charger_phases\":1," +
+            "\"charge_port_latch\":\"Engaged\",\"charge_current_request\":40," +
+            "\"charge_current_request_max\":40,\"managed_charging_active\":false," +
+            "\"managed_charging_user_canceled\":false," +
+            "\"managed_charging_start_time\":null,\"timestamp\":1508793015713}";
+
+    static final String VehicleStateJSON =
+            "{\"api_version\":3,\"autopark_state_v2\":\"standby\"," +
+            "\"autopark_style\":\"standard\",\"calendar_supported\":true," +
+            "\"car_version\":\"2026.40.1\",\"center_display_state\":0," +
+            "\"df\":0,\"dr\":0,\"ft\":0,\"homelink_nearby\":false," +
+            "\"is_user_present\":false,\"last_autopark_error\":\"no_error\"," +
+            "\"locked\":true,\"media_state\":{\"remote_control_enabled\":true}," +
+            "\"notifications_supported\":true,\"odometer\":20125.305648," +
+            "\"parsed_calendar_supported\":true,\"pf\":0,\"pr\":0," +
+            "\"remote_start\":false,\"remote_start_supported\":true,\"rt\":0," +
+            "\"software_update\":{\"expected_duration_sec\":2700,\"status\":\"\"}," +
+            "\"speed_limit_mode\":{\"active\":false,\"current_limit_mph\":85.0," +
+            "\"max_limit_mph\":90,\"min_limit_mph\":50,\"pin_code_set\":false}," +
+            "\"sun_roof_percent_open\":0,\"sun_roof_state\":\"unknown\"," +
+            "\"timestamp\":1508793015713,\"valet_mode\":false," +
+            "\"valet_pin_needed\":true,\"vehicle_name\":\"Benchmark\"}";
+
+    static final String HVACJSON =
+            "{\"inside_temp\":21.5,\"outside_temp\":17.0,\"driver_temp_setting\":21.0," +
+            "\"passenger_temp_setting\":21.0,\"left_temp_direction\":0," +
+            "\"right_temp_direction\":0,\"is_auto_conditioning_on\":false," +
+            "\"is_front_defroster_on\":false,\"is_rear_defroster_on\":false," +
+            "\"fan_status\":0,\"is_climate_on\":false,\"min_avail_temp\":15," +
+            "\"max_avail_temp\":28,\"seat_heater_left\":0,\"seat_heater_right\":0," +
+            "\"seat_heater_rear_left\":0,\"seat_heater_rear_right\":0," +
+            "\"seat_heater_rear_center\":0,\"seat_heater_rear_right_back\":0," +
+            "\"seat_heater_rear_left_back\":0,\"battery_heater\":false," +
+            "\"battery_heater_no_power\":false,\"steering_wheel_heater\":false," +
+            "\"wiper_blade_heater\":false,\"side_mirror_heaters\":false," +
+            "\"is_preconditioning\":false,\"smart_preconditioning\":false," +
+            "\"timestamp\":1508793015713}";
+
+    static final String OptionCodes =
+            "MS04,RENA,AU01,BC0R,BP00,BR01,BS00,CDM0,CH05,PBCW,CW02,DA02,DCF0," +
+            "DRLH,DSH7,DV4W,FG02,FR04,HP00,IDBA,IX01,LP01,ME02,MI01,PF01,PI01," +
+            "PK00,PS01,PX00,PX4D,QTVB,RFP2,SC01,SP00,SR01,SU01,TM00,TP03,TR00," +
+            "UTAB,WTAS,X001,X003,X007,X011,X013,X021,X024,X027,X028,X031,X037," +
+            "X040,X044,YFFC,COUS";
+
+    private JSONObject charge, vehicleState, hvac;
+
+    @Setup public void setup() throws JSONException {
+        charge = new JSONObject(ChargeJSON);
+        vehicleState = new JSONObject(VehicleStateJSON);
+        hvac = new JSONObject(HVACJSON);
+    }
+
+    @Benchmark public ChargeState chargeState() { return new ChargeState(charge); }
+
+    @Benchmark public VehicleState vehicleState() { return new VehicleState(vehicleState); }
+
+    @Benchmark public HVACState hvacState() { return new HVACState(hvac); }
+
+    @Benchmark public ChargeState chargeStateFromText() throws JSONException {
+        return new ChargeState(new JSONObject(ChargeJSON));
+    }
+
+    @Benchmark public VehicleState vehicleStateFromText() throws JSONException {
+        return new VehicleState(new JSONObject(VehicleStateJSON));
+    }
+
+    @Benchmark public HVACState hvacStateFromText() throws JSONException {
+        return new HVACState(new JSONObject(HVACJSON));
+    }
+
+    @Benchmark public Options options() { return new Options(OptionCodes); }
+
+    @Benchmark public double chargePoll() {
+        ChargeState cs = new ChargeState(charge);
+        return cs.batteryPercent + cs.range + (cs.isCharging() ? 1 : 0);
+    }
+
+    @Benchmark public double chargePollLazily() {
+        LazyChargeState cs = new LazyChargeState(charge);
+        return cs.batteryPercent() + cs.range() + (cs.isCharging() ? 1 : 0);
+    }
+
+    @Benchmark public double hvacPoll() {
+        HVACState hs = new HVACState(hvac);
+        return hs.insideTemp + hs.outsideTemp + (hs.isClimateOn ? 1 : 0);
+    }
+
+    @Benchmark public double hvacPollLazily() {
+        LazyHVACState hs = new LazyHVACState(hvac);
+        return hs.insideTemp() + hs.outsideTemp() + (hs.isClimateOn() ? 1 : 0);
+    }
+
+    @Benchmark public double vehicleStatePoll() {
+        VehicleState vs = new VehicleState(vehicleState);
+        return vs.odometer + (vs.locked ? 1 : 0);
+    }
+
+    @Benchmark public double vehicleStatePollLazily() {
+        LazyVehicleState vs = new LazyVehicleState(vehicleState);
+        return vs.odometer() + (vs.locked() ? 1 : 0);
+    }
+
+    @Benchmark public double chargePollFromText() throws JSONException {
+        ChargeState cs = new ChargeState(new JSONObject(ChargeJSON));
+        return cs.batteryPercent + cs.range + (cs.isCharging() ? 1 : 0);
+    }
+
+    @Benchmark public double chargePollLazilyFromText() throws JSONException {
+        LazyChargeState cs = new LazyChargeState(new JSONObject(ChargeJSON));
+        return cs.batteryPercent() + cs.range() + (cs.isCharging() ? 1 : 0);
+    }
+
+    @Benchmark public double hvacPollFromText() throws JSONException {
+        HVACState hs = new HVACState(new JSONObject(HVACJSON));
+        return hs.insideTemp + hs.outsideTemp + (hs.isClimateOn ? 1 : 0);
+    }
+
+    @Benchmark public double hvacPollLazilyFromText() throws JSONException {
+        LazyHVACState hs = new LazyHVACState(new JSONObject(HVACJSON));
+        return hs.insideTemp() + hs.outsideTemp() + (hs.isClimateOn() ? 1 : 0);
+    }
+
+    @Benchmark public double vehicleStatePollFromText() throws JSONException {
+        VehicleState vs = new VehicleState(new JSONObject(VehicleStateJSON));
+        return vs.odometer + (vs.locked ? 1 : 0);
+    }
+
+    @Benchmark public double vehicleStatePollLazilyFromText() throws JSONException {
+        LazyVehicleState vs = new LazyVehicleState(new JSONObject(VehicleStateJSON));
+        return vs.odometer() + (vs.locked() ? 1 : 0);
+    }
+}
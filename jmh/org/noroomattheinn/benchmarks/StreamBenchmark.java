@@ -0,0 +1,111 @@
+/*
+ * StreamBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.noroomattheinn.tesla.StreamParser;
+import org.noroomattheinn.tesla.StreamState;
+import org.noroomattheinn.tesla.TelemetryRing;
+import org.noroomattheinn.tesla.Streamer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * StreamBenchmark: Decoding streaming records, one line at a time into a
+ * reused StreamState, a whole response body through a StreamParser, and the
+ * way Streamer used to do it (split the line and build a JSONObject) for
+ * comparison. Also appending to a TelemetryRing and scanning a stretch of it.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+    static final String Line =
+            "1508793015713,20125.3,64,72,41,271,37.394126,-122.150218,38,D,201,180,270";
+    static final int LinesPerBody = 1000;
+    static final int RingRecords = 86400;   // A day at one record a second
+    static final int ScanRecords = 3600;    // An hour of it
+
+    private final Streamer.Keys[] keys = Streamer.Keys.values();
+    private byte[] line, body;
+    private StreamState reused;
+    private TelemetryRing ring;
+    private TelemetryRing.Cursor cursor;
+
+    @Setup public void setup() {
+        line = Line.getBytes(StandardCharsets.US_ASCII);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LinesPerBody; i++) { sb.append(Line).append("\r\n"); }
+        body = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        reused = StreamState.newReusable();
+        StreamParser.parse(line, 0, line.length, reused);
+        ring = new TelemetryRing(RingRecords);
+        for (int i = 0; i < RingRecords; i++) {
+            reused.vehicleTimestamp = i * 1000L;
+            ring.append(reused);
+        }
+        cursor = ring.cursor();
+    }
+
+    @Benchmark public StreamState parseLine() {
+        StreamParser.parse(line, 0, line.length, reused);
+        return reused;
+    }
+
+    @Benchmark @OperationsPerInvocation(LinesPerBody)
+    public void parseBody(Blackhole bh) throws IOException {
+        StreamParser parser = new StreamParser(new ByteArrayInputStream(body));
+        while (parser.next(reused)) { bh.consume(reused.vehicleTimestamp); }
+    }
+
+    @Benchmark public StreamState splitAndJSONObject() throws JSONException {
+        String[] vals = Line.split(",");
+        JSONObject jo = new JSONObject();
+        for (int i = 0; i < keys.length && i < vals.length; i++) {
+            jo.put(keys[i].name(), vals[i]);
+        }
+        return new StreamState(jo);
+    }
+
+    @Benchmark public void ringAppend() {
+        reused.vehicleTimestamp += 1000;
+        ring.append(reused);
+    }
+
+    @Benchmark @OperationsPerInvocation(ScanRecords)
+    public double ringScan() {
+        // The setup records are one second apart, so this is the middle hour
+        long start = (RingRecords / 2) * 1000L, end = start + ScanRecords * 1000L;
+        double maxSpeed = 0;
+        cursor.seek(start);
+        while (cursor.next() && cursor.vehicleTimestamp() < end) {
+            maxSpeed = Math.max(maxSpeed, cursor.speed());
+        }
+        return maxSpeed;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * UtilsBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.noroomattheinn.utils.CircularBuffer;
+import org.noroomattheinn.utils.GeoUtils;
+import org.noroomattheinn.utils.LongRingBuffer;
+import org.noroomattheinn.utils.Pair;
+import org.noroomattheinn.utils.RestHelper;
+import org.noroomattheinn.utils.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UtilsBenchmark: Hot paths in utils. Throttle.apply is measured with limits
+ * too generous to ever wait, so it shows the bookkeeping cost paid by every
+ * request, alone and with several threads applying at once. CircularBuffer
+ * is measured with writers and readers contending for it, and the lock-free
+ * RingBuffer and LongRingBuffer with one writer and several readers (the
+ * most they support).
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    static final String Endpoint =
+            "https://owner-api.teslamotors.com/api/1/vehicles/1/data_request/charge_state";
+
+    @State(Scope.Benchmark)
+    public static class ThrottleState {
+        RestHelper.Throttle throttle;
+
+        @Setup public void setup() {
+            List<Pair<Integer,Integer>> limits = new ArrayList<>();
+            limits.add(new Pair<>(Integer.MAX_VALUE, 1));
+            limits.add(new Pair<>(Integer.MAX_VALUE, 60));
+            throttle = new RestHelper.Throttle(limits);
+        }
+    }
+
+    static final Long Item = 42L;
+
+    @State(Scope.Group)
+    public static class BufferState {
+        CircularBuffer<Long> buffer;
+
+        @Setup public void setup() {
+            buffer = new CircularBuffer<>(1024);
+            for (int i = 0; i < 1024; i++) { buffer.insert((long)i); }
+        }
+    }
+
+    @State(Scope.Group)
+    public static class RingState {
+        RingBuffer<Long> buffer;
+        LongRingBuffer longs;
+
+        @Setup public void setup() {
+            buffer = new RingBuffer<>(1024);
+            longs = new LongRingBuffer(1024);
+            for (int i = 0; i < 1024; i++) { buffer.insert((long)i); longs.insert(i); }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Points {
+        double lat1 = 37.394126, lng1 = -122.150218;
+        double lat2 = 37.785834, lng2 = -122.406417;
+    }
+
+    @Benchmark public void throttleApply(ThrottleState s) {
+        s.throttle.apply(Endpoint);
+    }
+
+    @Benchmark @Threads(4) public void throttleApplyContended(ThrottleState s) {
+        s.throttle.apply(Endpoint);
+    }
+
+    @Benchmark @Group("circularBuffer") @GroupThreads(2)
+    public void insert(BufferState s) {
+        s.buffer.insert(Item);
+    }
+
+    @Benchmark @Group("circularBuffer") @GroupThreads(2)
+    public Long peek(BufferState s) {
+        return s.buffer.peekLast();
+    }
+
+    @Benchmark @Group("ringBuffer") @GroupThreads(1)
+    public void ringInsert(RingState s) {
+        s.buffer.insert(Item);
+    }
+
+    @Benchmark @Group("ringBuffer") @GroupThreads(3)
+    public Long ringPeek(RingState s) {
+        return s.buffer.peekAt(512);
+    }
+
+    @Benchmark @Group("longRingBuffer") @GroupThreads(1)
+    public void longRingInsert(RingState s) {
+        s.longs.insert(42);
+    }
+
+    @Benchmark @Group("longRingBuffer") @GroupThreads(3)
+    public long longRingPeek(RingState s) {
+        return s.longs.peekAt(512);
+    }
+
+    @Benchmark public double distance(Points p) {
+        return GeoUtils.distance(p.lat1, p.lng1, p.lat2, p.lng2);
+    }
+}
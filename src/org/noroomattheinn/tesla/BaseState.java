@@ -27,9 +27,51 @@ public abstract class BaseState {
     public final JSONObject   rawState;
     public final boolean      valid;
     
+    // The source of the fields if it isn't rawState (see source())
+    private final StateSource source;
+    
     public BaseState(JSONObject rawState) {
-        this.timestamp = System.currentTimeMillis();
+        this(rawState, rawState.length() > 0);
+    }
+    
+    /**
+     * Create a state object whose validity isn't determined by the
+     * contents of rawState (e.g. one assembled from other state objects).
+     * @param rawState  The underlying JSON, possibly empty
+     * @param valid     Whether the state object holds real data
+     */
+    protected BaseState(JSONObject rawState, boolean valid) {
+        this(rawState, valid, System.currentTimeMillis(), null);
+    }
+    
+    BaseState(StateSource source) {
+        this(source.raw(), !source.isEmpty(), source.timestamp(),
+             (source instanceof StateSource.JSON) ? null : source);
+    }
+    
+    /**
+     * Create a state object with no rawState whose fields will be filled in
+     * directly, e.g. by a StateCodec.
+     * @param timestamp When the state was obtained
+     * @param valid     Whether the state object holds real data
+     */
+    BaseState(long timestamp, boolean valid) {
+        this(emptyJSONObj, valid, timestamp, null);
+    }
+    
+    private BaseState(JSONObject rawState, boolean valid, long timestamp, StateSource source) {
+        this.timestamp = timestamp;
         this.rawState = rawState;
-        valid = (rawState.length() > 0);
+        this.valid = valid;
+        this.source = source;
+    }
+    
+    /**
+     * Returns the source from which this object's fields were read. That is
+     * rawState unless the object was decoded without building a JSONObject.
+     * @return  The source of the fields
+     */
+    StateSource source() {
+        return (source != null) ? source : StateSource.of(rawState);
     }
 }
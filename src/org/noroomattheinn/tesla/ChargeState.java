@@ -89,7 +89,9 @@ public class ChargeState extends BaseState {
     
     public ChargeState() { this(emptyJSONObj); }
     
-    public ChargeState(JSONObject source) {
+    public ChargeState(JSONObject source) { this(StateSource.of(source)); }
+    
+    ChargeState(StateSource source) {
         super(source);
         chargeToMaxRange =  source.optBoolean("charge_to_max_range"); 
         maxRangeCharges =  source.optInt("max_range_charge_counter"); 
@@ -40,7 +40,9 @@ public class DriveState extends BaseState {
  * -------                                                               -------
  *============================================================================*/
     
-    public DriveState(JSONObject source) {
+    public DriveState(JSONObject source) { this(StateSource.of(source)); }
+    
+    DriveState(StateSource source) {
         super(source);
         latitude = source.optDouble("latitude"); 
         nativeLatitude = source.optDouble("native_latitude");
@@ -33,7 +33,9 @@ public class GUIState extends BaseState {
  * -------                                                               -------
  *============================================================================*/
     
-    public GUIState(JSONObject source) {
+    public GUIState(JSONObject source) { this(StateSource.of(source)); }
+    
+    GUIState(StateSource source) {
         super(source);
         distanceUnits = source.optString("gui_distance_units"); 
         temperatureUnits = source.optString("gui_temperature_units"); 
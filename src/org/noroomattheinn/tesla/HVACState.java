@@ -55,7 +55,9 @@ public class HVACState extends BaseState {
  * -------                                                               -------
  *============================================================================*/
     
-    public HVACState(JSONObject source) {
+    public HVACState(JSONObject source) { this(StateSource.of(source)); }
+    
+    HVACState(StateSource source) {
         super(source);
         insideTemp = source.optDouble("inside_temp"); 
         outsideTemp = source.optDouble("outside_temp"); 
@@ -0,0 +1,155 @@
+/*
+ * LazyChargeState.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * LazyChargeState: The charging state of the vehicle, decoded a field at a
+ * time as the fields are accessed. Each accessor corresponds to the public
+ * field of the same name in ChargeState. Use this instead of ChargeState
+ * when polling frequently and reading only a few fields.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class LazyChargeState extends LazyState {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private enum F implements LazyState.Field {
+        chargeToMaxRange("charge_to_max_range"),
+        maxRangeCharges("max_range_charge_counter"),
+        range("battery_range"),
+        estimatedRange("est_battery_range"),
+        idealRange("ideal_battery_range"),
+        batteryPercent("battery_level"),
+        chargerVoltage("charger_voltage"),
+        timeToFullCharge("time_to_full_charge"),
+        chargeRate("charge_rate"),
+        chargePortOpen("charge_port_door_open"),
+        scheduledChargePending("scheduled_charging_pending"),
+        scheduledStart("scheduled_charging_start_time"),
+        chargerPilotCurrent("charger_pilot_current"),
+        chargerActualCurrent("charger_actual_current"),
+        fastChargerPresent("fast_charger_present"),
+        fastChargerBrand("fast_charger_brand"),
+        chargerPower("charger_power"),
+        chargingState("charging_state"),
+        batteryHeaterOn("battery_heater_on"),
+        notEnoughPowerToHeat("not_enough_power_to_heat"),
+        tripCharging("trip_charging"),
+        fastChargerType("fast_charger_type"),
+        usableBatteryLevel("usable_battery_level"),
+        energyAdded("charge_energy_added"),
+        ratedMilesAdded("charge_miles_added_rated"),
+        idealMilesAdded("charge_miles_added_ideal"),
+        chargeEnableRequest("charge_enable_request"),
+        chargePortLatch("charge_port_latch"),
+        userChargeEnableRequest("user_charge_enable_request"),
+        connChargeCable("conn_charge_cable"),
+        chargeLimitSOC("charge_limit_soc"),
+        chargeLimitSOCMax("charge_limit_soc_max"),
+        chargeLimitSOCMin("charge_limit_soc_min"),
+        chargeLimitSOCStd("charge_limit_soc_std"),
+        managedChargingActive("managed_charging_active"),
+        managedChargingUserCanceled("managed_charging_user_canceled"),
+        managedChargingStartTime("managed_charging_start_time"),
+        chargeCurrentRequest("charge_current_request"),
+        chargeCurrentRequestMax("charge_current_request_max"),
+        chargerPhases("charger_phases");
+
+        private final String key;
+        F(String key) { this.key = key; }
+        @Override public String key() { return key; }
+    }
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public LazyChargeState() { this(emptyJSONObj); }
+
+    public LazyChargeState(JSONObject source) {
+        super(source, F.values().length);
+    }
+
+    /**
+     * Decode all of the fields into a ChargeState
+     * @return  A ChargeState with the same underlying JSON
+     */
+    public ChargeState eager() { return new ChargeState(rawState); }
+
+    public boolean  chargeToMaxRange() { return bool(F.chargeToMaxRange); }
+    public int      maxRangeCharges() { return integer(F.maxRangeCharges); }
+    public double   range() { return dbl(F.range); }
+    public double   estimatedRange() { return dbl(F.estimatedRange); }
+    public double   idealRange() { return dbl(F.idealRange); }
+    public int      batteryPercent() { return integer(F.batteryPercent); }
+    public int      chargerVoltage() { return integer(F.chargerVoltage); }
+    public double   timeToFullCharge() { return dbl(F.timeToFullCharge); }
+    public double   chargeRate() { return dbl(F.chargeRate); }
+    public boolean  chargePortOpen() { return bool(F.chargePortOpen); }
+    public boolean  scheduledChargePending() { return bool(F.scheduledChargePending); }
+    public long     scheduledStart() { return longValue(F.scheduledStart); }
+    public int      chargerPilotCurrent() { return integer(F.chargerPilotCurrent, -1); }
+    public int      chargerActualCurrent() { return integer(F.chargerActualCurrent); }
+    public boolean  fastChargerPresent() { return bool(F.fastChargerPresent); }
+    public String   fastChargerBrand() { return string(F.fastChargerBrand); }
+    public int      chargerPower() { return integer(F.chargerPower); }
+    public ChargeState.Status chargingState() {
+        return enumeration(F.chargingState, ChargeState.Status.class);
+    }
+
+    public boolean  batteryHeaterOn() { return bool(F.batteryHeaterOn); }
+    public boolean  notEnoughPowerToHeat() { return bool(F.notEnoughPowerToHeat); }
+    public boolean  tripCharging() { return bool(F.tripCharging); }
+    public String   fastChargerType() { return string(F.fastChargerType); }
+    public int      usableBatteryLevel() { return integer(F.usableBatteryLevel); }
+    public double   energyAdded() { return dbl(F.energyAdded); }
+    public double   ratedMilesAdded() { return dbl(F.ratedMilesAdded); }
+    public double   idealMilesAdded() { return dbl(F.idealMilesAdded); }
+    public boolean  chargeEnableRequest() { return bool(F.chargeEnableRequest); }
+    public String   chargePortLatch() { return string(F.chargePortLatch); }
+
+    public String   userChargeEnableRequest() { return string(F.userChargeEnableRequest); }
+    public String   connChargeCable() { return string(F.connChargeCable); }
+
+    public int      chargeLimitSOC() { return integer(F.chargeLimitSOC); }
+    public int      chargeLimitSOCMax() { return integer(F.chargeLimitSOCMax); }
+    public int      chargeLimitSOCMin() { return integer(F.chargeLimitSOCMin); }
+    public int      chargeLimitSOCStd() { return integer(F.chargeLimitSOCStd); }
+
+    public boolean  managedChargingActive() { return bool(F.managedChargingActive); }
+    public boolean  managedChargingUserCanceled() { return bool(F.managedChargingUserCanceled); }
+    public long     managedChargingStartTime() { return longValue(F.managedChargingStartTime); }
+
+    public int      chargeCurrentRequest() { return integer(F.chargeCurrentRequest); }
+    public int      chargeCurrentRequestMax() { return integer(F.chargeCurrentRequestMax); }
+
+    public int      chargerPhases() { return integer(F.chargerPhases); }
+
+    public boolean connectedToCharger() {
+        ChargeState.Status status = chargingState();
+        return (status != ChargeState.Status.Disconnected && status != ChargeState.Status.Unknown);
+    }
+
+    public boolean isCharging() {
+        return (chargingState() == ChargeState.Status.Charging || chargeRate() > 0);
+    }
+
+    @Override public String toString() {
+        return String.format(
+            "    Estimated, Ideal, Rated: (%3.1f, %3.1f, %3.1f)\n" +
+            "    SOC: %d%%",
+            estimatedRange(), idealRange(), range(), batteryPercent());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * LazyHVACState.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * LazyHVACState: The state of the HVAC system, decoded a field at a time as
+ * the fields are accessed. Each accessor corresponds to the public field of
+ * the same name in HVACState.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class LazyHVACState extends LazyState {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private enum F implements LazyState.Field {
+        insideTemp("inside_temp"),
+        outsideTemp("outside_temp"),
+        driverTemp("driver_temp_setting"),
+        passengerTemp("passenger_temp_setting"),
+        isAutoConditioningOn("is_auto_conditioning_on"),
+        isFrontDefrosterOn("is_front_defroster_on"),
+        isRearDefrosterOn("is_rear_defroster_on"),
+        fanStatus("fan_status"),
+        isBatteryHeaterOn("battery_heater"),
+        isBatteryHeaterPowerless("battery_heater_no_power"),
+        isClimateOn("is_climate_on"),
+        isPreconditioningOn("is_preconditioning"),
+        maxAvailableTemp("max_avail_temp"),
+        minAvailableTemp("min_avail_temp"),
+        isLeftSeatHeaterOn("seat_heater_left"),
+        isRearCenterSeatHeaterOn("seat_heater_rear_center"),
+        isRearLeftSeatHeaterOn("seat_heater_rear_left"),
+        isRearLeftBackSeatHeaterOn("seat_heater_rear_left_back"),
+        isRightSeatHeaterOn("seat_heater_right"),
+        isRearRightSeatHeaterOn("seat_heater_rear_right"),
+        isRearRightBackSeatHeaterOn("seat_heater_rear_right_back"),
+        isSideMirrorHeaterOn("side_mirror_heaters"),
+        isSmartPreconditioningOn("smart_preconditioning"),
+        isSteeringWheelHeaterOn("steering_wheel_heater"),
+        isWiperBladeHeaterOn("wiper_blade_heater"),
+        leftTempDirection("left_temp_direction"),
+        rightTempDirection("right_temp_direction");
+
+        private final String key;
+        F(String key) { this.key = key; }
+        @Override public String key() { return key; }
+    }
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public LazyHVACState(JSONObject source) {
+        super(source, F.values().length);
+    }
+
+    /**
+     * Decode all of the fields into an HVACState
+     * @return  An HVACState with the same underlying JSON
+     */
+    public HVACState eager() { return new HVACState(rawState); }
+
+    public double  insideTemp() { return dbl(F.insideTemp); }
+    public double  outsideTemp() { return dbl(F.outsideTemp); }
+    public double  driverTemp() { return dbl(F.driverTemp); }
+    public double  passengerTemp() { return dbl(F.passengerTemp); }
+    public boolean isAutoConditioningOn() { return bool(F.isAutoConditioningOn); }
+    public boolean isFrontDefrosterOn() { return bool(F.isFrontDefrosterOn); }
+    public boolean isRearDefrosterOn() { return bool(F.isRearDefrosterOn); }
+    public int     fanStatus() { return integer(F.fanStatus); }
+    public boolean isBatteryHeaterOn() { return bool(F.isBatteryHeaterOn); }
+    public boolean isBatteryHeaterPowerless() { return bool(F.isBatteryHeaterPowerless); }
+    public boolean isClimateOn() { return bool(F.isClimateOn); }
+    public boolean isPreconditioningOn() { return bool(F.isPreconditioningOn); }
+    public double  maxAvailableTemp() { return dbl(F.maxAvailableTemp); }
+    public double  minAvailableTemp() { return dbl(F.minAvailableTemp); }
+    public boolean isLeftSeatHeaterOn() { return bool(F.isLeftSeatHeaterOn); }
+    public boolean isRearCenterSeatHeaterOn() { return bool(F.isRearCenterSeatHeaterOn); }
+    public boolean isRearLeftSeatHeaterOn() { return bool(F.isRearLeftSeatHeaterOn); }
+    public boolean isRearLeftBackSeatHeaterOn() { return bool(F.isRearLeftBackSeatHeaterOn); }
+    public boolean isRightSeatHeaterOn() { return bool(F.isRightSeatHeaterOn); }
+    public boolean isRearRightSeatHeaterOn() { return bool(F.isRearRightSeatHeaterOn); }
+    public boolean isRearRightBackSeatHeaterOn() { return bool(F.isRearRightBackSeatHeaterOn); }
+    public boolean isSideMirrorHeaterOn() { return bool(F.isSideMirrorHeaterOn); }
+    public boolean isSmartPreconditioningOn() { return bool(F.isSmartPreconditioningOn); }
+    public boolean isSteeringWheelHeaterOn() { return bool(F.isSteeringWheelHeaterOn); }
+    public boolean isWiperBladeHeaterOn() { return bool(F.isWiperBladeHeaterOn); }
+    public String  leftTempDirection() { return string(F.leftTempDirection); }
+    public String  rightTempDirection() { return string(F.rightTempDirection); }
+}
@@ -0,0 +1,165 @@
+/*
+ * LazyState.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import org.noroomattheinn.utils.Utils;
+import us.monoid.json.JSONObject;
+
+/**
+ * LazyState: A superclass for state objects that decode their fields on
+ * first access rather than in the constructor. The eager state classes
+ * (e.g. ChargeState) pull every field out of rawState when they're built,
+ * even though a caller that polls frequently typically looks at only a few
+ * of them. A lazy state keeps rawState (which BaseState holds on to anyway)
+ * and decodes a field the first time its accessor is called, caching the
+ * result for later calls.
+ * <P>
+ * Each subclass describes its fields with an enum that implements
+ * LazyState.Field. The ordinal of the field is its slot in the cache, so
+ * a subclass may have at most 64 fields. A key of the form "object.key"
+ * names a field in a nested object. If the nested object is missing, the
+ * field has the default value for its type (0, false, or "").
+ * <P>
+ * A lazy state may be shared between threads. Two threads reading the same
+ * field for the first time may both decode it, which is harmless since the
+ * result is the same.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public abstract class LazyState extends BaseState {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    /**
+     * A field of a lazy state. Implemented by an enum in each subclass.
+     */
+    protected interface Field {
+        int ordinal();
+        String key();
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final long[]    values;     // Decoded primitives, doubles as raw bits
+    private final Object[]  objects;    // Decoded Strings and enums
+    private volatile long   decoded;    // Bit n is set once slot n is decoded
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a lazy state object
+     * @param rawState  The underlying JSON, possibly empty
+     * @param nFields   The number of fields the subclass declares
+     */
+    protected LazyState(JSONObject rawState, int nFields) {
+        super(rawState);
+        if (nFields > 64) throw new IllegalArgumentException("Too many fields: " + nFields);
+        this.values = new long[nFields];
+        this.objects = new Object[nFields];
+        this.decoded = 0;
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Accessors for use by subclasses
+ *
+ *----------------------------------------------------------------------------*/
+
+    protected final boolean bool(Field f) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, (o != null && o.optBoolean(name(f))) ? 1 : 0);
+        }
+        return values[f.ordinal()] != 0;
+    }
+
+    protected final int integer(Field f) { return integer(f, 0); }
+
+    protected final int integer(Field f, int defaultValue) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, (o != null) ? o.optInt(name(f), defaultValue) : 0);
+        }
+        return (int)values[f.ordinal()];
+    }
+
+    protected final long longValue(Field f) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, (o != null) ? o.optLong(name(f)) : 0);
+        }
+        return values[f.ordinal()];
+    }
+
+    protected final double dbl(Field f) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, Double.doubleToRawLongBits((o != null) ? o.optDouble(name(f)) : 0.0));
+        }
+        return Double.longBitsToDouble(values[f.ordinal()]);
+    }
+
+    protected final String string(Field f) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, (o != null) ? o.optString(name(f)) : "");
+        }
+        return (String)objects[f.ordinal()];
+    }
+
+    protected final <E extends Enum<E>> E enumeration(Field f, Class<E> c) {
+        if (!isDecoded(f)) {
+            JSONObject o = container(f);
+            store(f, Utils.stringToEnum(c, (o != null) ? o.optString(name(f)) : ""));
+        }
+        return c.cast(objects[f.ordinal()]);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private boolean isDecoded(Field f) {
+        return (decoded & (1L << f.ordinal())) != 0;
+    }
+
+    // The value is written before the volatile write of the decoded bits so
+    // a reader that sees the bit also sees the value.
+    private void store(Field f, long value) {
+        values[f.ordinal()] = value;
+        decoded |= (1L << f.ordinal());
+    }
+
+    private void store(Field f, Object value) {
+        objects[f.ordinal()] = value;
+        decoded |= (1L << f.ordinal());
+    }
+
+    private JSONObject container(Field f) {
+        String key = f.key();
+        int dot = key.indexOf('.');
+        return (dot < 0) ? rawState : rawState.optJSONObject(key.substring(0, dot));
+    }
+
+    private static String name(Field f) {
+        String key = f.key();
+        return key.substring(key.indexOf('.') + 1);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * LazyVehicleState.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * LazyVehicleState: The state of the vehicle's doors, locks, roof, software
+ * and so on, decoded a field at a time as the fields are accessed. Each
+ * accessor corresponds to the public field of the same name in VehicleState.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class LazyVehicleState extends LazyState {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private enum F implements LazyState.Field {
+        apiVersion("api_version"),
+        isDFOpen("df"),
+        isPFOpen("pf"),
+        isDROpen("dr"),
+        isPROpen("pr"),
+        isFTOpen("ft"),
+        isRTOpen("rt"),
+        locked("locked"),
+        panoPercent("sun_roof_percent_open"),
+        panoState("sun_roof_state"),
+        version("car_version"),
+        remoteStart("remote_start"),
+        autoParkState("autopark_state_v2"),
+        autoParkStyle("autopark_style"),
+        lastAutoParkError("last_autopark_error"),
+        isCalendarSupported("calendar_supported"),
+        centerDisplayState("center_display_state"),
+        isHomelinkNearby("homelink_nearby"),
+        isUserPresent("is_user_present"),
+        odometer("odometer"),
+        isRemoteStartSupported("remote_start_supported"),
+        areNotificationsSupported("notifications_supported"),
+        isParsedCalendarSupported("parsed_calendar_supported"),
+        isValetModeEnabled("valet_mode"),
+        isValetPinNeeded("valet_pin_needed"),
+        vehicleName("vehicle_name"),
+        isRemoteControlEnabled("media_state.remote_control_enabled"),
+        softwareUpdateExpectedDuration("software_update.expected_duration_sec"),
+        softwareUpdateStatus("software_update.status"),
+        isSpeedLimitModeOn("speed_limit_mode.active"),
+        speedLimitCurrent("speed_limit_mode.current_limit_mph"),
+        speedLimitMax("speed_limit_mode.max_limit_mph"),
+        speedLimitMin("speed_limit_mode.min_limit_mph"),
+        isSpeedLimitPinSet("speed_limit_mode.pin_code_set");
+
+        private final String key;
+        F(String key) { this.key = key; }
+        @Override public String key() { return key; }
+    }
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public LazyVehicleState(JSONObject source) {
+        super(source, F.values().length);
+    }
+
+    /**
+     * Decode all of the fields into a VehicleState
+     * @return  A VehicleState with the same underlying JSON
+     */
+    public VehicleState eager() { return new VehicleState(rawState); }
+
+    public int      apiVersion() { return integer(F.apiVersion); }
+    public boolean  isDFOpen() { return integer(F.isDFOpen) != 0; }
+    public boolean  isPFOpen() { return integer(F.isPFOpen) != 0; }
+    public boolean  isDROpen() { return integer(F.isDROpen) != 0; }
+    public boolean  isPROpen() { return integer(F.isPROpen) != 0; }
+    public boolean  isFTOpen() { return integer(F.isFTOpen) != 0; }
+    public boolean  isRTOpen() { return integer(F.isRTOpen) != 0; }
+    public boolean  locked() { return bool(F.locked); }
+    public int      panoPercent() { return integer(F.panoPercent); }
+    public VehicleState.PanoPosition panoState() {
+        return enumeration(F.panoState, VehicleState.PanoPosition.class);
+    }
+    public boolean  hasPano() {
+        VehicleState.PanoPosition p = panoState();
+        return (p != VehicleState.PanoPosition.Unknown && p != VehicleState.PanoPosition.unknown);
+    }
+    public String   version() { return string(F.version); }
+    public boolean  remoteStart() { return bool(F.remoteStart); }
+    public String   autoParkState() { return string(F.autoParkState); }
+    public String   autoParkStyle() { return string(F.autoParkStyle); }
+    public String   lastAutoParkError() { return string(F.lastAutoParkError); }
+    public boolean  isCalendarSupported() { return bool(F.isCalendarSupported); }
+    public String   centerDisplayState() { return string(F.centerDisplayState); }
+    public boolean  isHomelinkNearby() { return bool(F.isHomelinkNearby); }
+    public boolean  isUserPresent() { return bool(F.isUserPresent); }
+    public double   odometer() { return dbl(F.odometer); }
+    public boolean  isRemoteStartSupported() { return bool(F.isRemoteStartSupported); }
+    public boolean  areNotificationsSupported() { return bool(F.areNotificationsSupported); }
+    public boolean  isParsedCalendarSupported() { return bool(F.isParsedCalendarSupported); }
+    public boolean  isValetModeEnabled() { return bool(F.isValetModeEnabled); }
+    public boolean  isValetPinNeeded() { return bool(F.isValetPinNeeded); }
+    public String   vehicleName() { return string(F.vehicleName); }
+
+    public boolean  isRemoteControlEnabled() { return bool(F.isRemoteControlEnabled); }
+    public int      softwareUpdateExpectedDuration() {
+        return integer(F.softwareUpdateExpectedDuration);
+    }
+    public String   softwareUpdateStatus() { return string(F.softwareUpdateStatus); }
+    public boolean  hasSoftwareUpdateAvailable() {
+        String status = softwareUpdateStatus();
+        return (status != null && !status.isEmpty());
+    }
+    public boolean  isSpeedLimitModeOn() { return bool(F.isSpeedLimitModeOn); }
+    public double   speedLimitCurrent() { return dbl(F.speedLimitCurrent); }
+    public int      speedLimitMax() { return integer(F.speedLimitMax); }
+    public int      speedLimitMin() { return integer(F.speedLimitMin); }
+    public boolean  isSpeedLimitPinSet() { return bool(F.isSpeedLimitPinSet); }
+}
@@ -0,0 +1,437 @@
+/*
+ * PollScheduler.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.noroomattheinn.utils.ThreadManager;
+
+/**
+ * PollScheduler: Periodically polls the state of a set of vehicles. Rather
+ * than polling at a fixed rate, each vehicle is polled at an interval that
+ * depends on what it is doing:
+ * <ul>
+ * <li>Driving: Frequently, since location, speed, and power change quickly.</li>
+ * <li>Charging: Moderately, to follow the state of charge.</li>
+ * <li>Awake: Parked and online. The interval grows each time a poll finds
+ *     the car still parked so that it is allowed to fall asleep.</li>
+ * <li>Asleep: The vehicle itself is never queried since that would keep it
+ *     awake. Instead the vehicle list, which doesn't wake cars, is checked
+ *     for a change in status.</li>
+ * </ul>
+ * The intervals for the whole fleet are stretched, if necessary, so that the
+ * total polling rate stays within a share of the request budget, leaving the
+ * rest for interactive requests. Polls are issued asynchronously, so the
+ * scheduler's single thread is never blocked by a request.
+ * <P>
+ * By default each poll's snapshot is passed to the Listener. Alternatively
+ * the scheduler can report only what changed since the previous poll of the
+ * vehicle, as a StateDelta for each part of the snapshot that changed, and
+ * nothing at all if nothing did.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class PollScheduler implements ThreadManager.Stoppable {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public enum Mode { Driving, Charging, Awake, Asleep };
+
+    public static final long DefaultDrivingInterval = 15 * 1000;
+    public static final long DefaultChargingInterval = 60 * 1000;
+    public static final long DefaultAwakeInterval = 2 * 60 * 1000;
+    public static final long DefaultAsleepInterval = 5 * 60 * 1000;
+    public static final long DefaultMaxIdleInterval = 30 * 60 * 1000;
+
+    // The fraction of the sustainable request rate that polling may use
+    public static final double DefaultBudgetShare = 0.75;
+
+    private static final double IdleBackoff = 2.0;
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final Tesla                     tesla;
+    private final Listener                  listener;
+    private final ScheduledExecutorService  timer;
+    private final Map<Mode,Long>            intervals;
+    private final ConcurrentHashMap<String,Entry> entries;
+    private volatile long                   maxIdleInterval = DefaultMaxIdleInterval;
+    private volatile double                 budgetShare = DefaultBudgetShare;
+    private volatile boolean                changesOnly = false;
+    private volatile boolean                stopped = false;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public interface Listener {
+        /**
+         * Called with the result of each successful poll
+         * @param v         The vehicle that was polled
+         * @param snapshot  The vehicle's state
+         */
+        void snapshotPolled(Vehicle v, VehicleSnapshot snapshot);
+
+        /**
+         * Called when the scheduler's view of what the vehicle is doing
+         * changes, and with it the polling interval.
+         * @param v     The vehicle
+         * @param mode  The new Mode
+         */
+        void modeChanged(Vehicle v, Mode mode);
+
+        /**
+         * Called instead of snapshotPolled when the scheduler reports only
+         * changes, if anything changed since the vehicle's previous poll.
+         * The first poll of a vehicle reports every field. Parts of the
+         * snapshot that couldn't be obtained are not compared.
+         * @param v         The vehicle that was polled
+         * @param changes   A delta for each part of the snapshot that changed
+         */
+        default void changesPolled(Vehicle v, List<StateDelta<?>> changes) { }
+    }
+
+    /**
+     * Create a PollScheduler. Vehicles are polled once they are added.
+     * @param tesla     The Tesla object through which vehicles are polled
+     * @param listener  Receives the results of the polls
+     */
+    public PollScheduler(Tesla tesla, Listener listener) {
+        this.tesla = tesla;
+        this.listener = listener;
+        this.entries = new ConcurrentHashMap<>();
+        this.intervals = new EnumMap<>(Mode.class);
+        intervals.put(Mode.Driving, DefaultDrivingInterval);
+        intervals.put(Mode.Charging, DefaultChargingInterval);
+        intervals.put(Mode.Awake, DefaultAwakeInterval);
+        intervals.put(Mode.Asleep, DefaultAsleepInterval);
+
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "PollScheduler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        stpe.setRemoveOnCancelPolicy(true);
+        this.timer = stpe;
+        ThreadManager.registerStoppable(this);
+    }
+
+    /**
+     * Set the base polling interval for vehicles in the specified mode
+     * @param mode      The Mode
+     * @param interval  The interval in milliseconds
+     */
+    public synchronized void setInterval(Mode mode, long interval) {
+        intervals.put(mode, interval);
+    }
+
+    /**
+     * Set the longest interval between polls of an idle (Awake) vehicle
+     * @param interval  The interval in milliseconds
+     */
+    public void setMaxIdleInterval(long interval) { maxIdleInterval = interval; }
+
+    /**
+     * Set the fraction of the sustainable request rate available to polling
+     * @param share A value between 0 and 1
+     */
+    public void setBudgetShare(double share) { budgetShare = share; }
+
+    /**
+     * Choose whether to report each poll's snapshot (snapshotPolled) or only
+     * the changes since the vehicle's previous poll (changesPolled)
+     * @param enabled   true to report only changes
+     */
+    public void setChangesOnly(boolean enabled) { changesOnly = enabled; }
+
+    /**
+     * Start polling a vehicle. Its first poll happens right away.
+     * @param v The vehicle to be polled
+     */
+    public void add(Vehicle v) {
+        Entry e = new Entry(v);
+        Entry old = entries.put(v.getVID(), e);
+        if (old != null) old.cancel();
+        schedule(e, 0);
+    }
+
+    /**
+     * Stop polling a vehicle
+     * @param v The vehicle
+     */
+    public void remove(Vehicle v) {
+        Entry e = entries.remove(v.getVID());
+        if (e != null) e.cancel();
+    }
+
+    /**
+     * Return the mode of a vehicle being polled
+     * @param v The vehicle
+     * @return  The vehicle's Mode, or null if it isn't being polled
+     */
+    public Mode getMode(Vehicle v) {
+        Entry e = entries.get(v.getVID());
+        return (e == null) ? null : e.mode;
+    }
+
+    /**
+     * Tell the scheduler about streaming data for a vehicle. A vehicle that
+     * starts moving is polled right away and then at the Driving interval.
+     * @param v     The vehicle
+     * @param state The most recent StreamState for the vehicle
+     */
+    public void observe(Vehicle v, StreamState state) {
+        Entry e = entries.get(v.getVID());
+        if (e == null || state == null || !state.valid) return;
+        if (state.isInMotion()) {
+            if (e.mode != Mode.Driving) { updateMode(e, Mode.Driving); schedule(e, 0); }
+        } else if (e.mode == Mode.Driving) {
+            updateMode(e, Mode.Awake);
+        }
+    }
+
+    /**
+     * Tell the scheduler about a ChargeState obtained outside of polling
+     * @param v     The vehicle
+     * @param state The most recent ChargeState for the vehicle
+     */
+    public void observe(Vehicle v, ChargeState state) {
+        Entry e = entries.get(v.getVID());
+        if (e == null || state == null || !state.valid) return;
+        if (state.isCharging() && e.mode != Mode.Charging && e.mode != Mode.Driving) {
+            updateMode(e, Mode.Charging);
+        }
+    }
+
+    /**
+     * Stop polling all vehicles and release the scheduler's thread
+     */
+    @Override public void stop() {
+        stopped = true;
+        for (Entry e : entries.values()) { e.cancel(); }
+        entries.clear();
+        timer.shutdownNow();
+        ThreadManager.unregisterStoppable(this);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Polling
+ *
+ *----------------------------------------------------------------------------*/
+
+    private void poll(final Entry e) {
+        if (stopped || entries.get(e.v.getVID()) != e) return;
+        if (!e.startPoll()) return;     // The poll in progress will poll again
+
+        if (e.mode == Mode.Asleep) {
+            // The vehicle list doesn't wake the car; don't poll it directly
+            // until the list says it's awake
+            statusOf(e).whenComplete((status, ex) -> {
+                if (status != null && !status.isAsleep()) {
+                    updateMode(e, Mode.Awake);
+                    pollDone(e, 0);
+                } else {
+                    pollDone(e, intervalFor(e));
+                }
+            });
+            return;
+        }
+
+        e.v.querySnapshotAsync().whenComplete((snapshot, ex) -> {
+            if (ex != null || snapshot == null || !snapshot.valid) {
+                // The car may have gone to sleep. Find out without waking it.
+                statusOf(e).whenComplete((status, ex2) -> {
+                    if (status != null && status.isAsleep()) updateMode(e, Mode.Asleep);
+                    pollDone(e, intervalFor(e));
+                });
+                return;
+            }
+            try {
+                report(e, snapshot);
+            } finally {
+                pollDone(e, intervalFor(e));
+            }
+        });
+    }
+
+    private void report(Entry e, VehicleSnapshot snapshot) {
+        Mode previous = e.mode;
+        Mode mode = modeOf(snapshot);
+        if (mode == Mode.Awake && previous == Mode.Awake) {
+            e.idleInterval = Math.min(
+                    (long)(e.idleInterval * IdleBackoff), maxIdleInterval);
+        } else {
+            e.idleInterval = baseInterval(Mode.Awake);
+        }
+        updateMode(e, mode);
+        try {
+            if (changesOnly) {
+                List<StateDelta<?>> changes = e.changes(snapshot);
+                if (!changes.isEmpty()) listener.changesPolled(e.v, changes);
+            } else {
+                listener.snapshotPolled(e.v, snapshot);
+            }
+        } catch (Exception le) {
+            Tesla.logger.log(Level.WARNING, "Poll listener failed", le);
+        }
+    }
+
+    // Schedule the poll after the one that just finished. If another poll
+    // was asked for while it was in progress, that one happens right away.
+    private void pollDone(Entry e, long delay) {
+        schedule(e, e.finishPoll() ? 0 : delay);
+    }
+
+    // The cached vehicle list answers without a request, so only a refresh
+    // of the list takes a request budget permit
+    private CompletableFuture<VehicleStatus> statusOf(final Entry e) {
+        return tesla.queryVehicleStatusAsync(e.v.getVID());
+    }
+
+    private static Mode modeOf(VehicleSnapshot snapshot) {
+        if (snapshot.drive.valid) {
+            String shift = snapshot.drive.shiftState;
+            if (shift != null && !shift.isEmpty() &&
+                !shift.equals("P") && !shift.equals("null")) {
+                return Mode.Driving;
+            }
+        }
+        if (snapshot.charge.valid && snapshot.charge.isCharging()) return Mode.Charging;
+        return Mode.Awake;
+    }
+
+    private void updateMode(Entry e, Mode mode) {
+        if (e.mode == mode) return;
+        e.mode = mode;
+        if (mode == Mode.Awake) e.idleInterval = baseInterval(Mode.Awake);
+        try {
+            listener.modeChanged(e.v, mode);
+        } catch (Exception le) {
+            Tesla.logger.log(Level.WARNING, "Poll listener failed", le);
+        }
+    }
+
+    private void schedule(final Entry e, long delay) {
+        if (stopped || entries.get(e.v.getVID()) != e) return;
+        synchronized (e) {
+            if (e.next != null) e.next.cancel(false);
+            e.next = timer.schedule(new Runnable() {
+                @Override public void run() { poll(e); } },
+                delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Fitting the fleet's polling into the request budget
+ *
+ *----------------------------------------------------------------------------*/
+
+    private synchronized long baseInterval(Mode mode) { return intervals.get(mode); }
+
+    private long unstretchedInterval(Entry e) {
+        return (e.mode == Mode.Awake) ? e.idleInterval : baseInterval(e.mode);
+    }
+
+    /**
+     * The interval until the next poll of the vehicle. This is the interval
+     * for its mode, stretched by the factor by which the whole fleet's
+     * polling would exceed its share of the request budget.
+     */
+    private long intervalFor(Entry e) {
+        return (long)(unstretchedInterval(e) * stretchFactor());
+    }
+
+    private double stretchFactor() {
+        // Sleeping vehicles share one vehicle list request per interval
+        double demand = 0;
+        boolean anyAsleep = false;
+        for (Entry e : entries.values()) {
+            if (e.mode == Mode.Asleep) { anyAsleep = true; continue; }
+            demand += 1000.0 / unstretchedInterval(e);
+        }
+        if (anyAsleep) demand += 1000.0 / baseInterval(Mode.Asleep);
+        double supply = tesla.sustainedRequestRate() * budgetShare;
+        return (demand <= supply) ? 1.0 : demand / supply;
+    }
+
+    private class Entry {
+        final Vehicle           v;
+        volatile Mode           mode;
+        volatile long           idleInterval = baseInterval(Mode.Awake);
+        ScheduledFuture<?>      next = null;
+        boolean                 polling = false;    // A poll is in progress
+        boolean                 pollAgain = false;  // Poll when it finishes
+        // The parts of the last snapshot reported as changes
+        final BaseState[]       reported = new BaseState[6];
+
+        Entry(Vehicle v) {
+            this.v = v;
+            this.mode = "asleep".equals(v.status()) ? Mode.Asleep : Mode.Awake;
+        }
+
+        // Polls of a vehicle don't overlap (see startPoll), and starting and
+        // finishing one synchronizes on the Entry, so this needn't be
+        List<StateDelta<?>> changes(VehicleSnapshot snapshot) {
+            BaseState[] parts = {
+                snapshot.charge, snapshot.drive, snapshot.gui,
+                snapshot.hvac, snapshot.vehicleState, snapshot.vehicleConfig };
+            List<StateDelta<?>> changes = new ArrayList<>();
+            for (int i = 0; i < parts.length; i++) {
+                if (!parts[i].valid) continue;
+                StateDelta<?> delta = StateDelta.between(reported[i], parts[i]);
+                if (!delta.isEmpty()) changes.add(delta);
+                reported[i] = parts[i];
+            }
+            return changes;
+        }
+
+        // Returns whether a poll may start now. If one is already in
+        // progress, it is asked to poll again when it's done instead.
+        synchronized boolean startPoll() {
+            if (polling) { pollAgain = true; return false; }
+            polling = true;
+            return true;
+        }
+
+        // Returns whether another poll was asked for while this one ran
+        synchronized boolean finishPoll() {
+            boolean again = pollAgain;
+            polling = pollAgain = false;
+            return again;
+        }
+
+        synchronized void cancel() {
+            if (next != null) next.cancel(false);
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * RequestBudget.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import org.noroomattheinn.utils.Pair;
+import org.noroomattheinn.utils.RateLimiter;
+
+/**
+ * RequestBudget: Rate limits requests to the Tesla servers. Every request
+ * counts against a set of global limits. In addition, requests are
+ * partitioned by vehicle and by the class of endpoint (commands, data
+ * requests, the vehicle list) and each partition has its own, smaller
+ * budget so that, for example, polling one car can't consume the whole
+ * global budget.
+ * <P>
+ * Requests also have a priority. Interactive requests (commands) may use the
+ * entire global budget and queue for it in order. Background requests (data
+ * requests and vehicle list refreshes) only proceed while doing so leaves a
+ * reserve of global permits untouched, and they hold no reservation while
+ * they wait. A command therefore never waits behind polling traffic, though
+ * it does still wait if the global limits themselves are exhausted.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class RequestBudget {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public enum Priority { Interactive, Background };
+
+    public enum EndpointClass {
+        Command(Priority.Interactive),
+        DataRequest(Priority.Background),
+        VehicleList(Priority.Background),
+        Other(Priority.Interactive);
+
+        public final Priority priority;
+        EndpointClass(Priority p) { this.priority = p; }
+    };
+
+    // The number of permits in each global limit that background requests
+    // must leave available for interactive requests
+    public static final int DefaultInteractiveReserve = 2;
+
+    private static final String VehiclesPath = "/vehicles/";
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final RateLimiter global;
+    private final int interactiveReserve;
+    private final ConcurrentHashMap<EndpointClass,List<Pair<Integer,Integer>>> partitionLimits;
+    private final ConcurrentHashMap<String,RateLimiter> partitions;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a RequestBudget
+     * @param globalLimits          (count, seconds) limits on all requests
+     * @param interactiveReserve    Global permits reserved for interactive
+     *                              requests
+     */
+    public RequestBudget(List<Pair<Integer,Integer>> globalLimits, int interactiveReserve) {
+        this.global = new RateLimiter(globalLimits);
+        this.interactiveReserve = interactiveReserve;
+        this.partitionLimits = new ConcurrentHashMap<>();
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Limit the requests of an endpoint class for each individual vehicle.
+     * Should be called before any requests are made. Classes with no
+     * partition limits are only subject to the global limits.
+     * @param which     The class of endpoint
+     * @param limits    (count, seconds) limits applied per vehicle
+     */
+    public void setPartitionLimits(EndpointClass which, List<Pair<Integer,Integer>> limits) {
+        partitionLimits.put(which, limits);
+    }
+
+    /**
+     * Wait until a request to the endpoint fits within the budget and record
+     * it. If the thread is interrupted the wait ends early.
+     * @param endpoint  The URL about to be requested
+     */
+    public void apply(String endpoint) {
+        EndpointClass ec = classify(endpoint);
+        try {
+            RateLimiter partition = partitionFor(ec, vehicleOf(endpoint));
+            if (partition != null) {
+                logIfThrottled(partition, endpoint);
+                partition.acquire();
+            }
+            logIfThrottled(global, endpoint);
+            if (ec.priority == Priority.Interactive) global.acquire();
+            else global.acquire(interactiveReserve);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Record a request to the endpoint without blocking.
+     * @param endpoint  The URL about to be requested
+     * @return  A future that completes when the request may be issued
+     */
+    public CompletableFuture<Void> applyAsync(final String endpoint) {
+        final EndpointClass ec = classify(endpoint);
+        RateLimiter partition = partitionFor(ec, vehicleOf(endpoint));
+        CompletableFuture<Void> ready = (partition == null) ?
+                CompletableFuture.<Void>completedFuture(null) : partition.acquireAsync();
+        return ready.thenCompose(v -> {
+            logIfThrottled(global, endpoint);
+            return (ec.priority == Priority.Interactive) ?
+                    global.acquireAsync() : global.acquireAsync(interactiveReserve);
+        });
+    }
+
+    /**
+     * Returns the long-run rate of requests the global limits allow
+     * @return  The sustainable rate in requests per second
+     */
+    public double sustainedRate() { return global.sustainedRate(); }
+
+    /**
+     * Determine the class of an endpoint from its URL
+     * @param endpoint  An owner API URL
+     * @return          The EndpointClass of the URL
+     */
+    public static EndpointClass classify(String endpoint) {
+        int v = endpoint.indexOf(VehiclesPath);
+        if (v == -1) {
+            return endpoint.endsWith("/vehicles") ?
+                    EndpointClass.VehicleList : EndpointClass.Other;
+        }
+        String rest = endpoint.substring(v + VehiclesPath.length());
+        int slash = rest.indexOf('/');
+        String name = (slash == -1) ? "" : rest.substring(slash + 1);
+        if (name.startsWith("command/") || name.equals("wake_up"))
+            return EndpointClass.Command;
+        if (name.startsWith("data_request/") || name.equals("vehicle_data") ||
+            name.equals("mobile_enabled"))
+            return EndpointClass.DataRequest;
+        return rest.isEmpty() ? EndpointClass.VehicleList : EndpointClass.Other;
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static String vehicleOf(String endpoint) {
+        int v = endpoint.indexOf(VehiclesPath);
+        if (v == -1) return "";
+        int start = v + VehiclesPath.length();
+        int end = endpoint.indexOf('/', start);
+        return (end == -1) ? endpoint.substring(start) : endpoint.substring(start, end);
+    }
+
+    private RateLimiter partitionFor(EndpointClass ec, String vid) {
+        final List<Pair<Integer,Integer>> limits = partitionLimits.get(ec);
+        if (limits == null) return null;
+        return partitions.computeIfAbsent(ec + ":" + vid, k -> new RateLimiter(limits));
+    }
+
+    private static void logIfThrottled(RateLimiter limiter, String endpoint) {
+        String limit = limiter.bindingLimit();
+        if (limit != null) {
+            Tesla.logger.log(
+                Level.INFO, "Throttling: More than {0} - {1}",
+                new Object[]{limit, endpoint});
+        }
+    }
+}
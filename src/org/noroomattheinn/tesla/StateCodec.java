@@ -0,0 +1,311 @@
+/*
+ * StateCodec.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.noroomattheinn.tesla.StateReader.Entry;
+import org.noroomattheinn.tesla.StateReader.Kind;
+import org.noroomattheinn.tesla.StateReader.Schema;
+
+/**
+ * StateCodec: A compact binary encoding of state objects, for caching them
+ * or passing them between processes without going through JSON. The
+ * supported classes are ChargeState, DriveState, GUIState, HVACState,
+ * VehicleState, VehicleConfig and StreamState.
+ * <P>
+ * A state object is encoded as the values its constructor reads, in the
+ * order it reads them, as fixed width primitives. Strings (and hence enums,
+ * which the state classes read as strings) are dictionary encoded: the first
+ * occurrence of a string is written out and later occurrences refer back to
+ * it. A Writer and Reader keep their dictionary across state objects, so a
+ * sequence of states is much smaller than the same states encoded one at a
+ * time. A decoded state object has an empty rawState.
+ * <P>
+ * Each record carries a fingerprint of the fields of its class. Decoding a
+ * record written by a version of a class that reads different fields fails
+ * with an IOException rather than yielding garbage.
+ * <pre>
+ *   Stream:  version record*
+ *   Record:  kind fingerprint timestamp valid value*
+ *   Value:   boolean (1 byte) | int (4) | long (8) | double (8) |
+ *            string (varint, plus UTF if new) | object (present byte, value*)
+ * </pre>
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class StateCodec {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static final int Version = 1;
+
+    private static final int StreamKind = 7;
+    private static final int MaxDictionarySize = 4096;
+
+    private static final int StreamFingerprint;
+    static {
+        int h = 17;
+        for (Streamer.Keys k : Streamer.Keys.values()) { h = 31 * h + k.name().hashCode(); }
+        StreamFingerprint = h;
+    }
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Encode a single state object
+     * @param state The state object
+     * @return      The encoding, including the version
+     * @throws IllegalArgumentException If the class of state isn't supported
+     */
+    public static byte[] encode(BaseState state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            Writer w = new Writer(new DataOutputStream(bytes));
+            w.write(state);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't Happen", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a state object encoded by encode()
+     * @param bytes The encoding
+     * @return      The state object
+     * @throws IOException  If bytes isn't a valid encoding
+     */
+    public static BaseState decode(byte[] bytes) throws IOException {
+        return new Reader(new DataInputStream(new ByteArrayInputStream(bytes))).read();
+    }
+
+    /**
+     * Returns whether state objects of a given class can be encoded
+     * @param stateClass    The class
+     * @return  true if the class is supported
+     */
+    public static boolean supports(Class<? extends BaseState> stateClass) {
+        return stateClass == StreamState.class || StateReader.kindOf(stateClass) != null;
+    }
+
+    /**
+     * Writes a sequence of state objects, sharing a string dictionary
+     * between them. The version is written when the Writer is created.
+     */
+    public static class Writer {
+        private final DataOutput out;
+        private final Map<String,Integer> dictionary = new HashMap<>();
+
+        public Writer(DataOutput out) throws IOException {
+            this.out = out;
+            out.writeByte(Version);
+        }
+
+        /**
+         * Write a state object
+         * @param state The state object
+         * @throws IOException  If writing fails
+         * @throws IllegalArgumentException If the class of state isn't supported
+         */
+        public void write(BaseState state) throws IOException {
+            if (state.getClass() == StreamState.class) {
+                writeStream((StreamState)state);
+                return;
+            }
+            Kind<?> kind = StateReader.kindOf(state.getClass());
+            if (kind == null) {
+                throw new IllegalArgumentException("Unsupported state: " + state.getClass());
+            }
+            out.writeByte(kind.id);
+            out.writeInt(kind.fingerprint);
+            out.writeLong(state.timestamp);
+            out.writeBoolean(state.valid);
+            writeValues(kind.schema, state.source());
+        }
+
+        private void writeValues(Schema schema, StateSource source) throws IOException {
+            for (Entry e : schema.entries) {
+                switch (e.type) {
+                    case Flag: out.writeBoolean(source.optBoolean(e.key)); break;
+                    case Int: out.writeInt(source.optInt(e.key, e.defaultValue)); break;
+                    case Long: out.writeLong(source.optLong(e.key)); break;
+                    case Real: out.writeDouble(source.optDouble(e.key)); break;
+                    case Text: writeString(source.optString(e.key)); break;
+                    case Nested:
+                        StateSource nested = source.optObject(e.key);
+                        out.writeBoolean(nested != null);
+                        if (nested != null) writeValues(e.nested, nested);
+                        break;
+                }
+            }
+        }
+
+        private void writeStream(StreamState s) throws IOException {
+            out.writeByte(StreamKind);
+            out.writeInt(StreamFingerprint);
+            out.writeLong(s.timestamp);
+            out.writeBoolean(s.valid);
+            out.writeLong(s.vehicleTimestamp);
+            out.writeDouble(s.speed);
+            out.writeDouble(s.odometer);
+            out.writeInt(s.soc);
+            out.writeInt(s.elevation);
+            out.writeInt(s.estHeading);
+            out.writeDouble(s.estLat);
+            out.writeDouble(s.estLng);
+            out.writeInt(s.power);
+            writeString(s.shiftState());
+            out.writeInt(s.range);
+            out.writeInt(s.estRange);
+            out.writeInt(s.heading);
+        }
+
+        // 0 introduces a new string, n > 0 refers to dictionary entry n-1
+        private void writeString(String s) throws IOException {
+            if (s == null) s = "";
+            Integer index = dictionary.get(s);
+            if (index != null) {
+                writeVarint(out, index + 1);
+            } else {
+                writeVarint(out, 0);
+                out.writeUTF(s);
+                if (dictionary.size() < MaxDictionarySize) dictionary.put(s, dictionary.size());
+            }
+        }
+    }
+
+    /**
+     * Reads a sequence of state objects written by a Writer
+     */
+    public static class Reader {
+        private final DataInput in;
+        private final List<String> dictionary = new ArrayList<>();
+
+        public Reader(DataInput in) throws IOException {
+            this.in = in;
+            int version = in.readUnsignedByte();
+            if (version != Version) throw new IOException("Unsupported version: " + version);
+        }
+
+        /**
+         * Read the next state object
+         * @return  The state object
+         * @throws java.io.EOFException  At the end of the input
+         * @throws IOException  If reading fails or the input is invalid
+         */
+        public BaseState read() throws IOException {
+            int id = in.readUnsignedByte();
+            int fingerprint = in.readInt();
+            long timestamp = in.readLong();
+            boolean valid = in.readBoolean();
+            if (id == StreamKind) {
+                checkFingerprint(StreamFingerprint, fingerprint, "StreamState");
+                return readStream(timestamp, valid);
+            }
+            Kind<?> kind = StateReader.kindOf(id);
+            if (kind == null) throw new IOException("Unknown state kind: " + id);
+            checkFingerprint(kind.fingerprint, fingerprint, kind.type.getSimpleName());
+            return kind.build(readValues(kind.schema, timestamp, valid));
+        }
+
+        private StateValues readValues(Schema schema, long timestamp, boolean valid)
+                throws IOException {
+            StateValues v = new StateValues(schema, timestamp, valid);
+            for (Entry e : schema.entries) {
+                switch (e.type) {
+                    case Flag: v.primitives[e.index] = in.readBoolean() ? 1 : 0; break;
+                    case Int: v.primitives[e.index] = in.readInt(); break;
+                    case Long: v.primitives[e.index] = in.readLong(); break;
+                    case Real: v.setReal(e, in.readDouble()); break;
+                    case Text: v.objects[e.index] = readString(); break;
+                    case Nested:
+                        if (in.readBoolean()) {
+                            v.objects[e.index] = readValues(e.nested, timestamp, true);
+                        }
+                        break;
+                }
+            }
+            return v;
+        }
+
+        private StreamState readStream(long timestamp, boolean valid) throws IOException {
+            StreamState s = new StreamState(timestamp, valid);
+            s.vehicleTimestamp = in.readLong();
+            s.speed = in.readDouble();
+            s.odometer = in.readDouble();
+            s.soc = in.readInt();
+            s.elevation = in.readInt();
+            s.estHeading = in.readInt();
+            s.estLat = in.readDouble();
+            s.estLng = in.readDouble();
+            s.power = in.readInt();
+            s.setShiftState(readString());
+            s.range = in.readInt();
+            s.estRange = in.readInt();
+            s.heading = in.readInt();
+            return s;
+        }
+
+        private String readString() throws IOException {
+            int code = (int)readVarint(in);
+            if (code == 0) {
+                String s = in.readUTF();
+                if (dictionary.size() < MaxDictionarySize) dictionary.add(s);
+                return s;
+            }
+            if (code > dictionary.size()) throw new IOException("Bad string reference: " + code);
+            return dictionary.get(code - 1);
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static void checkFingerprint(int expected, int actual, String what)
+            throws IOException {
+        if (expected != actual) {
+            throw new IOException("Incompatible encoding of " + what);
+        }
+    }
+
+    static void writeVarint(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    static long readVarint(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            v |= (long)(b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
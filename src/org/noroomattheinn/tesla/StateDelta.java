@@ -0,0 +1,321 @@
+/*
+ * StateDelta.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.noroomattheinn.tesla.StateReader.Entry;
+import org.noroomattheinn.tesla.StateReader.Kind;
+import org.noroomattheinn.tesla.StateReader.Schema;
+
+/**
+ * StateDelta: The fields that differ between two state objects of the same
+ * class, and their new values. Applying the delta to the older object yields
+ * an object equal, field for field, to the newer one. Successive states of a
+ * vehicle usually differ in only a few fields, so storing or sending deltas
+ * is much cheaper than storing or sending every state.
+ * <P>
+ * Fields are identified by the JSON keys they're read from; a field in a
+ * nested object is identified as "object.key". The supported classes are
+ * those supported by StateCodec other than StreamState.
+ * <P>
+ * A delta has a compact binary form: the class's kind and fingerprint, the
+ * timestamp and validity of the newer state, then each change as the path
+ * to the field (schema indexes) followed by its value.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public final class StateDelta<T extends BaseState> {
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final Kind<T>       kind;
+    private final long          timestamp;
+    private final boolean       valid;
+    private final List<Change>  changes;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Compute the delta between two state objects of the same class
+     * @param from  The older state, or null to treat every field of to as
+     *              changed
+     * @param to    The newer state
+     * @return      The delta
+     * @throws IllegalArgumentException If the classes differ or aren't supported
+     */
+    public static <T extends BaseState> StateDelta<T> between(T from, T to) {
+        Kind<T> kind = kindOf(to);
+        if (from != null && from.getClass() != to.getClass()) {
+            throw new IllegalArgumentException(
+                    "Can't compare " + from.getClass() + " with " + to.getClass());
+        }
+        StateValues newer = capture(kind, to);
+        List<Change> changes = new ArrayList<>();
+        if (from == null) {
+            collectAll(newer, new int[0], changes);
+        } else {
+            collect(capture(kind, from), newer, new int[0], changes);
+        }
+        return new StateDelta<>(kind, to.timestamp, to.valid, changes);
+    }
+
+    /**
+     * Apply this delta to the state it was computed from
+     * @param base  The older state given to between(), or null if that was null
+     * @return      A state object equal to the newer state given to between()
+     * @throws IllegalArgumentException If base isn't of the delta's class, or
+     *              is missing a nested object the delta changes
+     */
+    public T apply(T base) {
+        if (base == null) {
+            base = kind.invalid();
+        } else if (base.getClass() != kind.type) {
+            throw new IllegalArgumentException("Can't apply to " + base.getClass());
+        }
+        StateValues values = StateValues.capture(kind.schema, base.source(), timestamp, valid);
+        for (Change c : changes) {
+            StateValues target = values;
+            for (int i = 0; i < c.path.length - 1; i++) {
+                Object nested = target.objects[c.path[i]];
+                if (!(nested instanceof StateValues)) {
+                    throw new IllegalArgumentException("Base doesn't match the delta");
+                }
+                target = (StateValues)nested;
+            }
+            int index = c.path[c.path.length - 1];
+            target.primitives[index] = c.primitive;
+            target.objects[index] = (c.object instanceof StateValues) ?
+                    ((StateValues)c.object).copy(timestamp, true) : c.object;
+        }
+        return kind.build(values);
+    }
+
+    public boolean isEmpty() { return changes.isEmpty(); }
+
+    /**
+     * Returns the number of changed fields. A nested object that appeared or
+     * disappeared counts as one.
+     * @return  The number of changes
+     */
+    public int size() { return changes.size(); }
+
+    public Class<T> stateClass() { return kind.type; }
+
+    public long timestamp() { return timestamp; }
+
+    public boolean valid() { return valid; }
+
+    /**
+     * Returns the keys of the changed fields
+     * @return  The keys, nested keys in the form "object.key"
+     */
+    public List<String> changedKeys() {
+        List<String> keys = new ArrayList<>(changes.size());
+        for (Change c : changes) {
+            StringBuilder sb = new StringBuilder();
+            Schema schema = kind.schema;
+            for (int i = 0; i < c.path.length; i++) {
+                Entry e = schema.entries.get(c.path[i]);
+                if (i > 0) sb.append('.');
+                sb.append(e.key);
+                schema = e.nested;
+            }
+            keys.add(sb.toString());
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Write the compact binary form of this delta
+     * @param out   Where to write it
+     * @throws IOException  If writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(kind.id);
+        out.writeInt(kind.fingerprint);
+        out.writeLong(timestamp);
+        out.writeBoolean(valid);
+        StateCodec.writeVarint(out, changes.size());
+        for (Change c : changes) {
+            StateCodec.writeVarint(out, c.path.length);
+            Schema schema = kind.schema;
+            Entry e = null;
+            for (int index : c.path) {
+                StateCodec.writeVarint(out, index);
+                if (e != null) schema = e.nested;
+                e = schema.entries.get(index);
+            }
+            writeValue(out, e, c.primitive, c.object);
+        }
+    }
+
+    /**
+     * Read a delta written by writeTo()
+     * @param in    Where to read it from
+     * @return      The delta
+     * @throws IOException  If reading fails or the input is invalid
+     */
+    public static StateDelta<?> readFrom(DataInput in) throws IOException {
+        Kind<?> kind = StateReader.kindOf(in.readUnsignedByte());
+        if (kind == null) throw new IOException("Unknown state kind");
+        return readFrom(in, kind);
+    }
+
+    @Override public String toString() {
+        return kind.type.getSimpleName() + " changes: " + changedKeys();
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Computing deltas
+ *
+ *----------------------------------------------------------------------------*/
+
+    // A changed field, identified by the schema indexes leading to it
+    private static final class Change {
+        final int[]     path;
+        final long      primitive;
+        final Object    object;     // A String, StateValues, or null
+
+        Change(int[] path, long primitive, Object object) {
+            this.path = path;
+            this.primitive = primitive;
+            this.object = object;
+        }
+    }
+
+    private StateDelta(Kind<T> kind, long timestamp, boolean valid, List<Change> changes) {
+        this.kind = kind;
+        this.timestamp = timestamp;
+        this.valid = valid;
+        this.changes = changes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends BaseState> Kind<T> kindOf(T state) {
+        Kind<?> kind = StateReader.kindOf(state.getClass());
+        if (kind == null) {
+            throw new IllegalArgumentException("Unsupported state: " + state.getClass());
+        }
+        return (Kind<T>)kind;
+    }
+
+    private static StateValues capture(Kind<?> kind, BaseState state) {
+        return StateValues.capture(kind.schema, state.source(), state.timestamp, state.valid);
+    }
+
+    private static int[] extend(int[] path, int index) {
+        int[] p = new int[path.length + 1];
+        System.arraycopy(path, 0, p, 0, path.length);
+        p[path.length] = index;
+        return p;
+    }
+
+    private static void collect(StateValues older, StateValues newer, int[] path,
+                                List<Change> changes) {
+        for (Entry e : newer.schema.entries) {
+            if (older.same(e, newer)) continue;
+            Object o = older.objects[e.index], n = newer.objects[e.index];
+            if (o instanceof StateValues && n instanceof StateValues) {
+                collect((StateValues)o, (StateValues)n, extend(path, e.index), changes);
+            } else {
+                changes.add(new Change(extend(path, e.index), newer.primitives[e.index], n));
+            }
+        }
+    }
+
+    private static void collectAll(StateValues newer, int[] path, List<Change> changes) {
+        for (Entry e : newer.schema.entries) {
+            changes.add(new Change(
+                    extend(path, e.index), newer.primitives[e.index], newer.objects[e.index]));
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - The binary form
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static <T extends BaseState> StateDelta<T> readFrom(DataInput in, Kind<T> kind)
+            throws IOException {
+        if (in.readInt() != kind.fingerprint) {
+            throw new IOException("Incompatible encoding of " + kind.type.getSimpleName());
+        }
+        long timestamp = in.readLong();
+        boolean valid = in.readBoolean();
+        int n = (int)StateCodec.readVarint(in);
+        List<Change> changes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int[] path = new int[(int)StateCodec.readVarint(in)];
+            if (path.length == 0) throw new IOException("Empty path");
+            Schema schema = kind.schema;
+            Entry e = null;
+            for (int j = 0; j < path.length; j++) {
+                if (e != null) schema = e.nested;
+                path[j] = (int)StateCodec.readVarint(in);
+                if (schema == null || path[j] >= schema.entries.size()) {
+                    throw new IOException("Bad field index: " + path[j]);
+                }
+                e = schema.entries.get(path[j]);
+            }
+            StateValues holder = new StateValues(schema, timestamp, true);
+            readValue(in, e, holder);
+            changes.add(new Change(path, holder.primitives[e.index], holder.objects[e.index]));
+        }
+        return new StateDelta<>(kind, timestamp, valid, changes);
+    }
+
+    private static void writeValue(DataOutput out, Entry e, long primitive, Object object)
+            throws IOException {
+        switch (e.type) {
+            case Flag: out.writeBoolean(primitive != 0); break;
+            case Int: out.writeInt((int)primitive); break;
+            case Long:
+            case Real: out.writeLong(primitive); break;
+            case Text: out.writeUTF((String)object); break;
+            case Nested:
+                out.writeBoolean(object != null);
+                if (object != null) {
+                    StateValues nested = (StateValues)object;
+                    for (Entry ne : nested.schema.entries) {
+                        writeValue(out, ne, nested.primitives[ne.index], nested.objects[ne.index]);
+                    }
+                }
+                break;
+        }
+    }
+
+    private static void readValue(DataInput in, Entry e, StateValues into) throws IOException {
+        switch (e.type) {
+            case Flag: into.primitives[e.index] = in.readBoolean() ? 1 : 0; break;
+            case Int: into.primitives[e.index] = in.readInt(); break;
+            case Long:
+            case Real: into.primitives[e.index] = in.readLong(); break;
+            case Text: into.objects[e.index] = in.readUTF(); break;
+            case Nested:
+                if (in.readBoolean()) {
+                    StateValues nested = new StateValues(e.nested, into.timestamp, true);
+                    for (Entry ne : e.nested.entries) { readValue(in, ne, nested); }
+                    into.objects[e.index] = nested;
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * StateReader.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import us.monoid.json.JSONObject;
+
+/**
+ * StateReader: Decodes the body of a state response directly into a state
+ * object using a streaming JSON parser, without building a JSONObject for
+ * the response. Only the keys that the state class actually reads are kept;
+ * everything else, including arrays and unneeded nested objects, is skipped
+ * as it is parsed.
+ * <P>
+ * The keys a state class reads are discovered once, by constructing an
+ * instance from a StateSource that records what is asked of it. This keeps
+ * the constructor of each state class the single description of its fields.
+ * StateCodec uses the same description for its binary encoding.
+ * <P>
+ * State objects built this way have an empty rawState.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+final class StateReader {
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    /**
+     * A kind of state object: how to build one and which keys it reads
+     */
+    static final class Kind<T extends BaseState> {
+        final int       id;
+        final Class<T>  type;
+        final Schema    schema;
+        final int       fingerprint;
+        private final Function<StateSource,T> factory;
+
+        Kind(int id, Class<T> type, Function<StateSource,T> factory) {
+            this.id = id;
+            this.type = type;
+            this.factory = factory;
+            this.schema = new Schema();
+            factory.apply(new Recorder(schema));
+            this.fingerprint = schema.fingerprint();
+        }
+
+        T build(StateSource source) { return factory.apply(source); }
+
+        T fromJSON(JSONObject source) { return build(StateSource.of(source)); }
+
+        T invalid() { return fromJSON(BaseState.emptyJSONObj); }
+    }
+
+    static final Kind<ChargeState>   Charge = new Kind<>(1, ChargeState.class, ChargeState::new);
+    static final Kind<DriveState>    Drive = new Kind<>(2, DriveState.class, DriveState::new);
+    static final Kind<GUIState>      GUI = new Kind<>(3, GUIState.class, GUIState::new);
+    static final Kind<HVACState>     HVAC = new Kind<>(4, HVACState.class, HVACState::new);
+    static final Kind<VehicleState>  Vehicle = new Kind<>(5, VehicleState.class, VehicleState::new);
+    static final Kind<VehicleConfig> Config = new Kind<>(6, VehicleConfig.class, VehicleConfig::new);
+
+    private static final Kind<?>[] Kinds = { Charge, Drive, GUI, HVAC, Vehicle, Config };
+
+    // The response to vehicle_data: every section above, nested. It isn't
+    // one of the Kinds, so StateCodec doesn't encode it.
+    static final Kind<VehicleSnapshot> Snapshot =
+            new Kind<>(0, VehicleSnapshot.class, VehicleSnapshot::new);
+
+    /**
+     * How a state class reads a key: the opt method it uses and, for
+     * optInt, the default it supplies
+     */
+    enum ValueType { Flag, Int, Long, Real, Text, Nested };
+
+    /**
+     * The keys read by a state class, in the order in which its constructor
+     * reads them
+     */
+    static final class Schema {
+        final Map<String,Entry> keys = new HashMap<>();
+        final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Returns a fingerprint of the keys and how they're read. It changes
+         * whenever a state class reads its fields differently.
+         * @return  The fingerprint
+         */
+        int fingerprint() {
+            int h = 17;
+            for (Entry e : entries) {
+                h = 31 * h + e.key.hashCode();
+                h = 31 * h + e.type.ordinal();
+                h = 31 * h + e.defaultValue;
+                if (e.nested != null) h = 31 * h + e.nested.fingerprint();
+            }
+            return h;
+        }
+
+        private Entry add(String key, ValueType type, int defaultValue) {
+            Entry e = keys.get(key);
+            if (e == null) {
+                e = new Entry(entries.size(), key, type, defaultValue);
+                keys.put(key, e);
+                entries.add(e);
+            } else if (e.type != type || e.defaultValue != defaultValue) {
+                throw new IllegalStateException("Key read inconsistently: " + key);
+            }
+            return e;
+        }
+    }
+
+    static final class Entry {
+        final int       index;
+        final String    key;
+        final ValueType type;
+        final int       defaultValue;
+        final Schema    nested;
+
+        Entry(int index, String key, ValueType type, int defaultValue) {
+            this.index = index;
+            this.key = key;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.nested = (type == ValueType.Nested) ? new Schema() : null;
+        }
+    }
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Decode a response of the form {"response": {...}} into a state object.
+     * If the response is null (e.g. the vehicle is asleep) the state object
+     * is invalid. The rest of the body is consumed so that the underlying
+     * connection can be reused.
+     * @param body  The body of the response
+     * @param kind  The kind of state object to build
+     * @return      The state object
+     * @throws IOException  If the body can't be read or isn't a JSON object
+     */
+    static <T extends BaseState> T read(InputStream body, Kind<T> kind) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Decoded response = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("response") &&
+                        reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    response = readObject(reader, kind.schema);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Unexpected response: " + e.getMessage(), e);
+        }
+        byte[] rest = new byte[512];
+        while (body.read(rest) != -1) { }
+        return (response == null) ? kind.invalid() : kind.build(response);
+    }
+
+    /**
+     * Returns the Kind of a state class
+     * @param stateClass    The class
+     * @return  The Kind, or null if the class doesn't have one
+     */
+    static Kind<?> kindOf(Class<?> stateClass) {
+        for (Kind<?> k : Kinds) { if (k.type == stateClass) return k; }
+        return null;
+    }
+
+    /**
+     * Returns the Kind with a given id
+     * @param id    The id
+     * @return  The Kind, or null if there is none with that id
+     */
+    static Kind<?> kindOf(int id) {
+        return (id >= 1 && id <= Kinds.length) ? Kinds[id - 1] : null;
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Decoding
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static Decoded readObject(JsonReader reader, Schema schema) throws IOException {
+        Decoded d = new Decoded(schema.keys.size());
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            Entry e = schema.keys.get(name);
+            if (e == null) { reader.skipValue(); continue; }
+            Schema nested = e.nested;
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    if (nested != null) d.values.put(name, readObject(reader, nested));
+                    else reader.skipValue();
+                    break;
+                case STRING:
+                    d.values.put(name, reader.nextString());
+                    break;
+                case NUMBER:
+                    d.values.put(name, number(reader.nextString()));
+                    break;
+                case BOOLEAN:
+                    d.values.put(name, reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    d.values.put(name, JSONObject.NULL);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return d;
+    }
+
+    // Numbers are represented as JSONObject would represent them so that
+    // they convert to Strings the same way.
+    private static Number number(String s) {
+        if (s.indexOf('.') >= 0 || s.indexOf('e') >= 0 || s.indexOf('E') >= 0) {
+            return Double.valueOf(s);
+        }
+        long l = Long.parseLong(s);
+        return (l == (int)l) ? (Number)Integer.valueOf((int)l) : (Number)Long.valueOf(l);
+    }
+
+    /**
+     * The values decoded from a JSON object. Conversions between types
+     * follow those of JSONObject.
+     */
+    private static final class Decoded implements StateSource {
+        final Map<String,Object> values;
+
+        Decoded(int expected) { this.values = new HashMap<>(expected * 2); }
+
+        @Override public boolean optBoolean(String key) {
+            Object o = values.get(key);
+            return Boolean.TRUE.equals(o) || (o instanceof String && "true".equalsIgnoreCase((String)o));
+        }
+
+        @Override public int optInt(String key) { return optInt(key, 0); }
+
+        @Override public int optInt(String key, int defaultValue) {
+            Object o = values.get(key);
+            if (o instanceof Number) return ((Number)o).intValue();
+            double d = parse(o);
+            return Double.isNaN(d) ? defaultValue : (int)d;
+        }
+
+        @Override public long optLong(String key) {
+            Object o = values.get(key);
+            if (o instanceof Number) return ((Number)o).longValue();
+            double d = parse(o);
+            return Double.isNaN(d) ? 0 : (long)d;
+        }
+
+        @Override public double optDouble(String key) {
+            Object o = values.get(key);
+            return (o instanceof Number) ? ((Number)o).doubleValue() : parse(o);
+        }
+
+        @Override public String optString(String key) {
+            Object o = values.get(key);
+            return (o == null) ? "" : o.toString();
+        }
+
+        @Override public StateSource optObject(String key) {
+            Object o = values.get(key);
+            return (o instanceof StateSource) ? (StateSource)o : null;
+        }
+
+        @Override public JSONObject raw() { return BaseState.emptyJSONObj; }
+
+        @Override public boolean isEmpty() { return values.isEmpty(); }
+
+        @Override public String toString() { return values.toString(); }
+
+        private static double parse(Object o) {
+            if (!(o instanceof String)) return Double.NaN;
+            try {
+                return Double.parseDouble((String)o);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * A StateSource with no values that records the keys asked of it
+     */
+    private static final class Recorder implements StateSource {
+        private final Schema schema;
+
+        Recorder(Schema schema) { this.schema = schema; }
+
+        @Override public boolean optBoolean(String key) {
+            schema.add(key, ValueType.Flag, 0);
+            return false;
+        }
+        @Override public int optInt(String key) { return optInt(key, 0); }
+        @Override public int optInt(String key, int d) {
+            schema.add(key, ValueType.Int, d);
+            return d;
+        }
+        @Override public long optLong(String key) {
+            schema.add(key, ValueType.Long, 0);
+            return 0;
+        }
+        @Override public double optDouble(String key) {
+            schema.add(key, ValueType.Real, 0);
+            return Double.NaN;
+        }
+        @Override public String optString(String key) {
+            schema.add(key, ValueType.Text, 0);
+            return "";
+        }
+        @Override public StateSource optObject(String key) {
+            return new Recorder(schema.add(key, ValueType.Nested, 0).nested);
+        }
+        @Override public JSONObject raw() { return BaseState.emptyJSONObj; }
+        @Override public boolean isEmpty() { return true; }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * StateSource.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * StateSource: Where a state object gets its field values. The state
+ * classes read their fields through this interface so that they can be
+ * built either from a JSONObject or from values decoded directly from a
+ * response by a StateReader. The opt methods behave like those of
+ * JSONObject: a missing or unconvertible value yields the default.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+interface StateSource {
+
+    boolean optBoolean(String key);
+    int optInt(String key);
+    int optInt(String key, int defaultValue);
+    long optLong(String key);
+    double optDouble(String key);
+    String optString(String key);
+
+    /**
+     * Returns a nested object
+     * @param key   The name of the nested object
+     * @return      The nested object, or null if there is none
+     */
+    StateSource optObject(String key);
+
+    /**
+     * Returns the JSON underlying this source
+     * @return  The JSONObject, or an empty one if the values were decoded
+     *          without building one
+     */
+    JSONObject raw();
+
+    /**
+     * Returns whether the source has any values at all, which determines
+     * the validity of the state object built from it.
+     * @return  true if the source holds no values
+     */
+    boolean isEmpty();
+    
+    /**
+     * Returns when the values were obtained
+     * @return  The time in milliseconds since the epoch
+     */
+    default long timestamp() { return System.currentTimeMillis(); }
+
+    static StateSource of(JSONObject source) { return new JSON(source); }
+
+    /**
+     * A StateSource that reads values from a JSONObject
+     */
+    static final class JSON implements StateSource {
+        private final JSONObject source;
+
+        JSON(JSONObject source) { this.source = source; }
+
+        @Override public boolean optBoolean(String key) { return source.optBoolean(key); }
+        @Override public int optInt(String key) { return source.optInt(key); }
+        @Override public int optInt(String key, int d) { return source.optInt(key, d); }
+        @Override public long optLong(String key) { return source.optLong(key); }
+        @Override public double optDouble(String key) { return source.optDouble(key); }
+        @Override public String optString(String key) { return source.optString(key); }
+        @Override public StateSource optObject(String key) {
+            JSONObject o = source.optJSONObject(key);
+            return (o == null) ? null : new JSON(o);
+        }
+        @Override public JSONObject raw() { return source; }
+        @Override public boolean isEmpty() { return source.length() == 0; }
+        @Override public String toString() { return source.toString(); }
+    }
+}
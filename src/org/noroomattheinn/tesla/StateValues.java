@@ -0,0 +1,152 @@
+/*
+ * StateValues.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.util.Objects;
+import org.noroomattheinn.tesla.StateReader.Entry;
+import org.noroomattheinn.tesla.StateReader.Schema;
+import us.monoid.json.JSONObject;
+
+/**
+ * StateValues: The values a state class reads, held in arrays indexed like
+ * the entries of its Schema. Each opt method returns exactly what the
+ * constructor got when the values were captured, so a state object built
+ * from a StateValues is equal, field for field, to the one it was captured
+ * from. Primitives are held as longs (doubles as their bits); Strings and
+ * nested StateValues as objects.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+final class StateValues implements StateSource {
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    final Schema    schema;
+    final long[]    primitives;
+    final Object[]  objects;
+    final long      timestamp;
+    final boolean   valid;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    StateValues(Schema schema, long timestamp, boolean valid) {
+        this.schema = schema;
+        this.primitives = new long[schema.entries.size()];
+        this.objects = new Object[schema.entries.size()];
+        this.timestamp = timestamp;
+        this.valid = valid;
+    }
+
+    /**
+     * Read the values described by a schema from a source
+     * @param schema    What to read
+     * @param source    Where to read it from
+     * @param timestamp When the values were obtained
+     * @param valid     Whether the values are real data
+     * @return  The values
+     */
+    static StateValues capture(Schema schema, StateSource source, long timestamp, boolean valid) {
+        StateValues v = new StateValues(schema, timestamp, valid);
+        for (Entry e : schema.entries) {
+            switch (e.type) {
+                case Flag: v.primitives[e.index] = source.optBoolean(e.key) ? 1 : 0; break;
+                case Int: v.primitives[e.index] = source.optInt(e.key, e.defaultValue); break;
+                case Long: v.primitives[e.index] = source.optLong(e.key); break;
+                case Real: v.setReal(e, source.optDouble(e.key)); break;
+                case Text:
+                    String s = source.optString(e.key);
+                    v.objects[e.index] = (s == null) ? "" : s;
+                    break;
+                case Nested:
+                    StateSource nested = source.optObject(e.key);
+                    v.objects[e.index] = (nested == null) ? null :
+                            capture(e.nested, nested, timestamp, true);
+                    break;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Returns a deep copy with a different timestamp and validity
+     */
+    StateValues copy(long timestamp, boolean valid) {
+        StateValues v = new StateValues(schema, timestamp, valid);
+        System.arraycopy(primitives, 0, v.primitives, 0, primitives.length);
+        for (int i = 0; i < objects.length; i++) {
+            Object o = objects[i];
+            v.objects[i] = (o instanceof StateValues) ? ((StateValues)o).copy(timestamp, true) : o;
+        }
+        return v;
+    }
+
+    /**
+     * Store a double. NaNs are stored as the canonical NaN so that equal
+     * values have equal bits.
+     */
+    void setReal(Entry e, double d) { primitives[e.index] = Double.doubleToLongBits(d); }
+
+    /**
+     * Returns whether an entry holds the same value here and in another
+     * StateValues for the same schema. Nested values are compared deeply.
+     */
+    boolean same(Entry e, StateValues other) {
+        return primitives[e.index] == other.primitives[e.index] &&
+               Objects.equals(objects[e.index], other.objects[e.index]);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (!(o instanceof StateValues)) return false;
+        StateValues other = (StateValues)o;
+        if (other.schema != schema) return false;
+        for (Entry e : schema.entries) { if (!same(e, other)) return false; }
+        return true;
+    }
+
+    @Override public int hashCode() {
+        int h = 17;
+        for (int i = 0; i < primitives.length; i++) {
+            h = 31 * h + Long.hashCode(primitives[i]);
+            h = 31 * h + Objects.hashCode(objects[i]);
+        }
+        return h;
+    }
+
+    @Override public boolean optBoolean(String key) { return primitives[entry(key).index] != 0; }
+    @Override public int optInt(String key) { return (int)primitives[entry(key).index]; }
+    @Override public int optInt(String key, int d) { return (int)primitives[entry(key).index]; }
+    @Override public long optLong(String key) { return primitives[entry(key).index]; }
+    @Override public double optDouble(String key) {
+        return Double.longBitsToDouble(primitives[entry(key).index]);
+    }
+    @Override public String optString(String key) { return (String)objects[entry(key).index]; }
+    @Override public StateSource optObject(String key) {
+        return (StateSource)objects[entry(key).index];
+    }
+    @Override public JSONObject raw() { return BaseState.emptyJSONObj; }
+    @Override public boolean isEmpty() { return !valid; }
+    @Override public long timestamp() { return timestamp; }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private Entry entry(String key) {
+        Entry e = schema.keys.get(key);
+        if (e == null) throw new IllegalStateException("Key not in schema: " + key);
+        return e;
+    }
+}
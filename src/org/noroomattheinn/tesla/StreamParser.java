@@ -0,0 +1,270 @@
+/*
+ * StreamParser.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * StreamParser: Decodes the records produced by the streaming API directly
+ * from bytes into the primitive fields of a StreamState. Each record is a
+ * line of comma separated values in the order of Streamer.Keys. Numbers are
+ * parsed in place and the common shift states are shared constants, so
+ * filling a reused StreamState allocates nothing once the parser is set up.
+ * <P>
+ * Field values are interpreted as they were when records went through a
+ * JSONObject: an empty floating point field is NaN (except speed, which is
+ * 0) and an empty integer field is 0.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class StreamParser {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static final int BufferSize = 8 * 1024;
+    // A double is exact for integers up to 2^53 and powers of ten up to
+    // 10^22, so a mantissa of at most 15 significant digits over such a power
+    // is one correctly rounded division. A long holds 18 digits.
+    private static final int MaxFastDigits = 15;
+    private static final int MaxFastPower = 22;
+    private static final int MaxLongDigits = 18;
+    private static final int NFields = Streamer.Keys.values().length;
+
+    private static final double[] PowersOf10 = new double[MaxFastPower + 1];
+    private static final String[] ShiftStates = new String[128];
+    static {
+        double p = 1.0;
+        for (int i = 0; i <= MaxFastPower; i++) { PowersOf10[i] = p; p *= 10; }
+        for (String s : new String[] {"P", "R", "N", "D"}) { ShiftStates[s.charAt(0)] = s; }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final InputStream in;
+    private final byte[] buf;
+    private int pos, limit;
+    private int recordStart, recordEnd;     // The record found by nextRecord()
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a parser that reads records from a stream
+     * @param in    The body of a streaming response
+     */
+    public StreamParser(InputStream in) {
+        this.in = in;
+        this.buf = new byte[BufferSize];
+        this.pos = this.limit = 0;
+    }
+
+    /**
+     * Read the next record into the supplied StreamState. Blank lines are
+     * skipped.
+     * @param into  The StreamState to be overwritten with the record
+     * @return      true if a record was read
+     *              false at the end of the stream
+     * @throws IOException  If reading fails or a record is too long
+     */
+    public boolean next(StreamState into) throws IOException {
+        if (!nextRecord()) return false;
+        parse(buf, recordStart, recordEnd, into);
+        return true;
+    }
+
+    /**
+     * Read the next record as text rather than decoding it. Blank lines are
+     * skipped.
+     * @return  The record without its line terminator, or null at the end
+     *          of the stream
+     * @throws IOException  If reading fails or a record is too long
+     */
+    public String nextLine() throws IOException {
+        if (!nextRecord()) return null;
+        return new String(buf, recordStart, recordEnd - recordStart, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Decode one record (without its line terminator) into a StreamState
+     * @param b     The buffer holding the record
+     * @param start The index of the first byte of the record
+     * @param end   The index just beyond the record
+     * @param into  The StreamState to be overwritten
+     */
+    public static void parse(byte[] b, int start, int end, StreamState into) {
+        int i = start;
+        for (int field = 0; field < NFields; field++) {
+            int fs = i;
+            while (i < end && b[i] != ',') i++;
+            setField(into, field, b, fs, i);
+            if (i < end) i++;
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Decoding fields
+ *
+ *----------------------------------------------------------------------------*/
+
+    // Field numbers are the ordinals of Streamer.Keys
+    private static void setField(StreamState s, int field, byte[] b, int start, int end) {
+        switch (field) {
+            case 0: s.vehicleTimestamp = parseLong(b, start, end); break;
+            case 1: s.odometer = parseDouble(b, start, end); break;
+            case 2:
+                s.speed = parseDouble(b, start, end);
+                if (Double.isNaN(s.speed)) s.speed = 0.0;
+                break;
+            case 3: s.soc = parseInt(b, start, end); break;
+            case 4: s.elevation = parseInt(b, start, end); break;
+            case 5: s.estHeading = parseInt(b, start, end); break;
+            case 6: s.estLat = parseDouble(b, start, end); break;
+            case 7: s.estLng = parseDouble(b, start, end); break;
+            case 8: s.power = parseInt(b, start, end); break;
+            case 9: s.setShiftState(parseShiftState(b, start, end)); break;
+            case 10: s.range = parseInt(b, start, end); break;
+            case 11: s.estRange = parseInt(b, start, end); break;
+            case 12: s.heading = parseInt(b, start, end); break;
+            default: break;
+        }
+    }
+
+    /**
+     * Parse a decimal number of the form [-]digits[.digits]. With at most
+     * MaxFastDigits significant digits and MaxFastPower fraction digits, the
+     * mantissa and the power of ten are both exact doubles, so the one
+     * division yields the correctly rounded result, the same value
+     * Double.parseDouble would produce. Anything else takes the slow path.
+     */
+    static double parseDouble(byte[] b, int start, int end) {
+        if (start == end) return Double.NaN;
+        int i = start;
+        boolean negative = false;
+        if (b[i] == '-' || b[i] == '+') { negative = (b[i] == '-'); i++; }
+        long mantissa = 0;
+        int nDigits = 0, nFraction = 0;     // nDigits counts significant digits
+        boolean seenPoint = false, sawDigit = false;
+        for (; i < end; i++) {
+            int c = b[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0 && ++nDigits > MaxFastDigits) return slowParseDouble(b, start, end);
+                if (seenPoint && ++nFraction > MaxFastPower) return slowParseDouble(b, start, end);
+                sawDigit = true;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return slowParseDouble(b, start, end);
+            }
+        }
+        if (!sawDigit) return Double.NaN;
+        double d = mantissa / PowersOf10[nFraction];
+        return negative ? -d : d;
+    }
+
+    static int parseInt(byte[] b, int start, int end) {
+        double d = parseDouble(b, start, end);
+        return Double.isNaN(d) ? 0 : (int)d;
+    }
+
+    static long parseLong(byte[] b, int start, int end) {
+        long value = 0;
+        int i = start;
+        boolean negative = (i < end && b[i] == '-');
+        if (negative) i++;
+        if (i == end) return 0;
+        for (; i < end; i++) {
+            int c = b[i];
+            if (c < '0' || c > '9' || i - start >= MaxLongDigits) {
+                double d = parseDouble(b, start, end);
+                return Double.isNaN(d) ? 0 : (long)d;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static String parseShiftState(byte[] b, int start, int end) {
+        if (start == end) return "";
+        if (end - start == 1 && b[start] >= 0) {
+            String s = ShiftStates[b[start]];
+            if (s != null) return s;
+        }
+        return new String(b, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static double slowParseDouble(byte[] b, int start, int end) {
+        try {
+            return Double.parseDouble(new String(b, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Buffer management
+ *
+ *----------------------------------------------------------------------------*/
+
+    // Find the next non-blank record and set recordStart and recordEnd to
+    // its bounds within buf. Returns false at the end of the stream.
+    private boolean nextRecord() throws IOException {
+        while (true) {
+            int eol = indexOfNewline();
+            if (eol == -1) {
+                if (fill()) continue;
+                if (pos == limit) return false;
+                eol = limit;    // A final record without a newline
+            }
+            int start = pos, end = eol;
+            pos = Math.min(eol + 1, limit);
+            if (end > start && buf[end - 1] == '\r') end--;
+            if (end > start) {
+                recordStart = start;
+                recordEnd = end;
+                return true;
+            }
+        }
+    }
+
+    private int indexOfNewline() {
+        for (int i = pos; i < limit; i++) {
+            if (buf[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    // Read more data, first moving any partial record to the front of the
+    // buffer. Returns false at the end of the stream.
+    private boolean fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) throw new IOException("Streaming record too long");
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n <= 0) return false;
+        limit += n;
+        return true;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * StreamPublisher.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import org.noroomattheinn.utils.Backoff;
+import org.noroomattheinn.utils.Flow;
+import org.noroomattheinn.utils.ThreadManager;
+import org.noroomattheinn.utils.Utils;
+
+/**
+ * StreamPublisher: Pushes a vehicle's streaming data to Subscribers instead
+ * of requiring them to poll Streamer.tryExistingStream(). While there is at
+ * least one Subscriber, a reader thread keeps the stream open, opening a new
+ * one whenever it ends, and hands each record to every Subscriber. When a new
+ * stream can't be opened, the reader waits for exponentially longer, jittered
+ * intervals before trying again.
+ * <P>
+ * Each Subscriber has its own bounded buffer and receives records on a
+ * delivery thread, never the reader thread, as fast as it requests them. What
+ * happens when a Subscriber falls behind and its buffer is full is set by its
+ * OverflowPolicy. Only Block can slow the reader, and only if the Subscriber
+ * chose it.
+ * <P>
+ * The reader is launched through the ThreadManager, if one has been created,
+ * so it uses virtual threads when the ThreadManager does, and the publisher
+ * is closed when the ThreadManager shuts down. Once closed, a StreamPublisher can't be reused; subscribing to
+ * it completes immediately. Streamer.publisher() replaces a closed one.
+ * <P>
+ * Don't read the Streamer directly while it has Subscribers.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class StreamPublisher implements Flow.Publisher<StreamState>, ThreadManager.Stoppable {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public enum OverflowPolicy {
+        DropOldest,     // Discard the oldest buffered record to make room
+        LatestOnly,     // Buffer only the most recent record
+        Block           // Make the reader wait for the Subscriber to catch up
+    };
+
+    public static final int DefaultCapacity = 16;
+
+    private static final long ReconnectDelayInMillis = 5 * 1000;
+    private static final long MaxReconnectDelayInMillis = 5 * 60 * 1000;
+
+    private static final ExecutorService delivery = Executors.newCachedThreadPool(
+        new ThreadFactory() {
+            private final AtomicInteger id = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "StreamPublisher Delivery " + id.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final Streamer streamer;
+    private final CopyOnWriteArrayList<BufferedSubscription> subscriptions;
+    private Thread reader = null;
+    private volatile boolean closed = false;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    StreamPublisher(Streamer streamer) {
+        this.streamer = streamer;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        ThreadManager.registerStoppable(this);
+    }
+
+    /**
+     * Subscribe with the default buffer: DefaultCapacity records, dropping
+     * the oldest when full.
+     * @param subscriber    The Subscriber
+     */
+    @Override public void subscribe(Flow.Subscriber<? super StreamState> subscriber) {
+        subscribe(subscriber, OverflowPolicy.DropOldest, DefaultCapacity);
+    }
+
+    /**
+     * Subscribe with a specific buffering policy
+     * @param subscriber    The Subscriber
+     * @param policy        What to do when the Subscriber's buffer is full
+     * @param capacity      The size of the Subscriber's buffer. Ignored for
+     *                      LatestOnly, which holds one record.
+     */
+    public void subscribe(Flow.Subscriber<? super StreamState> subscriber,
+                          OverflowPolicy policy, int capacity) {
+        BufferedSubscription s = new BufferedSubscription(
+                subscriber, policy, policy == OverflowPolicy.LatestOnly ? 1 : Math.max(1, capacity));
+        subscriber.onSubscribe(s);
+        if (closed) { s.complete(); return; }
+        subscriptions.add(s);
+        startReaderIfNeeded();
+    }
+
+    /**
+     * Stop streaming. Each Subscriber receives its buffered records and then
+     * onComplete. The publisher can't be used again afterward.
+     */
+    public void close() {
+        closed = true;
+        for (BufferedSubscription s : subscriptions) { s.complete(); }
+        subscriptions.clear();
+        streamer.forceClose();
+        ThreadManager.unregisterStoppable(this);
+    }
+
+    public boolean isClosed() { return closed; }
+
+    /**
+     * Close the publisher. Equivalent to close().
+     */
+    @Override public void stop() { close(); }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Reading the stream
+ *
+ *----------------------------------------------------------------------------*/
+
+    private synchronized void startReaderIfNeeded() {
+        if (reader != null || subscriptions.isEmpty()) return;
+        Runnable r = new Runnable() { @Override public void run() { read(); } };
+        ThreadManager tm = ThreadManager.get();
+        if (tm != null) {
+            reader = tm.launch(r, "StreamPublisher Reader");    // null if shutting down
+        } else {
+            reader = new Thread(r, "StreamPublisher Reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void read() {
+        Backoff backoff = new Backoff(ReconnectDelayInMillis, MaxReconnectDelayInMillis);
+        ThreadManager tm = ThreadManager.get();
+        try {
+            while (!closed && !subscriptions.isEmpty() && (tm == null || !tm.shuttingDown())) {
+                // Each record goes to buffers, so it gets a StreamState of its
+                // own, but one decoded directly rather than through JSON
+                StreamState state = streamer.beginStreamIfNeeded(StreamState.newReusable());
+                if (state == null) {
+                    long delay = Math.max(backoff.nextDelay(), streamer.suspendedFor());
+                    if (tm != null) { tm.sleep(delay); } else { Utils.sleep(delay); }
+                    continue;
+                }
+                backoff.reset();
+                for (BufferedSubscription s : subscriptions) { s.offer(state); }
+            }
+        } finally {
+            synchronized (this) { reader = null; }
+            // A Subscriber may have arrived as the reader was leaving
+            if (!closed) startReaderIfNeeded();
+        }
+    }
+
+    private void removed(BufferedSubscription s) {
+        subscriptions.remove(s);
+        // Unblock a reader waiting on the network that nobody is listening to
+        if (subscriptions.isEmpty()) streamer.forceClose();
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - A Subscriber's buffer and the delivery of its records
+ *
+ *----------------------------------------------------------------------------*/
+
+    private class BufferedSubscription implements Flow.Subscription, Runnable {
+        final Flow.Subscriber<? super StreamState> subscriber;
+        final OverflowPolicy policy;
+        final int capacity;
+        final ArrayDeque<StreamState> buffer;
+        final AtomicInteger wip = new AtomicInteger();
+        long demand = 0;
+        boolean cancelled = false;
+        boolean completed = false;
+        Throwable error = null;
+
+        BufferedSubscription(Flow.Subscriber<? super StreamState> subscriber,
+                             OverflowPolicy policy, int capacity) {
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.capacity = capacity;
+            this.buffer = new ArrayDeque<>(capacity);
+        }
+
+        // Called by the reader thread
+        void offer(StreamState state) {
+            synchronized (this) {
+                if (cancelled || completed) return;
+                if (buffer.size() == capacity) {
+                    if (policy == OverflowPolicy.Block) {
+                        while (buffer.size() == capacity && !cancelled && !closed) {
+                            try {
+                                wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                        if (cancelled || closed) return;
+                    } else {
+                        buffer.pollFirst();
+                    }
+                }
+                buffer.addLast(state);
+            }
+            signal();
+        }
+
+        void complete() {
+            synchronized (this) {
+                completed = true;
+                notifyAll();
+            }
+            signal();
+        }
+
+        @Override public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("request(" + n + "): must be positive");
+                } else {
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            signal();
+        }
+
+        @Override public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                notifyAll();
+            }
+            removed(this);
+        }
+
+        private void signal() {
+            if (wip.getAndIncrement() == 0) delivery.execute(this);
+        }
+
+        // Runs on a delivery thread, never concurrently with itself
+        @Override public void run() {
+            do {
+                while (true) {
+                    StreamState next;
+                    synchronized (this) {
+                        if (cancelled) return;
+                        if (error != null) {
+                            cancelled = true;
+                            break;
+                        }
+                        if (demand == 0 || buffer.isEmpty()) break;
+                        next = buffer.pollFirst();
+                        demand--;
+                        notifyAll();    // Room for a blocked reader
+                    }
+                    try {
+                        subscriber.onNext(next);
+                    } catch (Throwable t) {
+                        Tesla.logger.log(Level.WARNING, "Stream subscriber failed, cancelling", t);
+                        cancel();
+                        return;
+                    }
+                }
+                Throwable e;
+                boolean done;
+                synchronized (this) {
+                    e = error;
+                    done = completed && buffer.isEmpty() && !cancelled;
+                    if (done) cancelled = true;
+                }
+                if (e != null) { removed(this); subscriber.onError(e); return; }
+                if (done) { subscriber.onComplete(); return; }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
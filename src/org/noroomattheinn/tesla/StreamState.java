@@ -45,6 +45,32 @@ public class StreamState extends BaseState {
     
     public StreamState() { this(emptyJSONObj); }
     
+    /**
+     * Create a valid StreamState whose fields will be filled in directly,
+     * e.g. by a StreamParser. Such an object has no rawState and may be
+     * reused for successive records. Its timestamp (when it was created)
+     * doesn't change as it is reused; vehicleTimestamp identifies the
+     * record it currently holds.
+     * @return  A StreamState with default field values
+     */
+    public static StreamState newReusable() {
+        StreamState s = new StreamState(emptyJSONObj, true);
+        s.shiftState = "";
+        return s;
+    }
+    
+    private StreamState(JSONObject source, boolean valid) { super(source, valid); }
+    
+    /**
+     * Create a StreamState whose fields will be filled in by a StateCodec
+     * @param timestamp When the state was obtained
+     * @param valid     Whether the state holds real data
+     */
+    StreamState(long timestamp, boolean valid) {
+        super(timestamp, valid);
+        shiftState = "";
+    }
+    
     public StreamState(JSONObject source) {
         super(source);
         vehicleTimestamp = source.optLong(Streamer.Keys.timestamp);
@@ -68,6 +94,8 @@ public class StreamState extends BaseState {
         return shiftState;
     }
     
+    void setShiftState(String shiftState) { this.shiftState = shiftState; }
+    
     public boolean isInMotion() {
         return (speed > 0 || !shiftState().equals("P"));
     }
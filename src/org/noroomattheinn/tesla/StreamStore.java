@@ -0,0 +1,781 @@
+/*
+ * StreamStore.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.noroomattheinn.utils.Flow;
+
+/**
+ * StreamStore: An append-only, columnar store of streamed StreamState
+ * records with one file per vehicle. Records are gathered into blocks of up
+ * to BlockRows rows. Within a block each column (one per Streamer.Keys) is
+ * stored separately: timestamps and integer columns as varint encoded
+ * deltas from the previous row, floating point columns as deltas of scaled
+ * integers when the block's values allow it exactly, and the shift state as
+ * one byte per row. The result is typically a few bytes per record.
+ * <P>
+ * Scans are done over memory mapped views of the file, each covering whole
+ * blocks and at most MaxMappedBytes, so files may grow beyond 2GB. Each block
+ * records the range of its timestamps and the size of each column, so a
+ * time-range scan skips blocks outside the range and columns that weren't
+ * asked for without decoding them. A scan only holds the vehicle's lock
+ * while it finds the blocks to read, so it doesn't hold up appends.
+ * <P>
+ * Records can be appended directly, or the store can be used as a
+ * StreamingEngine.Listener or subscribed to a vehicle's StreamPublisher.
+ * Records are written to the file when a block fills, when the oldest
+ * pending record is FlushIntervalInMillis old (checked on each append and
+ * periodically, so a stream that goes quiet is still written), or on flush()
+ * and close(). Pending records are included in scans.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class StreamStore implements StreamingEngine.Listener {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static final int BlockRows = 4096;
+    public static final long FlushIntervalInMillis = 60 * 1000;
+    public static final long MaxMappedBytes = 1L << 30;
+
+    private static final long FlushCheckInMillis = 5 * 1000;
+
+    private static final String FileSuffix = ".stream";
+    private static final int BlockMagic = 0x54534231;   // "TSB1"
+    private static final Streamer.Keys[] Columns = Streamer.Keys.values();
+    private static final int NColumns = Columns.length;
+    private static final int HeaderBytes = 4 + 4 + 4 + 8 + 8 + 4 * NColumns;
+    private static final int MaxScale = 8;
+    private static final int RawDoubles = 0xFF;
+    private static final double[] PowersOf10 = new double[MaxScale + 1];
+    static {
+        double p = 1.0;
+        for (int i = 0; i <= MaxScale; i++) { PowersOf10[i] = p; p *= 10; }
+    }
+
+    private enum Kind { Long, Double, Text };
+
+    public interface Visitor {
+        /**
+         * Called for each record in a scan, in the order they were appended.
+         * The StreamState is reused for the next record, so it must be
+         * copied if it is to be kept. Columns that weren't requested are
+         * left with their default values.
+         * @param state The record
+         */
+        void visit(StreamState state);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static ScheduledExecutorService flusher = null;
+
+    private final File directory;
+    private final Map<String,VehicleLog> logs;
+    private final ScheduledFuture<?> flushTask;
+    private boolean closed;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Open (or create) a StreamStore
+     * @param directory The directory holding the per-vehicle files
+     * @throws IOException  If the directory can't be created
+     */
+    public StreamStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        this.directory = directory;
+        this.logs = new HashMap<>();
+        this.closed = false;
+        this.flushTask = flusher().scheduleWithFixedDelay(new Runnable() {
+            @Override public void run() { flushStale(); } },
+            FlushCheckInMillis, FlushCheckInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a record
+     * @param vehicleID The vehicle it came from (see Vehicle.getVID())
+     * @param state     The record. It isn't retained so it may be reused.
+     * @throws IOException  If a full block couldn't be written
+     */
+    public void append(String vehicleID, StreamState state) throws IOException {
+        log(vehicleID).append(state);
+    }
+
+    /**
+     * Scan a vehicle's records in a time range
+     * @param vehicleID The vehicle
+     * @param from      The earliest vehicleTimestamp to include
+     * @param to        The latest vehicleTimestamp to include
+     * @param columns   The columns to decode. The timestamp is always decoded.
+     * @param visitor   Called with each record in the range
+     * @return          The number of records visited
+     * @throws IOException  If the file can't be read or is corrupt
+     */
+    public int scan(String vehicleID, long from, long to,
+                    EnumSet<Streamer.Keys> columns, Visitor visitor) throws IOException {
+        return log(vehicleID).scan(from, to, columns, visitor);
+    }
+
+    public int scan(String vehicleID, long from, long to, Visitor visitor) throws IOException {
+        return scan(vehicleID, from, to, EnumSet.allOf(Streamer.Keys.class), visitor);
+    }
+
+    /**
+     * Returns the vehicles that have records in this store
+     * @return  The vehicle IDs
+     */
+    public synchronized List<String> vehicles() {
+        List<String> ids = new ArrayList<>(logs.keySet());
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (!name.endsWith(FileSuffix)) continue;
+                String id = name.substring(0, name.length() - FileSuffix.length());
+                if (!ids.contains(id)) ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Write all pending records to their files
+     * @throws IOException  If writing fails
+     */
+    public void flush() throws IOException {
+        for (VehicleLog l : openLogs()) { l.flush(); }
+    }
+
+    /**
+     * Write all pending records and close the files
+     * @throws IOException  If writing fails
+     */
+    public void close() throws IOException {
+        flushTask.cancel(false);
+        List<VehicleLog> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(logs.values());
+            logs.clear();
+        }
+        IOException failure = null;
+        for (VehicleLog l : open) {
+            try { l.close(); } catch (IOException e) { failure = e; }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Return a Subscriber that stores the records of a vehicle's stream.
+     * Subscribe it to the vehicle's StreamPublisher (see Streamer.publisher()).
+     * @param v The vehicle
+     * @return  A Subscriber that appends each record it receives
+     */
+    public Flow.Subscriber<StreamState> subscriberFor(final Vehicle v) {
+        return new Flow.Subscriber<StreamState>() {
+            private Flow.Subscription subscription;
+            @Override public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(Long.MAX_VALUE);
+            }
+            @Override public void onNext(StreamState state) {
+                try {
+                    append(v.getVID(), state);
+                } catch (IOException e) {
+                    Tesla.logger.log(Level.WARNING, "Can't store streamed data", e);
+                    subscription.cancel();
+                }
+            }
+            @Override public void onError(Throwable t) { }
+            @Override public void onComplete() { }
+        };
+    }
+
+    @Override public void streamStateAvailable(Vehicle v, StreamState state) {
+        try {
+            append(v.getVID(), state);
+        } catch (IOException e) {
+            Tesla.logger.log(Level.WARNING, "Can't store streamed data", e);
+        }
+    }
+
+    @Override public void streamEnded(Vehicle v, String reason) { }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Per-vehicle files
+ *
+ *----------------------------------------------------------------------------*/
+
+    private synchronized VehicleLog log(String vehicleID) throws IOException {
+        if (closed) throw new IOException("StreamStore is closed");
+        VehicleLog l = logs.get(vehicleID);
+        if (l == null) {
+            if (vehicleID.isEmpty() || !vehicleID.matches("[A-Za-z0-9_.-]+")) {
+                throw new IOException("Illegal vehicle ID: " + vehicleID);
+            }
+            l = new VehicleLog(new File(directory, vehicleID + FileSuffix));
+            logs.put(vehicleID, l);
+        }
+        return l;
+    }
+
+    private synchronized List<VehicleLog> openLogs() {
+        return new ArrayList<>(logs.values());
+    }
+
+    // Write the pending records of any vehicle whose stream has gone quiet
+    private void flushStale() {
+        for (VehicleLog l : openLogs()) {
+            try {
+                l.flushIfStale();
+            } catch (IOException e) {
+                Tesla.logger.log(Level.WARNING, "Can't write streamed data", e);
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    @Override public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "StreamStore Flusher");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            stpe.setRemoveOnCancelPolicy(true);
+            flusher = stpe;
+        }
+        return flusher;
+    }
+
+    private static class BlockInfo {
+        final long offset;
+        final int  length;
+        final long minTimestamp, maxTimestamp;
+        BlockInfo(long offset, int length, long minTimestamp, long maxTimestamp) {
+            this.offset = offset;
+            this.length = length;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+        }
+    }
+
+    // A mapped view of a run of whole blocks
+    private static class Chunk {
+        final long          start;
+        final BlockInfo[]   blocks;
+        final MappedByteBuffer mapped;
+        Chunk(long start, BlockInfo[] blocks, MappedByteBuffer mapped) {
+            this.start = start;
+            this.blocks = blocks;
+            this.mapped = mapped;
+        }
+    }
+
+    private static class VehicleLog {
+        final FileChannel       channel;
+        final List<BlockInfo>   index = new ArrayList<>();
+        final BlockBuilder      pending = new BlockBuilder();
+        final List<Chunk>       chunks = new ArrayList<>();
+        int                     blocksMapped = 0;
+        long                    size;
+
+        /**
+         * Open the file and index its blocks. A partially written block at
+         * the end (e.g. after a crash) is discarded.
+         */
+        VehicleLog(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HeaderBytes);
+            while (offset + HeaderBytes <= fileSize) {
+                header.clear();
+                channel.read(header, offset);
+                header.flip();
+                int length = header.getInt(4);
+                if (header.getInt(0) != BlockMagic || length < HeaderBytes ||
+                    offset + length > fileSize) break;
+                index.add(new BlockInfo(offset, length, header.getLong(12), header.getLong(20)));
+                offset += length;
+            }
+            if (offset != fileSize) {
+                Tesla.logger.warning("Discarding " + (fileSize - offset) +
+                        " bytes of incomplete data from " + file);
+                channel.truncate(offset);
+            }
+            size = offset;
+        }
+
+        synchronized void append(StreamState state) throws IOException {
+            // A full block means the last flush failed. Retry it; if it
+            // fails again the IOException drops this record, not the block.
+            if (pending.rows == BlockRows) flush();
+            pending.add(state);
+            if (pending.rows == BlockRows) { flush(); } else { flushIfStale(); }
+        }
+
+        synchronized void flushIfStale() throws IOException {
+            if (pending.rows > 0 &&
+                System.currentTimeMillis() - pending.startedAt > FlushIntervalInMillis) {
+                flush();
+            }
+        }
+
+        synchronized void flush() throws IOException {
+            if (pending.rows == 0) return;
+            ByteBuffer block = pending.encode();
+            int length = block.remaining();
+            long offset = size;
+            while (block.hasRemaining()) { channel.write(block, offset + block.position()); }
+            index.add(new BlockInfo(offset, length, pending.minTimestamp, pending.maxTimestamp));
+            size += length;
+            pending.clear();
+        }
+
+        synchronized void close() throws IOException {
+            try { flush(); } finally { channel.close(); }
+        }
+
+        int scan(long from, long to, EnumSet<Streamer.Keys> columns,
+                 Visitor visitor) throws IOException {
+            List<Chunk> mapped;
+            ByteBuffer unwritten = null;
+            synchronized (this) {
+                mapped = mapNewBlocks();
+                if (pending.rows > 0 && pending.maxTimestamp >= from && pending.minTimestamp <= to) {
+                    unwritten = pending.encode();
+                }
+            }
+
+            // The mapped blocks are never rewritten, so they can be decoded
+            // while more records are appended
+            StreamState into = StreamState.newReusable();
+            int visited = 0;
+            for (Chunk chunk : mapped) {
+                for (BlockInfo b : chunk.blocks) {
+                    if (b.maxTimestamp < from || b.minTimestamp > to) continue;
+                    int offset = (int)(b.offset - chunk.start);
+                    ByteBuffer block = chunk.mapped.duplicate();
+                    block.limit(offset + b.length).position(offset);
+                    visited += scanBlock(block.slice(), from, to, columns, visitor, into);
+                }
+            }
+            if (unwritten != null) {
+                visited += scanBlock(unwritten, from, to, columns, visitor, into);
+            }
+            return visited;
+        }
+
+        /**
+         * Map the blocks written since the last scan and return all of the
+         * chunks. A chunk that isn't full is remapped to take in new blocks
+         * rather than starting another. Called with the lock held.
+         */
+        private List<Chunk> mapNewBlocks() throws IOException {
+            if (blocksMapped < index.size()) {
+                int first = blocksMapped;
+                if (!chunks.isEmpty()) {
+                    Chunk last = chunks.get(chunks.size() - 1);
+                    BlockInfo next = index.get(blocksMapped);
+                    if (next.offset + next.length - last.start <= MaxMappedBytes) {
+                        chunks.remove(chunks.size() - 1);
+                        first -= last.blocks.length;
+                    }
+                }
+                while (first < index.size()) {
+                    long start = index.get(first).offset;
+                    int end = first + 1;
+                    while (end < index.size() &&
+                           index.get(end).offset + index.get(end).length - start <= MaxMappedBytes) {
+                        end++;
+                    }
+                    BlockInfo lastBlock = index.get(end - 1);
+                    long length = lastBlock.offset + lastBlock.length - start;
+                    BlockInfo[] blocks = index.subList(first, end).toArray(new BlockInfo[0]);
+                    chunks.add(new Chunk(start, blocks,
+                            channel.map(FileChannel.MapMode.READ_ONLY, start, length)));
+                    first = end;
+                }
+                blocksMapped = index.size();
+            }
+            return new ArrayList<>(chunks);
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Encoding blocks
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static Kind kindOf(Streamer.Keys k) {
+        switch (k) {
+            case odometer: case speed: case est_lat: case est_lng:
+                return Kind.Double;
+            case shift_state:
+                return Kind.Text;
+            default:
+                return Kind.Long;
+        }
+    }
+
+    // The rows of a block that hasn't been written yet
+    private static class BlockBuilder {
+        final long[][]   longs = new long[NColumns][];
+        final double[][] doubles = new double[NColumns][];
+        final String[]   text = new String[BlockRows];
+        int  rows = 0;
+        long minTimestamp, maxTimestamp, startedAt;
+
+        BlockBuilder() {
+            for (Streamer.Keys k : Columns) {
+                if (kindOf(k) == Kind.Long) longs[k.ordinal()] = new long[BlockRows];
+                else if (kindOf(k) == Kind.Double) doubles[k.ordinal()] = new double[BlockRows];
+            }
+        }
+
+        void add(StreamState s) {
+            int r = rows++;
+            if (r == 0) {
+                startedAt = System.currentTimeMillis();
+                minTimestamp = maxTimestamp = s.vehicleTimestamp;
+            }
+            minTimestamp = Math.min(minTimestamp, s.vehicleTimestamp);
+            maxTimestamp = Math.max(maxTimestamp, s.vehicleTimestamp);
+            longs[Streamer.Keys.timestamp.ordinal()][r] = s.vehicleTimestamp;
+            doubles[Streamer.Keys.odometer.ordinal()][r] = s.odometer;
+            doubles[Streamer.Keys.speed.ordinal()][r] = s.speed;
+            longs[Streamer.Keys.soc.ordinal()][r] = s.soc;
+            longs[Streamer.Keys.elevation.ordinal()][r] = s.elevation;
+            longs[Streamer.Keys.est_heading.ordinal()][r] = s.estHeading;
+            doubles[Streamer.Keys.est_lat.ordinal()][r] = s.estLat;
+            doubles[Streamer.Keys.est_lng.ordinal()][r] = s.estLng;
+            longs[Streamer.Keys.power.ordinal()][r] = s.power;
+            text[r] = s.shiftState();
+            longs[Streamer.Keys.range.ordinal()][r] = s.range;
+            longs[Streamer.Keys.est_range.ordinal()][r] = s.estRange;
+            longs[Streamer.Keys.heading.ordinal()][r] = s.heading;
+        }
+
+        void clear() { rows = 0; }
+
+        ByteBuffer encode() {
+            byte[][] encoded = new byte[NColumns][];
+            int length = HeaderBytes;
+            for (Streamer.Keys k : Columns) {
+                int c = k.ordinal();
+                switch (kindOf(k)) {
+                    case Long: encoded[c] = encodeLongs(longs[c], rows); break;
+                    case Double: encoded[c] = encodeDoubles(doubles[c], rows); break;
+                    case Text: encoded[c] = encodeText(text, rows); break;
+                }
+                length += encoded[c].length;
+            }
+            ByteBuffer b = ByteBuffer.allocate(length);
+            b.putInt(BlockMagic).putInt(length).putInt(rows);
+            b.putLong(minTimestamp).putLong(maxTimestamp);
+            for (byte[] e : encoded) { b.putInt(e.length); }
+            for (byte[] e : encoded) { b.put(e); }
+            b.flip();
+            return b;
+        }
+    }
+
+    private static byte[] encodeLongs(long[] values, int rows) {
+        VarintWriter w = new VarintWriter(rows * 2);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            w.write(zigzag(values[i] - previous));
+            previous = values[i];
+        }
+        return w.toByteArray();
+    }
+
+    /**
+     * Doubles that are all exact decimals with at most MaxScale fraction
+     * digits are stored as deltas of value * 10^scale. Each varint carries
+     * a low bit flagging NaN, which leaves the running value unchanged.
+     * Other blocks store the raw bits.
+     */
+    private static byte[] encodeDoubles(double[] values, int rows) {
+        int scale = scaleFor(values, rows);
+        if (scale == RawDoubles) {
+            ByteBuffer b = ByteBuffer.allocate(1 + rows * 8);
+            b.put((byte)RawDoubles);
+            for (int i = 0; i < rows; i++) { b.putLong(Double.doubleToRawLongBits(values[i])); }
+            return b.array();
+        }
+        VarintWriter w = new VarintWriter(1 + rows * 2);
+        w.writeByte(scale);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (Double.isNaN(values[i])) {
+                w.write(1);
+            } else {
+                long scaled = Math.round(values[i] * PowersOf10[scale]);
+                w.write(zigzag(scaled - previous) << 1);
+                previous = scaled;
+            }
+        }
+        return w.toByteArray();
+    }
+
+    private static int scaleFor(double[] values, int rows) {
+        for (int scale = 0; scale <= MaxScale; scale++) {
+            double p = PowersOf10[scale];
+            boolean exact = true;
+            for (int i = 0; i < rows && exact; i++) {
+                double v = values[i];
+                if (Double.isNaN(v)) continue;
+                if (Math.abs(v) * p >= (1L << 52)) return RawDoubles;
+                exact = Double.doubleToLongBits(Math.round(v * p) / p) ==
+                        Double.doubleToLongBits(v);
+            }
+            if (exact) return scale;
+        }
+        return RawDoubles;
+    }
+
+    // A small dictionary followed by one index byte per row
+    private static byte[] encodeText(String[] values, int rows) {
+        List<String> dictionary = new ArrayList<>();
+        byte[] indexes = new byte[rows];
+        for (int i = 0; i < rows; i++) {
+            int d = dictionary.indexOf(values[i]);
+            if (d < 0) {
+                if (dictionary.size() == 255) { d = 0; }    // Can't happen for shift states
+                else { d = dictionary.size(); dictionary.add(values[i]); }
+            }
+            indexes[i] = (byte)d;
+        }
+        VarintWriter w = new VarintWriter(16 + rows);
+        w.writeByte(dictionary.size());
+        for (String s : dictionary) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            w.write(bytes.length);
+            w.writeBytes(bytes);
+        }
+        w.writeBytes(indexes);
+        return w.toByteArray();
+    }
+
+    private static long zigzag(long n) { return (n << 1) ^ (n >> 63); }
+
+    private static long unzigzag(long n) { return (n >>> 1) ^ -(n & 1); }
+
+    private static class VarintWriter {
+        byte[] buf;
+        int    length = 0;
+
+        VarintWriter(int capacity) { buf = new byte[Math.max(16, capacity)]; }
+
+        void write(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[length++] = (byte)((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[length++] = (byte)v;
+        }
+
+        void writeByte(int b) { ensure(1); buf[length++] = (byte)b; }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, length, bytes.length);
+            length += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(buf, 0, result, 0, length);
+            return result;
+        }
+
+        private void ensure(int n) {
+            if (length + n > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length * 2, length + n)];
+                System.arraycopy(buf, 0, bigger, 0, length);
+                buf = bigger;
+            }
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Decoding blocks
+ *
+ *----------------------------------------------------------------------------*/
+
+    /**
+     * Decode the requested columns of one block and visit the rows in range.
+     * Columns are decoded a row at a time, side by side, so nothing is
+     * materialized beyond the reusable StreamState.
+     */
+    private static int scanBlock(ByteBuffer block, long from, long to,
+                                 EnumSet<Streamer.Keys> wanted, Visitor visitor,
+                                 StreamState into) throws IOException {
+        if (block.getInt(0) != BlockMagic) throw new IOException("Corrupt stream block");
+        int rows = block.getInt(8);
+        ColumnReader[] readers = new ColumnReader[NColumns];
+        int offset = HeaderBytes;
+        for (Streamer.Keys k : Columns) {
+            int c = k.ordinal();
+            int length = block.getInt(28 + 4 * c);
+            if (k == Streamer.Keys.timestamp || wanted.contains(k)) {
+                ByteBuffer column = block.duplicate();
+                column.limit(offset + length).position(offset);
+                readers[c] = new ColumnReader(k, column.slice(), rows);
+            }
+            offset += length;
+        }
+        resetFields(into);
+
+        int visited = 0;
+        for (int r = 0; r < rows; r++) {
+            for (ColumnReader reader : readers) {
+                if (reader != null) reader.next(into);
+            }
+            if (into.vehicleTimestamp >= from && into.vehicleTimestamp <= to) {
+                visitor.visit(into);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private static void resetFields(StreamState s) {
+        s.vehicleTimestamp = 0; s.odometer = 0; s.speed = 0; s.soc = 0;
+        s.elevation = 0; s.estHeading = 0; s.estLat = 0; s.estLng = 0;
+        s.power = 0; s.range = 0; s.estRange = 0; s.heading = 0;
+        s.setShiftState("");
+    }
+
+    private static class ColumnReader {
+        final Streamer.Keys key;
+        final ByteBuffer    in;
+        final int           scale;
+        final String[]      dictionary;
+        long                previous = 0;
+
+        ColumnReader(Streamer.Keys key, ByteBuffer in, int rows) {
+            this.key = key;
+            this.in = in;
+            switch (kindOf(key)) {
+                case Double:
+                    scale = in.get() & 0xFF;
+                    dictionary = null;
+                    break;
+                case Text:
+                    scale = 0;
+                    dictionary = new String[in.get() & 0xFF];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        byte[] bytes = new byte[(int)readVarint()];
+                        in.get(bytes);
+                        dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    break;
+                default:
+                    scale = 0;
+                    dictionary = null;
+                    break;
+            }
+        }
+
+        void next(StreamState s) {
+            switch (kindOf(key)) {
+                case Long:
+                    previous += unzigzag(readVarint());
+                    setLong(s, previous);
+                    break;
+                case Double:
+                    setDouble(s, nextDouble());
+                    break;
+                case Text:
+                    s.setShiftState(dictionary[in.get() & 0xFF]);
+                    break;
+            }
+        }
+
+        private double nextDouble() {
+            if (scale == RawDoubles) return Double.longBitsToDouble(in.getLong());
+            long v = readVarint();
+            if ((v & 1) != 0) return Double.NaN;
+            previous += unzigzag(v >>> 1);
+            return previous / PowersOf10[scale];
+        }
+
+        private long readVarint() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                v |= (long)(b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+        }
+
+        private void setLong(StreamState s, long v) {
+            switch (key) {
+                case timestamp: s.vehicleTimestamp = v; break;
+                case soc: s.soc = (int)v; break;
+                case elevation: s.elevation = (int)v; break;
+                case est_heading: s.estHeading = (int)v; break;
+                case power: s.power = (int)v; break;
+                case range: s.range = (int)v; break;
+                case est_range: s.estRange = (int)v; break;
+                case heading: s.heading = (int)v; break;
+                default: break;
+            }
+        }
+
+        private void setDouble(StreamState s, double v) {
+            switch (key) {
+                case odometer: s.odometer = v; break;
+                case speed: s.speed = v; break;
+                case est_lat: s.estLat = v; break;
+                case est_lng: s.estLng = v; break;
+                default: break;
+            }
+        }
+    }
+}
@@ -6,17 +6,16 @@
 
 package org.noroomattheinn.tesla;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URLConnection;
 import org.apache.commons.lang3.StringUtils;
+import org.noroomattheinn.utils.Backoff;
+import org.noroomattheinn.utils.CircuitBreaker;
+import org.noroomattheinn.utils.Pair;
+import org.noroomattheinn.utils.ThreadManager;
+import org.noroomattheinn.utils.Transport;
 import org.noroomattheinn.utils.Utils;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
-import us.monoid.web.Resty;
-import us.monoid.web.TextResource;
 
 /**
  * Streamer: Provides access to streaming information about the current
@@ -25,7 +24,7 @@ import us.monoid.web.TextResource;
  * @author Joe Pasqua <joe at NoRoomAtTheInn dot org>
  */
 
-public class Streamer {
+public class Streamer implements ThreadManager.Stoppable {
 /*------------------------------------------------------------------------------
  *
  * Constants and Enums
@@ -39,11 +38,19 @@ public class Streamer {
     private final String allKeys =
             StringUtils.join(keyList, ',', 1, keyList.length);
 
-    private static final String endpointFormat = 
-            "https://streaming.vn.teslamotors.com/stream/%s/?values=%s";
+    // The streaming URI (see Tesla), the streaming VID and the keys
+    private static final String endpointFormat = "%sstream/%s/?values=%s";
 
     private static final int WakeupRetries = 3;
     private static final int ReadTimeoutInMillis = 25 * 1000;
+    private static final int ConnectAttempts = 5;
+    private static final long InitialRetryDelayInMillis = 500;
+    private static final long MaxRetryDelayInMillis = 30 * 1000;
+    
+    // After this many consecutive failures to establish a stream, stop
+    // trying for a while rather than spending requests on a lost cause
+    private static final int BreakerThreshold = 3;
+    private static final long BreakerOpenInMillis = 2 * 60 * 1000;
     
 /*------------------------------------------------------------------------------
  *
@@ -51,10 +58,18 @@ public class Streamer {
  * 
  *----------------------------------------------------------------------------*/
     
-    private Vehicle         authenticatedVehicle = null;
-    private BufferedReader  streamReader = null;
-    private HttpURLConnection  httpConnection = null;
+    private volatile Vehicle authenticatedVehicle = null;
+    private StreamParser    streamParser = null;
+    private volatile Transport.Response streamResponse = null;
     private Vehicle         v;
+    private StreamPublisher publisher = null;
+    private final CircuitBreaker breaker =
+            new CircuitBreaker(BreakerThreshold, BreakerOpenInMillis);
+    
+    // Each vehicle has two streaming tokens. We stay with the one in use
+    // until it is rejected, then try the other before fetching new ones.
+    private volatile int    tokenIndex = 0;
+    private int             tokensRejected = 0;
     
 /*==============================================================================
  * -------                                                               -------
@@ -67,13 +82,41 @@ public class Streamer {
     }
         
     public StreamState beginNewStream() {
-        streamReader = establishStreamingConnection();
+        streamParser = establishStreamingConnection();
         return tryExistingStream();
     }
     
+    /**
+     * Like beginNewStream(), but the first record is read into a
+     * caller-supplied StreamState (see tryExistingStream(StreamState))
+     * @param reuse The StreamState to be overwritten
+     * @return      reuse, filled in with the first record, or null if no
+     *              stream could be established
+     */
+    public StreamState beginNewStream(StreamState reuse) {
+        streamParser = establishStreamingConnection();
+        return tryExistingStream(reuse);
+    }
+    
     public StreamState tryExistingStream() {
-        JSONObject val = produce();
-        return val == null ? null : new StreamState(val);
+        String line = produceLine();
+        return line == null ? null : new StreamState(asJSON(line));
+    }
+    
+    /**
+     * Read the next record from the existing stream into a caller-supplied
+     * StreamState. Reusing one StreamState (see StreamState.newReusable())
+     * for every record means that reading the stream allocates nothing.
+     * Unlike tryExistingStream(), the record's values are decoded directly,
+     * so the StreamState has an empty rawState, and its timestamp is when it
+     * was created rather than when the record arrived. Use vehicleTimestamp
+     * to tell records apart.
+     * @param reuse The StreamState to be overwritten
+     * @return      reuse, filled in with the next record, or null if there is
+     *              no stream or it has ended
+     */
+    public StreamState tryExistingStream(StreamState reuse) {
+        return produce(reuse) ? reuse : null;
     }
     
     public StreamState beginStreamIfNeeded() {
@@ -82,11 +125,44 @@ public class Streamer {
         return state;
     }
     
+    /**
+     * Like beginStreamIfNeeded(), but the record is read into a
+     * caller-supplied StreamState (see tryExistingStream(StreamState))
+     * @param reuse The StreamState to be overwritten
+     * @return      reuse, filled in with the next record, or null if there is
+     *              no stream and one couldn't be established
+     */
+    public StreamState beginStreamIfNeeded(StreamState reuse) {
+        StreamState state = tryExistingStream(reuse);
+        if (state == null) { state = beginNewStream(reuse); }
+        return state;
+    }
+    
+    /**
+     * Return the Publisher through which this vehicle's streaming data can
+     * be pushed to Subscribers rather than polled for. If the previous one
+     * has been closed, a new one is created.
+     * @return  The StreamPublisher for this vehicle
+     */
+    public synchronized StreamPublisher publisher() {
+        if (publisher == null || publisher.isClosed()) publisher = new StreamPublisher(this);
+        return publisher;
+    }
+    
+    /**
+     * Abort the stream, if any. Equivalent to forceClose(). A Streamer is
+     * registered with the ThreadManager while it has a stream open, so
+     * shutting down aborts any read blocked on the stream.
+     */
+    @Override public void stop() { forceClose(); }
+    
     public void forceClose() {
-        if (httpConnection != null) {
+        Transport.Response r = streamResponse;
+        if (r != null) {
             Tesla.logger.info("Forcing shutdown");
-            httpConnection.disconnect();
-            httpConnection = null;
+            r.abort();
+            streamResponse = null;
+            ThreadManager.unregisterStoppable(this);
             Tesla.logger.info("Shutdown complete");
         }
     }
@@ -97,68 +173,111 @@ public class Streamer {
  * 
  *----------------------------------------------------------------------------*/
     
-    private JSONObject produce() {
-        if (streamReader == null) { return null; }
+    private boolean produce(StreamState into) {
+        if (streamParser == null) { return false; }
+        
+        boolean gotRecord = false;
+        try { gotRecord = streamParser.next(into); } catch (IOException ex) { }
+        if (!gotRecord) { endOfStream(); }
+        return gotRecord;
+    }
+    
+    private String produceLine() {
+        if (streamParser == null) { return null; }
         
         String line = null;
-        try { line = streamReader.readLine(); } catch (IOException ex) { }
-        if (line == null) { // End of stream or timeout, shut it down...
-            streamReader = null;
-            httpConnection = null;
-            return null;
-        }
-
+        try { line = streamParser.nextLine(); } catch (IOException ex) { }
+        if (line == null) { endOfStream(); }
+        return line;
+    }
+    
+    // The stream has ended or timed out, shut it down...
+    private void endOfStream() {
+        streamParser = null;
+        closeResponse();
+    }
+    
+    // The record's values, as strings, keyed by their names
+    private JSONObject asJSON(String line) {
         JSONObject jo = new JSONObject();
         String vals[] = line.split(",");
-        for (int i = 0; i < keyList.length; i++) {
+        for (int i = 0; i < keyList.length && i < vals.length; i++) {
             try {
                 jo.put(keyList[i], vals[i]);
             } catch (JSONException ex) {
                 Tesla.logger.severe("Malformed data: " + ex);
-                return null;
             }
         }
         return jo;
     }
 
-    private BufferedReader establishStreamingConnection() {
+    private void closeResponse() {
+        Transport.Response r = streamResponse;
+        streamResponse = null;
+        if (r != null) {
+            ThreadManager.unregisterStoppable(this);
+            r.close();
+        }
+    }
+
+    private StreamParser establishStreamingConnection() {
+        if (!breaker.allowRequest()) {
+            Tesla.logger.fine("Streaming suspended after repeated failures, retry in " +
+                    breaker.millisUntilRetry() / 1000 + "s");
+            return null;
+        }
+        
         if (authenticatedVehicle == null) {
             refreshAuthentication();
             if (authenticatedVehicle == null) {
                 Tesla.logger.warning("Can't authenticate for streaming!");
+                breaker.recordFailure();
                 return null;
             }
         }
         
-        String endpoint = String.format(
-                endpointFormat, authenticatedVehicle.getStreamingVID(), allKeys);
-        
-        Resty rw = getAuthAPI(authenticatedVehicle);
+        closeResponse();
+        Tesla tesla = authenticatedVehicle.tesla();
+        Backoff backoff = new Backoff(InitialRetryDelayInMillis, MaxRetryDelayInMillis);
         
-        for (int i = 0; i < 5; i++) {
+        ThreadManager tm = ThreadManager.get();
+        for (int i = 0; i < ConnectAttempts; i++) {
+            if (tm != null && tm.shuttingDown()) return null;
+            Vehicle av = authenticatedVehicle;
             try {
-                TextResource r = rw.text(endpoint);
-                if (r.status(200)) {
-                    URLConnection uc =  r.getUrlConnection();
-                    httpConnection = (uc instanceof HttpURLConnection) ?
-                        httpConnection = (HttpURLConnection)uc : null;
-                    return new BufferedReader(new InputStreamReader(r.stream()));
+                Transport.Response r = tesla.openStream(
+                        endpoint(av), authorization(av), ReadTimeoutInMillis);
+                if (r.status == 200) {
+                    streamResponse = r;
+                    ThreadManager.registerStoppable(this);
+                    authenticationAccepted();
+                    breaker.recordSuccess();
+                    return new StreamParser(r.body());
                 }
+                r.close();
+                if (r.status == 401) {
+                    Tesla.logger.info("Streaming token rejected: [401]");
+                    authenticationRejected();
+                    if (authenticatedVehicle == null) break;
+                    continue;   // Different credentials, no need to wait
+                }
+                Tesla.logger.warning("Stream GET failed: [" + r.status + "]");
             } catch (IOException e) {
                 String msg = e.toString();
-                if (msg.contains("[401]") || msg.contains("Stream closed")) {
-                    Tesla.logger.info("Getting new token: " + msg.trim());
-                    refreshAuthentication();
+                if (msg.contains("Stream closed")) {
+                    Tesla.logger.info("Streaming token rejected: " + msg.trim());
+                    authenticationRejected();
                     if (authenticatedVehicle == null) break;
-                    rw = getAuthAPI(authenticatedVehicle);
                 } else {
                     Tesla.logger.warning("Stream GET failed: " + e);
                 }
             }
-            Utils.sleep(500);
+            long delay = backoff.nextDelay();
+            if (tm != null) { tm.sleep(delay); } else { Utils.sleep(delay); }
         }
         
-        Tesla.logger.warning("Tried 5 times to establish a stream - giving up");
+        Tesla.logger.warning("Couldn't establish a stream - giving up");
+        breaker.recordFailure();
         return null;
     }
     
@@ -170,24 +289,71 @@ public class Streamer {
  * 
  *----------------------------------------------------------------------------*/
         
-    private void setAuthHeader(Resty api, String username, String authToken) {
-        byte[] authString = (username + ":" + authToken).getBytes();
-        String encodedString = Utils.toB64(authString);
-        api.withHeader("Authorization", "Basic " + encodedString);
+    /**
+     * Return what's needed to open this vehicle's stream, authenticating
+     * first if necessary. This may block while the vehicle list is fetched
+     * or the vehicle is woken up.
+     * @return  The (endpoint URL, Authorization header value) for the stream
+     *          or null if streaming tokens couldn't be obtained
+     */
+    Pair<String,String> streamingRequest() {
+        if (authenticatedVehicle == null) refreshAuthentication();
+        Vehicle av = authenticatedVehicle;
+        if (av == null) return null;
+        return new Pair<>(endpoint(av), authorization(av));
     }
-
-
+    
+    /**
+     * Note that the server rejected the current streaming token (401). The
+     * vehicle's other token is tried next if it hasn't been rejected too,
+     * otherwise new tokens are fetched. Blocks like streamingRequest().
+     */
+    void authenticationRejected() {
+        Vehicle av = authenticatedVehicle;
+        synchronized (this) {
+            int other = 1 - tokenIndex;
+            if (av != null && ++tokensRejected < 2 && av.getStreamingToken(other) != null) {
+                tokenIndex = other;
+                return;
+            }
+        }
+        refreshAuthentication();
+    }
+    
+    /**
+     * Note that the server accepted the current streaming token, so it
+     * should be used until it is rejected.
+     */
+    synchronized void authenticationAccepted() { tokensRejected = 0; }
+    
+    /**
+     * Returns whether streaming has been suspended after repeated failures
+     * @return  How long (ms) until a stream may be attempted again. 0 if
+     *          one may be attempted now.
+     */
+    long suspendedFor() { return breaker.millisUntilRetry(); }
+    
     private void refreshAuthentication() {
         String vid = v.getVID();    // Remember our VID, we'll use it as a key
+        Backoff backoff = new Backoff(InitialRetryDelayInMillis, MaxRetryDelayInMillis);
 
         for (int i = 0; i < WakeupRetries; i++) {
             for (Vehicle newV : v.tesla().queryVehicles()) {
                 if (newV.getVID().equals(vid) && newV.getStreamingToken() != null) {
+                    synchronized (this) {
+                        tokenIndex = 0;
+                        tokensRejected = 0;
+                    }
                     authenticatedVehicle = newV;
                     return;
                 }
             }
-            v.wakeUp(); Utils.sleep(500);
+            // No tokens. Only a sleeping vehicle needs waking and the list we
+            // just fetched says whether it is, so this costs no extra request.
+            VehicleStatus status = v.tesla().queryVehicleStatus(vid);
+            if (status == null) break;
+            if (status.isAsleep()) v.wakeUp();
+            Utils.sleep(backoff.nextDelay());
         }
 
         // For some reason we can't get Streaming tokens. We've tried enough - Give up
@@ -195,20 +361,20 @@ public class Streamer {
         authenticatedVehicle = null;
     }
 
-    private Resty getAuthAPI(Vehicle v) {
-        Tesla tesla = v.tesla();
-        String authToken = v.getStreamingToken();
+    private String endpoint(Vehicle v) {
+        return String.format(
+                endpointFormat, v.tesla().streamingURI(), v.getStreamingVID(), allKeys);
+    }
+    
+    private String authorization(Vehicle v) {
+        String authToken = v.getStreamingToken(tokenIndex);
 
         // This call requires BASIC authentication using the user name (this is
         // the user's registered email address) and the authToken.
-        // We can't use the Resty authentication mechanism because the tesla
-        // site doesn't seem to request authentication - it just expects the
-        // Authorization header field to be present.
-        // To accomplish that, create a new (temporary) Resty instance and
-        // add the auth header to it.
-        Resty api = tesla.createConnection(ReadTimeoutInMillis);
-        setAuthHeader(api, tesla.getUsername(), authToken);
-        return api;
+        // The tesla site doesn't seem to request authentication - it just
+        // expects the Authorization header field to be present.
+        byte[] authString = (v.tesla().getUsername() + ":" + authToken).getBytes();
+        return "Basic " + Utils.toB64(authString);
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,797 @@
+/*
+ * StreamingEngine.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLParameters;
+import org.noroomattheinn.utils.Backoff;
+import org.noroomattheinn.utils.CircuitBreaker;
+import org.noroomattheinn.utils.Pair;
+import org.noroomattheinn.utils.ThreadManager;
+
+/**
+ * StreamingEngine: Streams many vehicles at once using a small, fixed set of
+ * I/O threads. Each thread runs a Selector over non-blocking connections
+ * (TLS is done with an SSLEngine), so a vehicle's long-lived stream costs a
+ * socket and some buffers rather than a blocked thread. Records are decoded
+ * in place by StreamParser and delivered to a per-vehicle Listener.
+ * <P>
+ * A subscribed vehicle is streamed until it is unsubscribed: when its stream
+ * ends (the server closes it, or no data arrives for the read timeout) a new
+ * one is opened. Authentication and the request budget are handled as they
+ * are for Streamer, but off the I/O threads. A stream that ended after
+ * delivering data is reopened almost immediately with the same token; a
+ * vehicle whose streams keep failing is retried with exponentially growing,
+ * jittered delays, and after repeated failures not at all for a while.
+ * <P>
+ * The I/O threads are launched through the ThreadManager, if one has been
+ * created, and the engine shuts down along with it.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class StreamingEngine implements ThreadManager.Stoppable {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static final int DefaultIOThreads = 2;
+
+    private static final long ReadTimeoutInMillis = 25 * 1000;
+    private static final long ConnectTimeoutInMillis = 15 * 1000;
+    private static final long ReconnectDelayInMillis = 500;
+    private static final long MaxReconnectDelayInMillis = 60 * 1000;
+    private static final int  BreakerThreshold = 5;
+    private static final long BreakerOpenInMillis = 5 * 60 * 1000;
+    private static final long SelectTimeoutInMillis = 1000;
+    private static final int  MaxHeaderBytes = 16 * 1024;
+    private static final int  MaxRecordBytes = 8 * 1024;
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final SSLContext                sslContext;
+    private final IOThread[]                ioThreads;
+    private final ScheduledExecutorService  timer;
+    private final ConcurrentHashMap<String,Subscription> subscriptions;
+    private final AtomicInteger             nextThread;
+    private volatile boolean                shutdown;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public interface Listener {
+        /**
+         * Called on an I/O thread for every record received. The StreamState
+         * is reused for the vehicle's next record, so it must be copied if
+         * it is to be kept. Implementations must return quickly since other
+         * vehicles' streams are served by the same thread.
+         * @param v     The vehicle
+         * @param state The decoded record
+         */
+        void streamStateAvailable(Vehicle v, StreamState state);
+
+        /**
+         * Called when a vehicle's stream ends. Unless the vehicle has been
+         * unsubscribed, a new stream will be opened.
+         * @param v         The vehicle
+         * @param reason    A description of why the stream ended
+         */
+        void streamEnded(Vehicle v, String reason);
+    }
+
+    public StreamingEngine() throws NoSuchAlgorithmException {
+        this(DefaultIOThreads, SSLContext.getDefault());
+    }
+
+    /**
+     * Create a StreamingEngine and start its I/O threads
+     * @param nThreads      The number of I/O threads
+     * @param sslContext    The SSLContext used for https streams
+     */
+    public StreamingEngine(int nThreads, SSLContext sslContext) {
+        this.sslContext = sslContext;
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.nextThread = new AtomicInteger();
+        this.shutdown = false;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "StreamingEngine Timer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.ioThreads = new IOThread[nThreads];
+        ThreadManager tm = ThreadManager.get();
+        for (int i = 0; i < nThreads; i++) {
+            String name = "StreamingEngine I/O " + (i + 1);
+            ioThreads[i] = new IOThread();
+            if (tm != null) {
+                tm.launch(ioThreads[i], name);
+            } else {
+                Thread t = new Thread(ioThreads[i], name);
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+        ThreadManager.registerStoppable(this);
+    }
+
+    /**
+     * Start streaming a vehicle. Any existing subscription for the vehicle
+     * is replaced.
+     * @param v         The vehicle to stream
+     * @param listener  Receives the vehicle's records
+     */
+    public void subscribe(final Vehicle v, Listener listener) {
+        final Streamer streamer = v.getStreamer();
+        subscribe(v, listener, new Source() {
+            @Override public Pair<String,String> request() { return streamer.streamingRequest(); }
+            @Override public void accepted() { streamer.authenticationAccepted(); }
+            @Override public void rejected() { streamer.authenticationRejected(); }
+        });
+    }
+
+    /**
+     * Stop streaming a vehicle and close its connection
+     * @param v The vehicle
+     */
+    public void unsubscribe(Vehicle v) {
+        Subscription s = subscriptions.remove(v.getVID());
+        if (s != null) s.cancel();
+    }
+
+    /**
+     * Returns the number of vehicles whose streams are currently open
+     * @return  The number of open streams
+     */
+    public int openStreams() {
+        int n = 0;
+        for (Subscription s : subscriptions.values()) {
+            if (s.connection != null && s.connection.streaming) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Close all streams and stop the I/O threads
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Subscription s : subscriptions.values()) { s.cancel(); }
+        subscriptions.clear();
+        for (IOThread t : ioThreads) { t.selector.wakeup(); }
+        timer.shutdownNow();
+        ThreadManager.unregisterStoppable(this);
+    }
+
+    /**
+     * Close all streams and stop the I/O threads. Equivalent to shutdown().
+     */
+    @Override public void stop() { shutdown(); }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Subscriptions: establishing and re-establishing streams
+ *
+ *----------------------------------------------------------------------------*/
+
+    /**
+     * Where a subscription gets the request that opens its stream and
+     * reports how the server responded to the credentials. Package access so
+     * the request can be supplied directly in tests.
+     */
+    interface Source {
+        /**
+         * Called off the I/O threads, may block
+         * @return  The (endpoint URL, Authorization header value) for the
+         *          stream or null if there are no credentials
+         */
+        Pair<String,String> request() throws Exception;
+        void accepted();    // The stream was opened
+        void rejected();    // 401. Called off the I/O threads, may block
+    }
+
+    void subscribe(Vehicle v, Listener listener, Source source) {
+        Subscription s = new Subscription(v, listener, source);
+        Subscription old = subscriptions.put(v.getVID(), s);
+        if (old != null) old.cancel();
+        s.open();
+    }
+
+    private class Subscription {
+        final Vehicle               v;
+        final Listener              listener;
+        final Source                source;
+        final Backoff               backoff;
+        final CircuitBreaker        breaker;
+        volatile Connection         connection = null;
+        volatile boolean            cancelled = false;
+
+        Subscription(Vehicle v, Listener listener, Source source) {
+            this.v = v;
+            this.listener = listener;
+            this.source = source;
+            this.backoff = new Backoff(ReconnectDelayInMillis, MaxReconnectDelayInMillis);
+            this.breaker = new CircuitBreaker(BreakerThreshold, BreakerOpenInMillis);
+        }
+
+        boolean active() { return !cancelled && !shutdown; }
+
+        /**
+         * Authenticate and resolve the host on the Tesla async executor,
+         * wait for a budget permit, then hand the connection to an I/O thread.
+         * If the executor is saturated the attempt counts as a failure and
+         * is retried after a backoff.
+         */
+        void open() {
+            if (!active()) return;
+            if (!breaker.allowRequest()) {
+                schedule(() -> open(), breaker.millisUntilRetry());
+                return;
+            }
+            try {
+                connect();
+            } catch (RejectedExecutionException e) {
+                Tesla.logger.warning("Tesla async executor is saturated, deferring stream setup");
+                ended("Stream setup deferred: async executor is saturated", false, false);
+            }
+        }
+
+        private void connect() {
+            final Tesla tesla = v.tesla();
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    Pair<String,String> r = source.request();
+                    if (r == null) return null;
+                    URL url = new URL(r.item1);
+                    boolean tls = url.getProtocol().equals("https");
+                    int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+                    InetSocketAddress address = new InetSocketAddress(url.getHost(), port);
+                    if (address.isUnresolved()) throw new IOException("Unknown host: " + url.getHost());
+                    return new Connection(this, url, tls, address, r.item2);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, tesla.asyncExecutor()).thenCompose(c -> {
+                if (c == null) return CompletableFuture.completedFuture(null);
+                return tesla.throttleAsync(c.url.toExternalForm()).thenApply(x -> c);
+            }).whenComplete((c, ex) -> {
+                if (ex != null) {
+                    ended("Stream setup failed: " + ex.getMessage(), false, false);
+                } else if (c == null) {
+                    ended("Can't authenticate for streaming", false, false);
+                } else if (!active()) {
+                    // Unsubscribed while setting up
+                } else {
+                    // Pick the thread before publishing the connection so a
+                    // concurrent cancel() always finds it
+                    IOThread t = ioThreads[Math.floorMod(nextThread.getAndIncrement(), ioThreads.length)];
+                    c.thread = t;
+                    connection = c;
+                    t.register(c);
+                }
+            });
+        }
+
+        /**
+         * Called when the server accepts the request and starts streaming
+         */
+        void started() {
+            backoff.reset();
+            breaker.recordSuccess();
+            source.accepted();
+        }
+
+        /**
+         * Called when a stream ends or couldn't be opened. Reports it and
+         * schedules a new stream unless the subscription has been cancelled.
+         * A stream that had been delivering data is reopened after the
+         * initial delay; otherwise the attempt counts as a failure and the
+         * delay grows.
+         */
+        void ended(String reason, final boolean unauthorized, boolean wasStreaming) {
+            connection = null;
+            if (!active()) return;
+            try {
+                listener.streamEnded(v, reason);
+            } catch (Exception e) {
+                Tesla.logger.log(Level.WARNING, "Streaming listener failed", e);
+            }
+            long delay = backoff.nextDelay();
+            if (!wasStreaming) {
+                breaker.recordFailure();
+                // The first rejection is retried at once: it uses new credentials
+                if (unauthorized && backoff.attempts() == 1) delay = 0;
+                delay = Math.max(delay, breaker.millisUntilRetry());
+            }
+            schedule(() -> {
+                if (!unauthorized) { open(); return; }
+                try {
+                    v.tesla().asyncExecutor().execute(() -> { source.rejected(); open(); });
+                } catch (RejectedExecutionException e) {
+                    Tesla.logger.warning("Tesla async executor is saturated, deferring stream setup");
+                    ended("Stream setup deferred: async executor is saturated", true, false);
+                }
+            }, delay);
+        }
+
+        private void schedule(Runnable r, long delay) {
+            try {
+                timer.schedule(r, delay, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // Shutting down
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Connection c = connection;
+            if (c != null) c.thread.closeLater(c);
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - I/O threads
+ *
+ *----------------------------------------------------------------------------*/
+
+    private class IOThread implements Runnable {
+        final Selector selector;
+        final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        final List<Connection> connections = new ArrayList<>();
+
+        IOThread() {
+            try {
+                selector = Selector.open();
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't open a Selector", e);
+            }
+        }
+
+        void register(final Connection c) {
+            c.thread = this;
+            runLater(() -> c.start());
+        }
+
+        void closeLater(final Connection c) {
+            runLater(() -> c.close(null, false));
+        }
+
+        void runLater(Runnable r) {
+            pending.add(r);
+            selector.wakeup();
+        }
+
+        @Override public void run() {
+            try {
+                while (!shutdown) {
+                    selector.select(SelectTimeoutInMillis);
+                    Runnable r;
+                    while ((r = pending.poll()) != null) { runSafely(r); }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection c = (Connection)key.attachment();
+                        if (key.isValid()) c.handle(key);
+                    }
+                    expireIdleConnections();
+                }
+            } catch (IOException e) {
+                Tesla.logger.log(Level.SEVERE, "Streaming I/O thread failed", e);
+            } finally {
+                for (Connection c : new ArrayList<>(connections)) { c.close(null, false); }
+                try { selector.close(); } catch (IOException e) { }
+            }
+        }
+
+        // A task that fails mustn't take the thread, and with it every
+        // stream it serves, down with it
+        private void runSafely(Runnable r) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                Tesla.logger.log(Level.WARNING, "Streaming task failed", e);
+            }
+        }
+
+        private void expireIdleConnections() {
+            long now = System.currentTimeMillis();
+            for (Connection c : new ArrayList<>(connections)) {
+                long timeout = c.streaming ? ReadTimeoutInMillis : ConnectTimeoutInMillis;
+                if (now - c.lastActivity > timeout) c.close("Stream timed out", false);
+            }
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - A single streaming connection. All of its methods other than the
+ * constructor run on its I/O thread.
+ *
+ *----------------------------------------------------------------------------*/
+
+    private class Connection {
+        final Subscription      sub;
+        final URL               url;
+        final InetSocketAddress address;
+        final SSLEngine         ssl;
+        final StreamState       state = StreamState.newReusable();
+        final ByteBuffer        requestBytes;
+        IOThread                thread;
+        SocketChannel           channel;
+        SelectionKey            key;
+        ByteBuffer              netIn, netOut, appIn;
+        long                    lastActivity;
+        boolean                 closed = false;
+        volatile boolean        streaming = false;
+
+        // Response decoding
+        final byte[]    header = new byte[MaxHeaderBytes];
+        int             headerLength = 0;
+        boolean         headersDone = false;
+        boolean         chunked = false;
+        long            chunkRemaining = 0;     // Bytes left in the current chunk
+        int             chunkState = ChunkSize;
+        long            chunkSize = 0;
+        boolean         chunkExtension = false;
+        final byte[]    record = new byte[MaxRecordBytes];
+        int             recordLength = 0;
+
+        Connection(Subscription sub, URL url, boolean tls,
+                   InetSocketAddress address, String authorization) {
+            this.sub = sub;
+            this.url = url;
+            this.address = address;
+            if (tls) {
+                ssl = sslContext.createSSLEngine(url.getHost(), address.getPort());
+                ssl.setUseClientMode(true);
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+            } else {
+                ssl = null;
+            }
+            String file = url.getFile().isEmpty() ? "/" : url.getFile();
+            String request =
+                    "GET " + file + " HTTP/1.1\r\n" +
+                    "Host: " + url.getHost() + (url.getPort() == -1 ? "" : ":" + url.getPort()) + "\r\n" +
+                    "User-Agent: " + Tesla.TeslaUserAgent + "\r\n" +
+                    "Authorization: " + authorization + "\r\n" +
+                    "Connection: close\r\n\r\n";
+            this.requestBytes = ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        void start() {
+            lastActivity = System.currentTimeMillis();
+            if (!sub.active()) { close(null, false); return; }
+            try {
+                int packetSize = (ssl == null) ? 16 * 1024 : ssl.getSession().getPacketBufferSize();
+                int appSize = (ssl == null) ? 16 * 1024 : ssl.getSession().getApplicationBufferSize();
+                netIn = ByteBuffer.allocate(packetSize);
+                netOut = ByteBuffer.allocate(packetSize);
+                appIn = ByteBuffer.allocate(appSize);
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                thread.connections.add(this);
+                if (channel.connect(address)) {
+                    key = channel.register(thread.selector, SelectionKey.OP_READ, this);
+                    connected();
+                } else {
+                    key = channel.register(thread.selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException e) {
+                close("Connect failed: " + e, false);
+            }
+        }
+
+        void handle(SelectionKey k) {
+            try {
+                if (k.isConnectable()) {
+                    if (!channel.finishConnect()) return;
+                    key.interestOps(SelectionKey.OP_READ);
+                    connected();
+                    return;
+                }
+                if (k.isWritable()) {
+                    if (flush()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        pump();
+                    }
+                }
+                if (k.isValid() && k.isReadable()) {
+                    int n = channel.read(netIn);
+                    if (n > 0) lastActivity = System.currentTimeMillis();
+                    pump();
+                    if (n < 0 && !closed) close("Stream closed by server", false);
+                }
+            } catch (IOException e) {
+                close("Stream failed: " + e, false);
+            } catch (RuntimeException e) {
+                // Only this connection is affected; the thread carries on
+                Tesla.logger.log(Level.WARNING, "Stream failed unexpectedly", e);
+                close("Stream failed: " + e, false);
+            }
+        }
+
+        private void connected() throws IOException {
+            lastActivity = System.currentTimeMillis();
+            if (ssl != null) ssl.beginHandshake();
+            pump();
+        }
+
+        /**
+         * Move data in every direction that can make progress: write the
+         * request, drive the TLS handshake, and decode whatever has been read.
+         */
+        private void pump() throws IOException {
+            if (closed) return;
+            if (ssl == null) {
+                if (requestBytes.hasRemaining()) {
+                    channel.write(requestBytes);
+                    if (requestBytes.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+                netIn.flip();
+                consume(netIn);
+                netIn.compact();
+                return;
+            }
+
+            while (!closed) {
+                SSLEngineResult.HandshakeStatus hs = ssl.getHandshakeStatus();
+                if (hs == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    Runnable task;
+                    while ((task = ssl.getDelegatedTask()) != null) { task.run(); }
+                    continue;
+                }
+                if (hs == SSLEngineResult.HandshakeStatus.NEED_WRAP ||
+                    (hs == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING &&
+                     requestBytes.hasRemaining())) {
+                    if (!wrap()) return;    // Wait until the socket is writable
+                    continue;
+                }
+
+                netIn.flip();
+                SSLEngineResult r = ssl.unwrap(netIn, appIn);
+                netIn.compact();
+                switch (r.getStatus()) {
+                    case OK:
+                        appIn.flip();
+                        consume(appIn);
+                        appIn.compact();
+                        if (r.bytesConsumed() == 0 && r.bytesProduced() == 0 &&
+                            ssl.getHandshakeStatus() == hs) return;
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        if (netIn.position() == netIn.capacity()) {
+                            netIn = grow(netIn, ssl.getSession().getPacketBufferSize());
+                        }
+                        return;
+                    case BUFFER_OVERFLOW:
+                        appIn = grow(appIn, ssl.getSession().getApplicationBufferSize());
+                        break;
+                    case CLOSED:
+                        close("Stream closed by server", false);
+                        return;
+                }
+            }
+        }
+
+        // Wrap outgoing data (the request or handshake messages) and write it.
+        // Returns false if the socket couldn't take all of it.
+        private boolean wrap() throws IOException {
+            SSLEngineResult r = ssl.wrap(requestBytes, netOut);
+            if (r.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                if (!flush()) return false;
+                netOut = grow(netOut, ssl.getSession().getPacketBufferSize());
+            } else if (r.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new ClosedChannelException();
+            }
+            if (!flush()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean flush() throws IOException {
+            if (ssl == null) {
+                channel.write(requestBytes);
+                return !requestBytes.hasRemaining();
+            }
+            netOut.flip();
+            channel.write(netOut);
+            boolean done = !netOut.hasRemaining();
+            netOut.compact();
+            return done;
+        }
+
+        private ByteBuffer grow(ByteBuffer b, int atLeast) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(b.capacity() * 2, atLeast));
+            b.flip();
+            bigger.put(b);
+            return bigger;
+        }
+
+        // Decode response bytes: first the status line and headers, then the
+        // (possibly chunked) body, which is split into records.
+        private void consume(ByteBuffer b) {
+            while (b.hasRemaining() && !closed) {
+                if (!headersDone) {
+                    readHeader(b);
+                } else if (!chunked) {
+                    int n = b.remaining();
+                    body(b, n);
+                } else {
+                    readChunked(b);
+                }
+            }
+        }
+
+        private void readHeader(ByteBuffer b) {
+            while (b.hasRemaining()) {
+                if (headerLength == header.length) {
+                    close("Response header too large", false);
+                    return;
+                }
+                header[headerLength++] = b.get();
+                if (headerLength >= 4 &&
+                    header[headerLength - 4] == '\r' && header[headerLength - 3] == '\n' &&
+                    header[headerLength - 2] == '\r' && header[headerLength - 1] == '\n') {
+                    headersDone = true;
+                    parseHeader();
+                    return;
+                }
+            }
+        }
+
+        private void parseHeader() {
+            String[] lines = new String(header, 0, headerLength, StandardCharsets.ISO_8859_1)
+                    .split("\r\n");
+            int status = parseStatus(lines[0]);
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i].toLowerCase(Locale.US);
+                if (line.startsWith("transfer-encoding:") && line.contains("chunked")) chunked = true;
+            }
+            if (status == 401) {
+                close("Getting new token: [401]", true);
+            } else if (status != 200) {
+                close("Stream request failed: [" + status + "]", false);
+            } else {
+                streaming = true;
+                sub.started();
+            }
+        }
+
+        // The status code from a status line, or 0 if it is malformed
+        private int parseStatus(String statusLine) {
+            String[] parts = statusLine.split(" ");
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) return 0;
+            try {
+                return Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        private static final int ChunkSize = 0, ChunkData = 1, ChunkEnd = 2;
+
+        private void readChunked(ByteBuffer b) {
+            while (b.hasRemaining() && !closed) {
+                switch (chunkState) {
+                    case ChunkSize: {
+                        byte c = b.get();
+                        if (c == '\n') {
+                            if (chunkSize == 0) {
+                                close("Stream closed by server", false);
+                                return;
+                            }
+                            chunkRemaining = chunkSize;
+                            chunkSize = 0;
+                            chunkExtension = false;
+                            chunkState = ChunkData;
+                        } else if (!chunkExtension) {
+                            // Anything after the size (e.g. extensions) is ignored
+                            int d = Character.digit(c, 16);
+                            if (d >= 0) chunkSize = chunkSize * 16 + d;
+                            else if (c != '\r') chunkExtension = true;
+                        }
+                        break;
+                    }
+                    case ChunkData: {
+                        int n = (int)Math.min(chunkRemaining, b.remaining());
+                        body(b, n);
+                        chunkRemaining -= n;
+                        if (chunkRemaining == 0) chunkState = ChunkEnd;
+                        break;
+                    }
+                    case ChunkEnd:
+                        if (b.get() == '\n') chunkState = ChunkSize;
+                        break;
+                }
+            }
+        }
+
+        // Split body bytes into records and deliver each one
+        private void body(ByteBuffer b, int n) {
+            for (int i = 0; i < n; i++) {
+                byte c = b.get();
+                if (c == '\n') {
+                    int end = recordLength;
+                    if (end > 0 && record[end - 1] == '\r') end--;
+                    if (end > 0) deliver(end);
+                    recordLength = 0;
+                } else if (recordLength < record.length) {
+                    record[recordLength++] = c;
+                }
+            }
+        }
+
+        private void deliver(int length) {
+            StreamParser.parse(record, 0, length, state);
+            try {
+                sub.listener.streamStateAvailable(sub.v, state);
+            } catch (Exception e) {
+                Tesla.logger.log(Level.WARNING, "Streaming listener failed", e);
+            }
+        }
+
+        void close(String reason, boolean unauthorized) {
+            if (closed) return;
+            closed = true;
+            boolean wasStreaming = streaming;
+            streaming = false;
+            thread.connections.remove(this);
+            if (key != null) key.cancel();
+            if (channel != null) {
+                try { channel.close(); } catch (IOException e) { }
+            }
+            if (reason != null && sub.connection == this) {
+                sub.ended(reason, unauthorized, wasStreaming);
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * TelemetryRing.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TelemetryRing: The most recent streamed records of one vehicle, held off
+ * the Java heap. Each record is the Streamer.Keys fields of a StreamState
+ * packed into a fixed size slot of a direct ByteBuffer; when the ring is
+ * full the oldest record is overwritten. Holding hours of history this way
+ * costs RecordBytes per record rather than a StreamState object each, and
+ * gives the garbage collector nothing to trace.
+ * <P>
+ * Records are read through a Cursor, a reusable flyweight that copies one
+ * record at a time into a small buffer of its own and decodes fields from
+ * there on demand. Positioning a cursor by time is a binary search, and
+ * neither that nor iterating allocates anything. Lookups by time assume
+ * records are appended in vehicleTimestamp order, as they arrive from the
+ * stream.
+ * <P>
+ * Appends and cursor moves lock the ring briefly; a cursor's fields can then
+ * be read without locking. A cursor overtaken by the writer moves on to the
+ * oldest record still held. The ring buffers in utils avoid the lock with a
+ * sequence check (see RingIndex), but that relies on their slots being atomic
+ * arrays, whose accesses are ordered with respect to the check. A record here
+ * is a run of plain accesses to a direct ByteBuffer, which nothing orders
+ * against the check, so a reader could see a torn record yet pass it. Holding
+ * the records in an AtomicLongArray instead would put them back on the heap.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class TelemetryRing {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static final int RecordBytes = 72;
+
+    // Offsets of the fields within a record
+    private static final int Timestamp = 0;
+    private static final int Speed = 8;
+    private static final int Odometer = 16;
+    private static final int EstLat = 24;
+    private static final int EstLng = 32;
+    private static final int Soc = 40;
+    private static final int Elevation = 44;
+    private static final int EstHeading = 48;
+    private static final int Heading = 52;
+    private static final int Power = 56;
+    private static final int Range = 60;
+    private static final int EstRange = 64;
+    private static final int ShiftState = 68;
+
+    // The shift state is stored as its (single character) code, 0 if empty,
+    // and decoded to one of these shared Strings
+    private static final String[] ShiftStates = new String[128];
+    static {
+        ShiftStates[0] = "";
+        for (char c = 1; c < 128; c++) { ShiftStates[c] = String.valueOf(c).intern(); }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final ByteBuffer    records;
+    private final int           capacity;
+    private long                appended;   // Guarded by this
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a TelemetryRing
+     * @param capacity  The number of records held. At one record a second,
+     *                  24 hours of history is 86400 records (about 6MB).
+     */
+    public TelemetryRing(int capacity) {
+        if (capacity < 1 || capacity > Integer.MAX_VALUE / RecordBytes) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.records = ByteBuffer.allocateDirect(capacity * RecordBytes)
+                                 .order(ByteOrder.nativeOrder());
+        this.appended = 0;
+    }
+
+    /**
+     * Append a record, overwriting the oldest one if the ring is full
+     * @param s The record. It isn't retained so it may be reused.
+     */
+    public synchronized void append(StreamState s) {
+        int base = slot(appended) * RecordBytes;
+        records.putLong(base + Timestamp, s.vehicleTimestamp);
+        records.putDouble(base + Speed, s.speed);
+        records.putDouble(base + Odometer, s.odometer);
+        records.putDouble(base + EstLat, s.estLat);
+        records.putDouble(base + EstLng, s.estLng);
+        records.putInt(base + Soc, s.soc);
+        records.putInt(base + Elevation, s.elevation);
+        records.putInt(base + EstHeading, s.estHeading);
+        records.putInt(base + Heading, s.heading);
+        records.putInt(base + Power, s.power);
+        records.putInt(base + Range, s.range);
+        records.putInt(base + EstRange, s.estRange);
+        records.putInt(base + ShiftState, shiftCode(s));
+        appended++;
+    }
+
+    /**
+     * Returns the number of records held (not the capacity)
+     * @return  The number of records
+     */
+    public synchronized int size() { return (int)Math.min(appended, capacity); }
+
+    public int capacity() { return capacity; }
+
+    /**
+     * Returns the number of records ever appended, including those that have
+     * since been overwritten
+     * @return  The number of appends
+     */
+    public synchronized long appended() { return appended; }
+
+    /**
+     * Returns the number of bytes of off-heap memory used by this ring
+     * @return  The number of bytes
+     */
+    public long offHeapBytes() { return (long)capacity * RecordBytes; }
+
+    /**
+     * Returns a new Cursor, positioned before the oldest record. A Cursor is
+     * meant to be kept and reused; it isn't thread safe.
+     * @return  The Cursor
+     */
+    public Cursor cursor() { return new Cursor(); }
+
+    /**
+     * Cursor: A position in a TelemetryRing and a copy of the record there.
+     * After seek() or seekFirst(), each call to next() moves to the
+     * following record; the accessors return the fields of the current one.
+     */
+    public final class Cursor {
+        private final ByteBuffer    record;
+        private long                next;       // Index of the next record
+        private boolean             loaded;
+
+        private Cursor() {
+            this.record = ByteBuffer.allocate(RecordBytes).order(ByteOrder.nativeOrder());
+            this.next = 0;
+            this.loaded = false;
+        }
+
+        /**
+         * Position the cursor before the oldest record
+         * @return  this Cursor
+         */
+        public Cursor seekFirst() {
+            synchronized (TelemetryRing.this) { next = oldest(); }
+            loaded = false;
+            return this;
+        }
+
+        /**
+         * Position the cursor before the oldest record whose vehicleTimestamp
+         * is at or after the given time
+         * @param vehicleTimestamp  The time to look for
+         * @return  this Cursor
+         */
+        public Cursor seek(long vehicleTimestamp) {
+            synchronized (TelemetryRing.this) {
+                long lo = oldest(), hi = appended;
+                while (lo < hi) {
+                    long mid = (lo + hi) >>> 1;
+                    long t = records.getLong(slot(mid) * RecordBytes + Timestamp);
+                    if (t < vehicleTimestamp) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                next = lo;
+            }
+            loaded = false;
+            return this;
+        }
+
+        /**
+         * Move to the next record
+         * @return  true if there is one
+         *          false if the cursor has passed the newest record
+         */
+        public boolean next() {
+            synchronized (TelemetryRing.this) {
+                next = Math.max(next, oldest());
+                if (next >= appended) { loaded = false; return false; }
+                int base = slot(next) * RecordBytes;
+                for (int i = 0; i < RecordBytes; i += 8) {
+                    record.putLong(i, records.getLong(base + i));
+                }
+                next++;
+            }
+            loaded = true;
+            return true;
+        }
+
+        public long vehicleTimestamp() { return current().getLong(Timestamp); }
+        public double speed() { return current().getDouble(Speed); }
+        public double odometer() { return current().getDouble(Odometer); }
+        public double estLat() { return current().getDouble(EstLat); }
+        public double estLng() { return current().getDouble(EstLng); }
+        public int soc() { return current().getInt(Soc); }
+        public int elevation() { return current().getInt(Elevation); }
+        public int estHeading() { return current().getInt(EstHeading); }
+        public int heading() { return current().getInt(Heading); }
+        public int power() { return current().getInt(Power); }
+        public int range() { return current().getInt(Range); }
+        public int estRange() { return current().getInt(EstRange); }
+
+        /**
+         * Returns the shift state, defaulting to "P" as StreamState does
+         * @return  The shift state
+         */
+        public String shiftState() {
+            String s = ShiftStates[current().getInt(ShiftState)];
+            return s.isEmpty() ? "P" : s;
+        }
+
+        /**
+         * Copy the current record into a StreamState, such as one created
+         * by StreamState.newReusable(). The StreamState's own timestamp (when
+         * it was received) isn't part of the record and is left alone.
+         * @param into  The StreamState to fill in
+         * @return      into
+         */
+        public StreamState copyTo(StreamState into) {
+            into.vehicleTimestamp = vehicleTimestamp();
+            into.speed = speed();
+            into.odometer = odometer();
+            into.estLat = estLat();
+            into.estLng = estLng();
+            into.soc = soc();
+            into.elevation = elevation();
+            into.estHeading = estHeading();
+            into.heading = heading();
+            into.power = power();
+            into.range = range();
+            into.estRange = estRange();
+            into.setShiftState(ShiftStates[current().getInt(ShiftState)]);
+            return into;
+        }
+
+        private ByteBuffer current() {
+            if (!loaded) throw new IllegalStateException("No current record");
+            return record;
+        }
+    }
+
+    /**
+     * Fleet: A TelemetryRing for each vehicle, filled from a StreamingEngine
+     * when registered as one of its Listeners
+     */
+    public static class Fleet implements StreamingEngine.Listener {
+        private final int capacity;
+        private final ConcurrentHashMap<String,TelemetryRing> rings;
+
+        /**
+         * Create a Fleet
+         * @param capacity  The capacity of each vehicle's ring
+         */
+        public Fleet(int capacity) {
+            this.capacity = capacity;
+            this.rings = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Returns the ring for a vehicle, creating it if need be
+         * @param vehicleID The vehicle (see Vehicle.getVID())
+         * @return  The vehicle's ring
+         */
+        public TelemetryRing ring(String vehicleID) {
+            TelemetryRing r = rings.get(vehicleID);
+            if (r == null) {
+                r = new TelemetryRing(capacity);
+                TelemetryRing existing = rings.putIfAbsent(vehicleID, r);
+                if (existing != null) r = existing;
+            }
+            return r;
+        }
+
+        @Override public void streamStateAvailable(Vehicle v, StreamState state) {
+            ring(v.getVID()).append(state);
+        }
+
+        @Override public void streamEnded(Vehicle v, String reason) { }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private int slot(long index) { return (int)(index % capacity); }
+
+    // The index of the oldest record held. Must be called with the lock held.
+    private long oldest() { return Math.max(0, appended - capacity); }
+
+    private static int shiftCode(StreamState s) {
+        char c = s.shiftState().charAt(0);    // Never empty, "P" by default
+        return (c < 128) ? c : 0;
+    }
+}
@@ -11,7 +11,19 @@ import java.io.StringWriter;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -21,14 +33,12 @@ import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.lang3.StringUtils;
 import org.noroomattheinn.utils.Pair;
-import org.noroomattheinn.utils.RestHelper;
+import org.noroomattheinn.utils.PooledTransport;
+import org.noroomattheinn.utils.Transport;
 import us.monoid.json.JSONArray;
 import us.monoid.json.JSONException;
 import us.monoid.json.JSONObject;
 import us.monoid.json.JSONWriter;
-import us.monoid.web.Content;
-import us.monoid.web.JSONResource;
-import us.monoid.web.Resty;
 
 /**
  * Tesla: This class represents a connection to Tesla's servers and provides
@@ -55,21 +65,22 @@ public class Tesla {
     public  static final Logger logger = Logger.getLogger(Tesla.class.getName());
     
     private static final String apiName = "Tesla Client API";
-    private static final String TeslaURI = "https://owner-api.teslamotors.com/";
+    public  static final String DefaultTeslaURI = "https://owner-api.teslamotors.com/";
+    public  static final String DefaultStreamingURI = "https://streaming.vn.teslamotors.com/";
     private static final String APIVersion = "api/1/";
     
-    private static final RestHelper.Throttle Throttle;
-    static {
-        List<Pair<Integer,Integer>> rateLimits = new ArrayList<>();
-        rateLimits.add(new Pair<>(10, 10));     // No more than 10 requests in 10 seconds
-        rateLimits.add(new Pair<>(20, 60));     // No more than 20 requests/minute
-        rateLimits.add(new Pair<>(150, 10*60)); // No more than 150 requests/(10 minutes)
-        Throttle = new RestHelper.Throttle(rateLimits);
-    }
-    private static final String TeslaUserAgent =
+    // Shared by every Tesla object that isn't given a budget of its own
+    private static final RequestBudget SharedBudget = newStandardBudget();
+    static final String TeslaUserAgent =
             "Model S 2.1.79 (Nexus 5; Android REL 4.4.4; en_US)";
-    private static final RestHelper.UAOption UserAgent =
-            new RestHelper.UAOption(TeslaUserAgent);
+    private static final int ReadTimeoutInMillis = 60 * 1000;
+    
+    // How long a fetched vehicle list is used before it is fetched again
+    public static final long DefaultVehicleListTTLInMillis = 15 * 1000;
+    
+    // Async requests beyond AsyncThreads wait in a queue, not on a thread
+    private static final int AsyncThreads = 2 * PooledTransport.DefaultMaxConnectionsPerHost;
+    private static final int AsyncQueueLimit = 1000;
     
 /*------------------------------------------------------------------------------
  *
@@ -77,8 +88,26 @@ public class Tesla {
  * 
  *----------------------------------------------------------------------------*/
         
-    private final Resty api;
+    private final Transport transport;
+    private final String teslaURI;
+    private final String streamingURI;
+    private volatile String authorization;
+    private volatile ExecutorService asyncExecutor;
+    private volatile boolean decodeDirectly = false;
+    private volatile RequestBudget budget = SharedBudget;
+    
+    // Budget permits acquired by supplyAsync() before its request ran
+    private static final ThreadLocal<int[]> prepaidPermits = new ThreadLocal<int[]>() {
+        @Override protected int[] initialValue() { return new int[1]; }
+    };
     private List<Vehicle> vehicles;
+    
+    // The most recently fetched vehicle list and the fetch in progress, if any
+    private final Object vehicleListLock = new Object();
+    private volatile VehicleList vehicleList = null;
+    private CompletableFuture<VehicleList> vehicleListInFlight = null;
+    private volatile long vehicleListTTL = DefaultVehicleListTTLInMillis;
+    
     private String username;
     private String token;
     
@@ -88,15 +117,83 @@ public class Tesla {
  * -------                                                               -------
  *============================================================================*/
     
-    public Tesla() {
-        api = createConnection(60* 1000);
+    public Tesla() { this(new PooledTransport()); }
+    
+    /**
+     * Create a Tesla object that sends its requests using the supplied
+     * Transport.
+     * @param transport The Transport used for all requests to Tesla's servers
+     */
+    public Tesla(Transport transport) {
+        this(transport, DefaultTeslaURI, DefaultStreamingURI);
+    }
+    
+    /**
+     * Create a Tesla object that talks to servers other than Tesla's, e.g. a
+     * local stub server for testing.
+     * @param transport     The Transport used for all requests
+     * @param teslaURI      The base URI of the owner API, ending in "/"
+     * @param streamingURI  The base URI of the streaming API, ending in "/"
+     */
+    public Tesla(Transport transport, String teslaURI, String streamingURI) {
+        this.transport = transport;
+        this.teslaURI = teslaURI;
+        this.streamingURI = streamingURI;
+        this.authorization = null;
+        this.asyncExecutor = null;
         vehicles = new ArrayList<>();
     }
+    
+    public Transport getTransport() { return transport; }
+    
+    /**
+     * Supply the ExecutorService used to run asynchronous requests. If none
+     * is supplied, a bounded pool of daemon threads is created on first use.
+     * @param executor  The ExecutorService for asynchronous requests
+     */
+    public void setAsyncExecutor(ExecutorService executor) { asyncExecutor = executor; }
+    
+    /**
+     * Choose how the responses to state queries are decoded. By default the
+     * body is parsed into a JSONObject from which the state object is built.
+     * With direct decoding, the body is decoded as it is read straight into
+     * the fields of the state object, skipping the keys it doesn't use. This
+     * is cheaper, but the resulting state objects have an empty rawState.
+     * @param enabled   true to decode state responses directly
+     */
+    public void setDirectDecoding(boolean enabled) { decodeDirectly = enabled; }
+    
+    /**
+     * Choose the request budget that paces this object's requests. By default
+     * all Tesla objects share one budget with the limits of Tesla's servers,
+     * since those limits apply to the account, not the object. A server
+     * without those limits, such as a local test server, can be given its own
+     * budget or none at all.
+     * @param budget    The budget to use, or null to send requests unthrottled
+     */
+    public void setRequestBudget(RequestBudget budget) { this.budget = budget; }
+    
+    /**
+     * Create a RequestBudget with the limits of Tesla's servers, e.g. to give
+     * a Tesla object a budget that isn't shared with the others.
+     * @return  A new RequestBudget
+     */
+    public static RequestBudget newStandardBudget() {
+        List<Pair<Integer,Integer>> rateLimits = new ArrayList<>();
+        rateLimits.add(new Pair<>(10, 10));     // No more than 10 requests in 10 seconds
+        rateLimits.add(new Pair<>(20, 60));     // No more than 20 requests/minute
+        rateLimits.add(new Pair<>(150, 10*60)); // No more than 150 requests/(10 minutes)
+        RequestBudget b = new RequestBudget(rateLimits, RequestBudget.DefaultInteractiveReserve);
         
-    final Resty createConnection(int readTimeout) {
-        return RestHelper.getInstance(
-                new RestHelper.ReadTimeout(readTimeout),
-                UserAgent, Throttle);
+        // Per-vehicle limits keep one car's polling from starving the others
+        List<Pair<Integer,Integer>> dataLimits = new ArrayList<>();
+        dataLimits.add(new Pair<>(15, 60));     // No more than 15 data requests/minute
+        dataLimits.add(new Pair<>(120, 10*60)); // No more than 120 data requests/(10 minutes)
+        b.setPartitionLimits(RequestBudget.EndpointClass.DataRequest, dataLimits);
+        List<Pair<Integer,Integer>> listLimits = new ArrayList<>();
+        listLimits.add(new Pair<>(6, 60));      // No more than 6 vehicle list requests/minute
+        b.setPartitionLimits(RequestBudget.EndpointClass.VehicleList, listLimits);
+        return b;
     }
     
 /*------------------------------------------------------------------------------
@@ -111,7 +208,7 @@ public class Tesla {
      *          false   No dice, the user must supply credentials
      */
     public boolean connectWithToken(String username, String token) {
-        api.withHeader("Authorization", "Bearer " + token);
+        authorization = "Bearer " + token;
         vehicles = queryVehicles();
         if (!vehicles.isEmpty()) {
             this.token = token;
@@ -155,11 +252,8 @@ public class Tesla {
         }
 
         try {
-            JSONResource r = api.json(
-                    rawEndpoint("oauth/token"),
-                    Resty.content(new JSONObject(payload)));
-            if (r == null) return false;
-            String accessToken = r.object().getString("access_token");
+            JSONObject r = fetch(rawEndpoint("oauth/token"), payload);
+            String accessToken = r.getString("access_token");
             if (accessToken == null) return false;
             return connectWithToken(username, accessToken);
         } catch (IOException | JSONException e) {
@@ -177,23 +271,85 @@ public class Tesla {
  * 
  *----------------------------------------------------------------------------*/
     
-    public List<Vehicle> queryVehicles() {
+    /**
+     * Fetch the vehicle list and create a Vehicle for each entry. This
+     * always goes to the server, though callers that ask at the same time
+     * share a single request.
+     * @return  The vehicles on the account. Empty if the list couldn't be
+     *          fetched.
+     */
+    public List<Vehicle> queryVehicles() { return vehiclesIn(refreshVehicleList()); }
+    
+    private List<Vehicle> vehiclesIn(VehicleList vl) {
         List<Vehicle> list = new ArrayList<>(2);
-        try {
-            JSONResource r = api.json(apiEndpoint("vehicles"));
-            JSONArray rawVehicleData = r.object().getJSONArray("response");
-            int numVehicles = rawVehicleData.length();
-            for (int i = 0; i < numVehicles; i++) {
-                Vehicle vehicle = new Vehicle(this, rawVehicleData.getJSONObject(i));
-                list.add(vehicle);
+        if (vl != null) {
+            for (JSONObject description : vl.descriptions) {
+                list.add(new Vehicle(this, description));
             }
-        } catch (IOException | JSONException ex) {
-            logger.warning("Problem fetching vehicle list: " + ex);
         }
         return list;
     }
 
     public List<Vehicle> getVehicles() { return vehicles; }
+    
+    /**
+     * Return the status of each vehicle on the account. A cached copy of the
+     * vehicle list is used if it is younger than the vehicle list TTL,
+     * otherwise the list is fetched (see queryVehicles()).
+     * @return  The status of each vehicle. Empty if the list couldn't be
+     *          fetched.
+     */
+    public List<VehicleStatus> queryVehicleStatus() {
+        VehicleList vl = vehicleList;
+        if (vl == null || System.currentTimeMillis() - vl.fetchedAt > vehicleListTTL) {
+            vl = refreshVehicleList();
+        }
+        return (vl == null) ? new ArrayList<VehicleStatus>() : vl.statuses;
+    }
+    
+    /**
+     * Return the status of a single vehicle. See queryVehicleStatus().
+     * @param vehicleID The id of the vehicle (see Vehicle.getVID())
+     * @return  The vehicle's status or null if it isn't in the vehicle list
+     */
+    public VehicleStatus queryVehicleStatus(String vehicleID) {
+        return statusOf(queryVehicleStatus(), vehicleID);
+    }
+    
+    /**
+     * The non-blocking form of queryVehicleStatus(String). A cached vehicle
+     * list that is young enough answers immediately, without a request or a
+     * request budget permit. Otherwise the list is fetched asynchronously,
+     * and callers that ask while a fetch is in progress share it.
+     * @param vehicleID The id of the vehicle (see Vehicle.getVID())
+     * @return  A future holding the vehicle's status, or null if it isn't
+     *          in the vehicle list or the list couldn't be fetched
+     */
+    public CompletableFuture<VehicleStatus> queryVehicleStatusAsync(final String vehicleID) {
+        VehicleList vl = vehicleList;
+        if (vl != null && System.currentTimeMillis() - vl.fetchedAt <= vehicleListTTL) {
+            return CompletableFuture.completedFuture(statusOf(vl.statuses, vehicleID));
+        }
+        return refreshVehicleListAsync().thenApply(
+                list -> (list == null) ? null : statusOf(list.statuses, vehicleID));
+    }
+    
+    /**
+     * Set how long a fetched vehicle list may be used by queryVehicleStatus()
+     * @param ttl   The lifetime of the cached list in milliseconds. 0 means
+     *              always fetch.
+     */
+    public void setVehicleListTTL(long ttl) { vehicleListTTL = ttl; }
+    
+    /**
+     * Discard the cached vehicle list, e.g. because a vehicle has been
+     * asked to wake up and its status is about to change.
+     */
+    public void invalidateVehicleList() { vehicleList = null; }
+    
+    public CompletableFuture<List<Vehicle>> queryVehiclesAsync() {
+        return refreshVehicleListAsync().thenApply(vl -> vehiclesIn(vl));
+    }
 
 
 /*------------------------------------------------------------------------------
@@ -203,8 +359,10 @@ public class Tesla {
  *----------------------------------------------------------------------------*/
     
     String rawEndpoint(String name) {
-        return TeslaURI + name;
+        return teslaURI + name;
     }
+    
+    String streamingURI() { return streamingURI; }
 
     String apiEndpoint(String name) {
         return rawEndpoint(APIVersion + name);
@@ -222,37 +380,250 @@ public class Tesla {
         return vehicleSpecific(vid, "data_request/" + name);
     }
 
+    /**
+     * The long-run request rate allowed by this object's request budget.
+     * Schedulers use this to pace their requests.
+     * @return  The sustainable rate in requests per second, or infinity if
+     *          requests aren't throttled
+     */
+    double sustainedRequestRate() {
+        RequestBudget b = budget;
+        return (b == null) ? Double.POSITIVE_INFINITY : b.sustainedRate();
+    }
+    
     JSONObject getState(String state) { return call(state, null); }
     
+    /**
+     * Query a state endpoint and build a state object from the response.
+     * @param state The state endpoint
+     * @param kind  The kind of state object to build
+     * @return      The state object, which is invalid if the query failed
+     */
+    <T extends BaseState> T getState(String state, StateReader.Kind<T> kind) {
+        if (!decodeDirectly) return kind.fromJSON(getState(state));
+        try {
+            return fetchState(state, kind);
+        } catch (IOException ex) {
+            logFailure(state, ex);
+            return kind.invalid();
+        }
+    }
+    
+    CompletableFuture<JSONObject> getStateAsync(final String state) {
+        return supplyAsync(state, () -> getState(state));
+    }
+    
+    <T extends BaseState> CompletableFuture<T> getStateAsync(
+            final String state, final StateReader.Kind<T> kind) {
+        return supplyAsync(state, () -> getState(state, kind));
+    }
+    
+    CompletableFuture<JSONObject> invokeCommandAsync(final String command, final String payload) {
+        return supplyAsync(command, () -> invokeCommand(command, payload));
+    }
+    
+    /**
+     * Run a request on the async executor. The request's throttle permit is
+     * acquired before it is queued so that a throttled request waits on a
+     * timer rather than occupying an executor thread. If the executor's
+     * queue is full, the returned future fails with a
+     * RejectedExecutionException rather than blocking the caller.
+     * @param <T>       The type of the result
+     * @param endpoint  The endpoint of the request's first (or only) call,
+     *                  which decides the budget the permit comes from
+     * @param request   The request to run
+     * @return          A future holding the result of the request
+     */
+    <T> CompletableFuture<T> supplyAsync(String endpoint, final Supplier<T> request) {
+        return throttleAsync(endpoint).thenApplyAsync(new Function<Void,T>() {
+            @Override public T apply(Void v) {
+                int[] prepaid = prepaidPermits.get();
+                prepaid[0] = 1;
+                try {
+                    return request.get();
+                } finally {
+                    prepaid[0] = 0;
+                }
+            }
+        }, asyncExecutor());
+    }
+    
     JSONObject invokeCommand(String command) { return invokeCommand(command, "{}"); }
         
     JSONObject invokeCommand(String command, String payload) {
-        Content c;
+        String json;
         try {
-            c = Resty.content(new JSONObject(payload));
+            json = new JSONObject(payload).toString();
         } catch (JSONException ex) {
             Tesla.logger.severe("Can't Happen - JSON Syntax Error: " + payload);
             return new JSONObject();
         }
-        return call(command, c);
+        return call(command, json);
+    }
+    
+    /**
+     * Open a long-lived streaming connection. The request is subject to the
+     * same throttling as all other requests, but uses its own authorization.
+     * @param endpoint      The streaming endpoint
+     * @param authorization The value of the Authorization header
+     * @param readTimeout   The read timeout (ms) for the stream
+     * @return              The Response, whose body is the stream. The caller
+     *                      must close the Response.
+     * @throws IOException  If the connection could not be established
+     */
+    Transport.Response openStream(String endpoint, String authorization, int readTimeout)
+            throws IOException {
+        Map<String,String> headers = headers();
+        headers.put("Authorization", authorization);
+        throttle(endpoint);
+        return transport.executeStreaming(
+                Transport.Request.get(endpoint, headers, readTimeout));
+    }
+    
+    /**
+     * Obtain a request budget permit for an endpoint without blocking. This
+     * is for requests that aren't issued through the Transport.
+     * @param endpoint  The URL about to be requested
+     * @return  A future that completes when the request may be issued
+     */
+    CompletableFuture<Void> throttleAsync(String endpoint) {
+        RequestBudget b = budget;
+        return (b == null) ? CompletableFuture.<Void>completedFuture(null) : b.applyAsync(endpoint);
+    }
+    
+    /**
+     * Like getState(), but distinguishes an endpoint that doesn't exist
+     * from one that failed. This allows callers to fall back to older
+     * endpoints when a newer one isn't supported.
+     * @param state The state endpoint
+     * @return      The response, or null if the endpoint doesn't exist (404)
+     */
+    JSONObject getStateIfSupported(String state) {
+        try {
+            return fetch(state, null).getJSONObject("response");
+        } catch (IOException | JSONException ex) {
+            if (ex instanceof HTTPError && ((HTTPError)ex).status == 404) return null;
+            logFailure(state, ex);
+            return new JSONObject();
+        }
+    }
+    
+    /**
+     * Like getState(state, kind), but distinguishes an endpoint that doesn't
+     * exist from one that failed, as getStateIfSupported(state) does.
+     * @param state The state endpoint
+     * @param kind  The kind of state object to build
+     * @return      The state object, which is invalid if the query failed,
+     *              or null if the endpoint doesn't exist (404)
+     */
+    <T extends BaseState> T getStateIfSupported(String state, StateReader.Kind<T> kind) {
+        if (!decodeDirectly) {
+            JSONObject response = getStateIfSupported(state);
+            return (response == null) ? null : kind.fromJSON(response);
+        }
+        try {
+            return fetchState(state, kind);
+        } catch (IOException ex) {
+            if (ex instanceof HTTPError && ((HTTPError)ex).status == 404) return null;
+            logFailure(state, ex);
+            return kind.invalid();
+        }
     }
     
-    private JSONObject call(String command, Content payload) {
+    private JSONObject call(String command, String payload) {
         JSONObject rawResponse = null;
         try {
-            if (payload == null) rawResponse = api.json(command).object();
-            else rawResponse = api.json(command, payload).object();
-            if (rawResponse == null) return new JSONObject();
+            rawResponse = fetch(command, payload);
             return rawResponse.getJSONObject("response");
         } catch (IOException | JSONException ex) {
-            String error = ex.toString().replace("\n", " -- ");
-            Tesla.logger.finer(
-                    "Failed invoking (" + 
-                    StringUtils.substringAfterLast(command, "/") + "): [" + 
-                    StringUtils.substringAfter(error, "[") );
+            logFailure(command, ex);
             return (rawResponse == null) ? new JSONObject() : rawResponse;
         }
     }
+    
+    private void logFailure(String command, Exception ex) {
+        String error = ex.toString().replace("\n", " -- ");
+        Tesla.logger.finer(
+                "Failed invoking (" + 
+                StringUtils.substringAfterLast(command, "/") + "): [" + 
+                StringUtils.substringAfter(error, "[") );
+    }
+    
+    /**
+     * Issue a request and parse the body of a successful response.
+     * @param endpoint  The URL to fetch
+     * @param payload   A JSON payload to POST, or null to issue a GET
+     * @return          The parsed body of the response
+     * @throws IOException  If the request fails or returns an error status
+     * @throws JSONException If the body of the response is not valid JSON
+     */
+    private JSONObject fetch(String endpoint, String payload)
+            throws IOException, JSONException {
+        throttle(endpoint);
+        Transport.Request request = (payload == null) ?
+                Transport.Request.get(endpoint, headers(), ReadTimeoutInMillis) :
+                Transport.Request.post(endpoint, headers(), payload, ReadTimeoutInMillis);
+        Transport.Response response = transport.execute(request);
+        String body = response.asString();
+        if (!response.ok()) { throw new HTTPError(response.status, endpoint); }
+        return new JSONObject(body);
+    }
+    
+    /**
+     * Issue a GET request and decode the body of a successful response
+     * directly into a state object.
+     * @param endpoint  The URL to fetch
+     * @param kind      The kind of state object to build
+     * @return          The state object
+     * @throws IOException  If the request fails, returns an error status,
+     *                      or the body can't be decoded
+     */
+    private <T extends BaseState> T fetchState(String endpoint, StateReader.Kind<T> kind)
+            throws IOException {
+        throttle(endpoint);
+        Transport.Response response = transport.execute(
+                Transport.Request.get(endpoint, headers(), ReadTimeoutInMillis));
+        if (!response.ok()) {
+            response.asString();    // Consume the body so the connection can be reused
+            throw new HTTPError(response.status, endpoint);
+        }
+        try {
+            return StateReader.read(response.body(), kind);
+        } finally {
+            response.close();
+        }
+    }
+    
+    /**
+     * Wait until a request to the endpoint is allowed by the request budget,
+     * unless the current thread is running an async request whose permit
+     * was already acquired. That permit covers the first request only.
+     */
+    private void throttle(String endpoint) {
+        int[] prepaid = prepaidPermits.get();
+        if (prepaid[0] > 0) { prepaid[0]--; return; }
+        RequestBudget b = budget;
+        if (b != null) b.apply(endpoint);
+    }
+    
+    private static class HTTPError extends IOException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        HTTPError(int status, String endpoint) {
+            super(String.format(
+                    "Server returned HTTP response code [%d] for URL: %s", status, endpoint));
+            this.status = status;
+        }
+    }
+    
+    private Map<String,String> headers() {
+        Map<String,String> headers = new LinkedHashMap<>(4);
+        headers.put("User-Agent", TeslaUserAgent);
+        headers.put("Accept", "application/json");
+        String auth = authorization;
+        if (auth != null) headers.put("Authorization", auth);
+        return headers;
+    }
 
     
 /*------------------------------------------------------------------------------
@@ -261,6 +632,117 @@ public class Tesla {
  * 
  *----------------------------------------------------------------------------*/
     
+    /**
+     * Fetch the vehicle list. If a fetch is already in progress, wait for
+     * it and share its result rather than issuing another request.
+     * @return  The new vehicle list or null if it couldn't be fetched
+     */
+    private VehicleList refreshVehicleList() {
+        CompletableFuture<VehicleList> f;
+        boolean leader = false;
+        synchronized (vehicleListLock) {
+            f = vehicleListInFlight;
+            if (f == null) {
+                vehicleListInFlight = f = new CompletableFuture<>();
+                leader = true;
+            }
+        }
+        if (!leader) return f.join();
+        
+        VehicleList vl = null;
+        try {
+            vl = fetchVehicleList();
+        } finally {
+            vehicleListFetched(f, vl);
+        }
+        return vl;
+    }
+    
+    /**
+     * Like refreshVehicleList(), but the fetch runs on the async executor.
+     * Its request budget permit is only taken when a fetch is issued.
+     * @return  A future holding the new vehicle list, or null if it couldn't
+     *          be fetched
+     */
+    private CompletableFuture<VehicleList> refreshVehicleListAsync() {
+        final CompletableFuture<VehicleList> f;
+        synchronized (vehicleListLock) {
+            if (vehicleListInFlight != null) return vehicleListInFlight;
+            vehicleListInFlight = f = new CompletableFuture<>();
+        }
+        supplyAsync(apiEndpoint("vehicles"), () -> fetchVehicleList()).whenComplete(
+                (vl, ex) -> vehicleListFetched(f, vl));
+        return f;
+    }
+    
+    private void vehicleListFetched(CompletableFuture<VehicleList> f, VehicleList vl) {
+        synchronized (vehicleListLock) {
+            if (vl != null) vehicleList = vl;
+            vehicleListInFlight = null;
+        }
+        f.complete(vl);
+    }
+    
+    private static VehicleStatus statusOf(List<VehicleStatus> statuses, String vehicleID) {
+        for (VehicleStatus vs : statuses) {
+            if (vs.vehicleID.equals(vehicleID)) return vs;
+        }
+        return null;
+    }
+    
+    private VehicleList fetchVehicleList() {
+        try {
+            JSONObject r = fetch(apiEndpoint("vehicles"), null);
+            JSONArray rawVehicleData = r.getJSONArray("response");
+            int numVehicles = rawVehicleData.length();
+            List<JSONObject> descriptions = new ArrayList<>(numVehicles);
+            for (int i = 0; i < numVehicles; i++) {
+                descriptions.add(rawVehicleData.getJSONObject(i));
+            }
+            return new VehicleList(descriptions);
+        } catch (IOException | JSONException ex) {
+            logger.warning("Problem fetching vehicle list: " + ex);
+            return null;
+        }
+    }
+    
+    private static class VehicleList {
+        final long fetchedAt = System.currentTimeMillis();
+        final List<JSONObject> descriptions;
+        final List<VehicleStatus> statuses;
+        
+        VehicleList(List<JSONObject> descriptions) {
+            this.descriptions = descriptions;
+            List<VehicleStatus> s = new ArrayList<>(descriptions.size());
+            for (JSONObject d : descriptions) { s.add(new VehicleStatus(d)); }
+            this.statuses = Collections.unmodifiableList(s);
+        }
+    }
+    
+    ExecutorService asyncExecutor() {
+        ExecutorService e = asyncExecutor;
+        if (e == null) {
+            synchronized (this) {
+                if ((e = asyncExecutor) == null) {
+                    final AtomicInteger id = new AtomicInteger();
+                    ThreadFactory daemons = new ThreadFactory() {
+                        @Override public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "Tesla Async " + id.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    };
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                            AsyncThreads, AsyncThreads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(AsyncQueueLimit), daemons);
+                    pool.allowCoreThreadTimeOut(true);
+                    asyncExecutor = e = pool;
+                }
+            }
+        }
+        return e;
+    }
+    
     private static final byte[] ci = {
          115,  -51,   67, -104, -107,   16, -116, -114,
          -11, -120,   41,   84, -106,  -15,  -67,   78,
@@ -7,6 +7,7 @@
 package org.noroomattheinn.tesla;
 
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.noroomattheinn.utils.Utils;
@@ -39,7 +40,8 @@ public class Vehicle {
 
     // The following are effectively constants, but are set in the constructor
     private final String    ChargeEndpoint, DriveEndpoint, GUIEndpoint,
-                            HVACEndpoint, VehicleStateEndpoint, VehicleConfigEndpoint;
+                            HVACEndpoint, VehicleStateEndpoint, VehicleConfigEndpoint,
+                            VehicleDataEndpoint;
     private final String    HVAC_Start, HVAC_Stop, HVAC_SetTemp;
     private final String    Charge_Start, Charge_Stop, Charge_SetMax,
                             Charge_SetStd, Charge_SetPct;
@@ -79,6 +81,7 @@ public class Vehicle {
     private final String        vehicleID2;      // Not clear what this represents
     private final String        backSeatToken;
     private final String        backSeatTokenUpdated;
+    private volatile boolean    vehicleDataSupported = true;
 
 /*==============================================================================
  * -------                                                               -------
@@ -127,6 +130,7 @@ public class Vehicle {
         HVACEndpoint = tesla.vehicleData(vehicleID, "climate_state");
         VehicleStateEndpoint = tesla.vehicleData(vehicleID, "vehicle_state");
         VehicleConfigEndpoint = tesla.vehicleData(vehicleID, "vehicle_config");
+        VehicleDataEndpoint = tesla.vehicleSpecific(vehicleID, "vehicle_data");
         
         // Initialize HVAC endpoints
         HVAC_Start = tesla.vehicleCommand(vehicleID, "auto_conditioning_start");
@@ -191,6 +195,7 @@ public class Vehicle {
     public String   status() { return status; } // Status can be "asleep", "waking", or "online"
     public Options  getOptions() { return options; }
     public String   getStreamingToken() { return streamingTokens[0]; }
+    public String   getStreamingToken(int which) { return streamingTokens[which]; }
     public String   getDisplayName() { return displayName; }
     public String   getUnderlyingValues() { return baseValues; }
     public boolean  isAsleep() { return !isAwake(); }
@@ -199,12 +204,8 @@ public class Vehicle {
         return r.optBoolean("reponse", false);
     }
     public boolean isAwake() {
-        for (Vehicle v : tesla.queryVehicles()) {
-            if (vin.equals(v.vin)) {
-                return !v.status().equals("asleep");
-            }
-        }
-        return false;
+        VehicleStatus vs = tesla.queryVehicleStatus(vehicleID);
+        return vs != null && !vs.isAsleep();
     }
 
 /*------------------------------------------------------------------------------
@@ -227,25 +228,81 @@ public class Vehicle {
         }
     }
     
+    private String endpointFor(StateType which) {
+        switch (which) {
+            case Charge: return ChargeEndpoint;
+            case Drive: return DriveEndpoint;
+            case GUI: return GUIEndpoint;
+            case HVAC: return HVACEndpoint;
+            case VehicleState: return VehicleStateEndpoint;
+            default: return VehicleConfigEndpoint;
+        }
+    }
+    
     public ChargeState queryCharge() {
-        return new ChargeState(tesla.getState(ChargeEndpoint));
+        return tesla.getState(ChargeEndpoint, StateReader.Charge);
     }
     public DriveState queryDrive() {
-        return new DriveState(tesla.getState(DriveEndpoint));
+        return tesla.getState(DriveEndpoint, StateReader.Drive);
     }
     public GUIState queryGUI() {
-        return new GUIState(tesla.getState(GUIEndpoint));
+        return tesla.getState(GUIEndpoint, StateReader.GUI);
     }
     public HVACState queryHVAC() {
-        return new HVACState(tesla.getState(HVACEndpoint));
+        return tesla.getState(HVACEndpoint, StateReader.HVAC);
     }
     public VehicleState queryVehicleState() {
-        return new VehicleState(tesla.getState(VehicleStateEndpoint));
+        return tesla.getState(VehicleStateEndpoint, StateReader.Vehicle);
     }
     public VehicleConfig queryVehicleConfig() {
-        VehicleConfig vh = new VehicleConfig(tesla.getState(VehicleConfigEndpoint));
-        return vh;
+        return tesla.getState(VehicleConfigEndpoint, StateReader.Config);
+    }
+
+    /*
+     * The lazily decoded variants of some of the queries. Their fields are
+     * decoded on first access, which is cheaper when polling frequently and
+     * reading only a few of them.
+     */
+    public LazyChargeState queryChargeLazily() {
+        return new LazyChargeState(tesla.getState(ChargeEndpoint));
+    }
+    public LazyHVACState queryHVACLazily() {
+        return new LazyHVACState(tesla.getState(HVACEndpoint));
+    }
+    public LazyVehicleState queryVehicleStateLazily() {
+        return new LazyVehicleState(tesla.getState(VehicleStateEndpoint));
+    }
+    
+    /**
+     * Query all of the vehicle's state in a single request. If the
+     * vehicle_data endpoint isn't supported, or its response is missing some
+     * sections, the missing pieces are obtained with the individual queries.
+     * @return  A snapshot of the vehicle's state
+     */
+    public VehicleSnapshot querySnapshot() {
+        if (vehicleDataSupported) {
+            VehicleSnapshot snapshot =
+                    tesla.getStateIfSupported(VehicleDataEndpoint, StateReader.Snapshot);
+            if (snapshot != null) {
+                // An invalid snapshot means the car couldn't be reached;
+                // the individual queries would fail too.
+                if (!snapshot.valid || snapshot.isComplete()) return snapshot;
+                return new VehicleSnapshot(snapshot.rawState,
+                    snapshot.charge.valid ? snapshot.charge : queryCharge(),
+                    snapshot.drive.valid ? snapshot.drive : queryDrive(),
+                    snapshot.gui.valid ? snapshot.gui : queryGUI(),
+                    snapshot.hvac.valid ? snapshot.hvac : queryHVAC(),
+                    snapshot.vehicleState.valid ? snapshot.vehicleState : queryVehicleState(),
+                    snapshot.vehicleConfig.valid ? snapshot.vehicleConfig : queryVehicleConfig());
+            }
+            Tesla.logger.info("vehicle_data is not supported, using individual queries");
+            vehicleDataSupported = false;
+        }
+        return new VehicleSnapshot(BaseState.emptyJSONObj,
+                queryCharge(), queryDrive(), queryGUI(), queryHVAC(),
+                queryVehicleState(), queryVehicleConfig());
     }
+    
     public Streamer getStreamer() { return streamer; }
 
 /*------------------------------------------------------------------------------
@@ -481,7 +538,173 @@ public class Vehicle {
     }
 
     public Result wakeUp() {
-        return new Result(tesla.invokeCommand(Action_Wakeup));
+        Result r = new Result(tesla.invokeCommand(Action_Wakeup));
+        tesla.invalidateVehicleList();
+        return r;
+    }
+    
+/*------------------------------------------------------------------------------
+ *
+ * Asynchronous variants of the queries and commands. Each returns immediately
+ * with a CompletableFuture that completes when the request does. The requests
+ * are run by the Tesla object's bounded async executor, and each is budgeted
+ * by the endpoint it calls, just as its synchronous counterpart is.
+ * 
+ *----------------------------------------------------------------------------*/
+    
+    public CompletableFuture<BaseState> queryAsync(final StateType which) {
+        return tesla.supplyAsync(endpointFor(which), () -> query(which));
+    }
+    public CompletableFuture<ChargeState> queryChargeAsync() {
+        return tesla.getStateAsync(ChargeEndpoint, StateReader.Charge);
+    }
+    public CompletableFuture<DriveState> queryDriveAsync() {
+        return tesla.getStateAsync(DriveEndpoint, StateReader.Drive);
+    }
+    public CompletableFuture<GUIState> queryGUIAsync() {
+        return tesla.getStateAsync(GUIEndpoint, StateReader.GUI);
+    }
+    public CompletableFuture<HVACState> queryHVACAsync() {
+        return tesla.getStateAsync(HVACEndpoint, StateReader.HVAC);
+    }
+    public CompletableFuture<VehicleState> queryVehicleStateAsync() {
+        return tesla.getStateAsync(VehicleStateEndpoint, StateReader.Vehicle);
+    }
+    public CompletableFuture<VehicleConfig> queryVehicleConfigAsync() {
+        return tesla.getStateAsync(VehicleConfigEndpoint, StateReader.Config);
+    }
+    public CompletableFuture<VehicleSnapshot> querySnapshotAsync() {
+        return tesla.supplyAsync(VehicleDataEndpoint, () -> querySnapshot());
+    }
+    public CompletableFuture<Boolean> isAwakeAsync() {
+        return tesla.queryVehicleStatusAsync(vehicleID).thenApply(
+                vs -> vs != null && !vs.isAsleep());
+    }
+    
+    public CompletableFuture<Result> invokeCommandAsync(String command) {
+        return invokeCommandAsync(command, "{}");
+    }
+    
+    /**
+     * Invoke an arbitrary command on this vehicle asynchronously.
+     * @param command   The name of the command (e.g. "honk_horn")
+     * @param payload   The JSON payload for the command
+     * @return          A future that completes with the Result of the command
+     */
+    public CompletableFuture<Result> invokeCommandAsync(String command, String payload) {
+        return tesla.invokeCommandAsync(
+                tesla.vehicleCommand(vehicleID, command), payload).thenApply(Result::new);
+    }
+    
+    public CompletableFuture<Result> setACAsync(boolean on) {
+        return tesla.supplyAsync(on ? HVAC_Start : HVAC_Stop, () -> setAC(on));
+    }
+    public CompletableFuture<Result> startACAsync() { return setACAsync(true); }
+    public CompletableFuture<Result> stopACAsync() { return setACAsync(false); }
+    public CompletableFuture<Result> setTempCAsync(double driverTemp, double passengerTemp) {
+        return tesla.supplyAsync(HVAC_SetTemp, () -> setTempC(driverTemp, passengerTemp));
+    }
+    public CompletableFuture<Result> setTempFAsync(double driverTemp, double passengerTemp) {
+        return tesla.supplyAsync(HVAC_SetTemp, () -> setTempF(driverTemp, passengerTemp));
+    }
+    
+    public CompletableFuture<Result> setChargeStateAsync(boolean charging) {
+        return tesla.supplyAsync(charging ? Charge_Start : Charge_Stop, () -> setChargeState(charging));
+    }
+    public CompletableFuture<Result> startChargingAsync() { return setChargeStateAsync(true); }
+    public CompletableFuture<Result> stopChargingAsync() { return setChargeStateAsync(false); }
+    public CompletableFuture<Result> setChargeRangeAsync(boolean max) {
+        return tesla.supplyAsync(max ? Charge_SetMax : Charge_SetStd, () -> setChargeRange(max));
+    }
+    public CompletableFuture<Result> setChargePercentAsync(int percent) {
+        return tesla.supplyAsync(Charge_SetPct, () -> setChargePercent(percent));
+    }
+    
+    public CompletableFuture<Result> enableSpeedLimitingAsync(String pinCode) {
+        return tesla.supplyAsync(SpeedLimit_Enable, () -> enableSpeedLimiting(pinCode));
+    }
+    public CompletableFuture<Result> disableSpeedLimitingAsync(String pinCode) {
+        return tesla.supplyAsync(SpeedLimit_Disable, () -> disableSpeedLimiting(pinCode));
+    }
+    public CompletableFuture<Result> clearSpeedLimitPinAsync(String pinCode) {
+        return tesla.supplyAsync(SpeedLimit_ClearPin, () -> clearSpeedLimitPin(pinCode));
+    }
+    public CompletableFuture<Result> setSpeedLimitAsync(int speedInMph) {
+        return tesla.supplyAsync(SpeedLimit_Set, () -> setSpeedLimit(speedInMph));
+    }
+    
+    public CompletableFuture<Result> setValetModeAsync(boolean valetEnabled, String pinCode) {
+        return tesla.supplyAsync(ValetMode_Enable, () -> setValetMode(valetEnabled, pinCode));
+    }
+    public CompletableFuture<Result> clearValetPinAsync() {
+        return tesla.supplyAsync(ValetMode_ClearPin, () -> clearValetPin());
+    }
+    
+    public CompletableFuture<Result> toggleMediaPlaybackAsync() {
+        return tesla.supplyAsync(Media_Toggle_Playback, () -> toggleMediaPlayback());
+    }
+    public CompletableFuture<Result> nextMediaTrackAsync() {
+        return tesla.supplyAsync(Media_Next_Track, () -> nextMediaTrack());
+    }
+    public CompletableFuture<Result> previousMediaTrackAsync() {
+        return tesla.supplyAsync(Media_Prev_Track, () -> previousMediaTrack());
+    }
+    public CompletableFuture<Result> nextMediaFavoriteAsync() {
+        return tesla.supplyAsync(Media_Next_Fav, () -> nextMediaFavorite());
+    }
+    public CompletableFuture<Result> previousMediaFavoriteAsync() {
+        return tesla.supplyAsync(Media_Prev_Fav, () -> previousMediaFavorite());
+    }
+    public CompletableFuture<Result> increaseMediaVolumeAsync() {
+        return tesla.supplyAsync(Media_VolumeUp, () -> increaseMediaVolume());
+    }
+    public CompletableFuture<Result> decreaseMediaVolumeAsync() {
+        return tesla.supplyAsync(Media_VolumeDown, () -> decreaseMediaVolume());
+    }
+    
+    public CompletableFuture<Result> scheduleSoftwareUpdateAsync(int seconds) {
+        return tesla.supplyAsync(Schedule_SWUpdate, () -> scheduleSoftwareUpdate(seconds));
+    }
+    public CompletableFuture<Result> doSoftwareUpdateAsync() { return scheduleSoftwareUpdateAsync(0); }
+    public CompletableFuture<Result> cancelSoftwareUpdateAsync() {
+        return tesla.supplyAsync(Cancel_SWUpdate, () -> cancelSoftwareUpdate());
+    }
+    
+    public CompletableFuture<Result> setLockStateAsync(boolean locked) {
+        return tesla.supplyAsync(locked ? Doors_Lock : Doors_Unlock, () -> setLockState(locked));
+    }
+    public CompletableFuture<Result> lockDoorsAsync() { return setLockStateAsync(true); }
+    public CompletableFuture<Result> unlockDoorsAsync() { return setLockStateAsync(false); }
+    public CompletableFuture<Result> openChargePortAsync() {
+        return tesla.supplyAsync(Doors_OpenChargePort, () -> openChargePort());
+    }
+    public CompletableFuture<Result> closeChargePortAsync() {
+        return tesla.supplyAsync(Doors_CloseChargePort, () -> closeChargePort());
+    }
+    public CompletableFuture<Result> openFrunkAsync() {
+        return tesla.supplyAsync(Doors_Trunk, () -> openFrunk());
+    }
+    public CompletableFuture<Result> openTrunkAsync() {
+        return tesla.supplyAsync(Doors_Trunk, () -> openTrunk());
+    }
+    public CompletableFuture<Result> setPanoAsync(PanoCommand cmd) {
+        return tesla.supplyAsync(Doors_Sunroof, () -> setPano(cmd));
+    }
+    public CompletableFuture<Result> stopPanoAsync() {
+        return tesla.supplyAsync(Doors_Sunroof, () -> stopPano());
+    }
+    
+    public CompletableFuture<Result> honkAsync() {
+        return tesla.supplyAsync(Action_Honk, () -> honk());
+    }
+    public CompletableFuture<Result> flashLightsAsync() {
+        return tesla.supplyAsync(Action_Flash, () -> flashLights());
+    }
+    public CompletableFuture<Result> remoteStartAsync(String password) {
+        return tesla.supplyAsync(Action_RemoteStart, () -> remoteStart(password));
+    }
+    public CompletableFuture<Result> wakeUpAsync() {
+        return tesla.supplyAsync(Action_Wakeup, () -> wakeUp());
     }
     
 /*------------------------------------------------------------------------------
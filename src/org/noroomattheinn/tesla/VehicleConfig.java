@@ -52,7 +52,9 @@ public class VehicleConfig extends BaseState {
  * -------                                                               -------
  *============================================================================*/
     
-    public VehicleConfig(JSONObject source) {
+    public VehicleConfig(JSONObject source) { this(StateSource.of(source)); }
+    
+    VehicleConfig(StateSource source) {
         super(source);
         canAcceptNavRequests = source.optBoolean("can_accept_navigation_requests");
         canActuateTrunks = source.optBoolean("can_actuate_trunks");
@@ -0,0 +1,112 @@
+/*
+ * VehicleSnapshot.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * VehicleSnapshot: The complete state of a vehicle as returned by a single
+ * vehicle_data request. The response is fanned out into the same state
+ * objects returned by the individual queries (ChargeState, DriveState, etc.).
+ * Any section missing from the response is represented by an invalid
+ * (empty) state object.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class VehicleSnapshot extends BaseState {
+/*------------------------------------------------------------------------------
+ *
+ * Public State
+ *
+ *----------------------------------------------------------------------------*/
+    public final ChargeState    charge;
+    public final DriveState     drive;
+    public final GUIState       gui;
+    public final HVACState      hvac;
+    public final VehicleState   vehicleState;
+    public final VehicleConfig  vehicleConfig;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public VehicleSnapshot(JSONObject source) { this(StateSource.of(source)); }
+
+    VehicleSnapshot(StateSource source) {
+        super(source);
+        charge = new ChargeState(section(source, "charge_state"));
+        drive = new DriveState(section(source, "drive_state"));
+        gui = new GUIState(section(source, "gui_settings"));
+        hvac = new HVACState(section(source, "climate_state"));
+        vehicleState = new VehicleState(section(source, "vehicle_state"));
+        vehicleConfig = new VehicleConfig(section(source, "vehicle_config"));
+    }
+
+    /**
+     * Assemble a snapshot from individually obtained state objects. This is
+     * used when the vehicle_data request is unavailable or incomplete.
+     * @param source    The raw vehicle_data response, if any
+     */
+    VehicleSnapshot(JSONObject source, ChargeState charge, DriveState drive,
+                    GUIState gui, HVACState hvac, VehicleState vehicleState,
+                    VehicleConfig vehicleConfig) {
+        super(source, charge.valid || drive.valid || gui.valid || hvac.valid ||
+                      vehicleState.valid || vehicleConfig.valid);
+        this.charge = charge;
+        this.drive = drive;
+        this.gui = gui;
+        this.hvac = hvac;
+        this.vehicleState = vehicleState;
+        this.vehicleConfig = vehicleConfig;
+    }
+
+    /**
+     * Return the part of the snapshot corresponding to a StateType
+     * @param which The type of state desired
+     * @return      The corresponding state object
+     */
+    public BaseState get(Vehicle.StateType which) {
+        switch (which) {
+            case Charge: return charge;
+            case Drive: return drive;
+            case GUI: return gui;
+            case HVAC: return hvac;
+            case VehicleState: return vehicleState;
+            case VehicleConfig: return vehicleConfig;
+            default: return null;
+        }
+    }
+
+    /**
+     * Indicates whether every section of the snapshot is valid
+     * @return  true if all of the state objects are valid
+     *          false otherwise
+     */
+    public boolean isComplete() {
+        return charge.valid && drive.valid && gui.valid && hvac.valid &&
+               vehicleState.valid && vehicleConfig.valid;
+    }
+
+    @Override public String toString() {
+        return String.format(
+            "Charge:\n%s\nDrive:\n%s\nGUI:\n%s\nHVAC:\n%s\nVehicle State:\n%s\n",
+            charge, drive, gui, hvac, vehicleState);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Private Utility Methods
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static StateSource section(StateSource source, String name) {
+        StateSource s = source.optObject(name);
+        return (s == null) ? StateSource.of(emptyJSONObj) : s;
+    }
+}
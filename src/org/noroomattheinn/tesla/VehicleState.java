@@ -80,7 +80,9 @@ public class VehicleState extends BaseState {
  * -------                                                               -------
  *============================================================================*/
     
-    public VehicleState(JSONObject source) {
+    public VehicleState(JSONObject source) { this(StateSource.of(source)); }
+    
+    VehicleState(StateSource source) {
         super(source);
         apiVersion = source.optInt("api_version");
         isDFOpen = source.optInt("df") != 0;
@@ -112,33 +114,38 @@ public class VehicleState extends BaseState {
         isValetPinNeeded = source.optBoolean("valet_pin_needed");
         vehicleName = source.optString("vehicle_name");
         
-        mediaState = source.optJSONObject("media_state");
+        // The nested objects are only available when built from a JSONObject
+        mediaState = rawState.optJSONObject("media_state");
+        softwareUpdate = rawState.optJSONObject("software_update");
+        speedLimitMode = rawState.optJSONObject("speed_limit_mode");
+        
+        StateSource media = source.optObject("media_state");
         isRemoteControlEnabled = false;
-        if (mediaState != null) {
-            isRemoteControlEnabled = mediaState.optBoolean("remote_control_enabled");
+        if (media != null) {
+            isRemoteControlEnabled = media.optBoolean("remote_control_enabled");
         }
         
-        softwareUpdate = source.optJSONObject("software_update");
+        StateSource update = source.optObject("software_update");
         softwareUpdateExpectedDuration = 0;
         softwareUpdateStatus = "";
-        if (softwareUpdate != null) {
-            softwareUpdateExpectedDuration = softwareUpdate.optInt("expected_duration_sec");
-            softwareUpdateStatus = softwareUpdate.optString("status");
+        if (update != null) {
+            softwareUpdateExpectedDuration = update.optInt("expected_duration_sec");
+            softwareUpdateStatus = update.optString("status");
         }
         hasSoftwareUpdateAvailable = (softwareUpdateStatus != null && !softwareUpdateStatus.isEmpty());
         
-        speedLimitMode = source.optJSONObject("speed_limit_mode");
+        StateSource limits = source.optObject("speed_limit_mode");
         isSpeedLimitModeOn = false;
         isSpeedLimitPinSet = false;
         speedLimitCurrent = 0.0;
         speedLimitMax = 0;
         speedLimitMin = 0;
-        if (speedLimitMode != null) {
-            isSpeedLimitModeOn = speedLimitMode.optBoolean("active");
-            speedLimitCurrent = speedLimitMode.optDouble("current_limit_mph");
-            speedLimitMax = speedLimitMode.optInt("max_limit_mph");
-            speedLimitMin = speedLimitMode.optInt("min_limit_mph");
-            isSpeedLimitPinSet = speedLimitMode.optBoolean("pin_code_set");
+        if (limits != null) {
+            isSpeedLimitModeOn = limits.optBoolean("active");
+            speedLimitCurrent = limits.optDouble("current_limit_mph");
+            speedLimitMax = limits.optInt("max_limit_mph");
+            speedLimitMin = limits.optInt("min_limit_mph");
+            isSpeedLimitPinSet = limits.optBoolean("pin_code_set");
         }
     }
     
@@ -0,0 +1,50 @@
+/*
+ * VehicleStatus.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla;
+
+import us.monoid.json.JSONObject;
+
+/**
+ * VehicleStatus: A lightweight view of one entry in the vehicle list. It
+ * holds just enough to identify a vehicle and report whether it is awake,
+ * without the endpoints, Options, and Streamer that come with a Vehicle.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class VehicleStatus {
+/*------------------------------------------------------------------------------
+ *
+ * Public State
+ *
+ *----------------------------------------------------------------------------*/
+
+    public final String     vehicleID;
+    public final String     vin;
+    public final String     displayName;
+    public final String     state;      // "asleep", "waking", or "online"
+    public final boolean    inService;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public VehicleStatus(JSONObject description) {
+        vehicleID = description.optString("id");
+        vin = description.optString("vin");
+        displayName = description.optString("display_name");
+        state = description.optString("state");
+        inService = description.optBoolean("in_service");
+    }
+
+    public boolean isAsleep() { return "asleep".equals(state); }
+
+    @Override public String toString() {
+        return String.format("%s (%s): %s", displayName, vin, state);
+    }
+}
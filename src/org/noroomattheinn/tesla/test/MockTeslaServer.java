@@ -0,0 +1,572 @@
+/*
+ * MockTeslaServer.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.noroomattheinn.tesla.StreamState;
+import org.noroomattheinn.tesla.Tesla;
+import org.noroomattheinn.tesla.Vehicle;
+import org.noroomattheinn.tesla.VehicleSnapshot;
+import org.noroomattheinn.utils.Flow;
+import org.noroomattheinn.utils.PooledTransport;
+
+/**
+ * MockTeslaServer: A local stand-in for Tesla's owner API and streaming
+ * servers, so that Tesla, Vehicle and Streamer can be exercised without a
+ * car. It answers oauth/token, the vehicle list, data_request/*,
+ * vehicle_data, mobile_enabled, command/* and wake_up, and streams
+ * synthetic records. Create a Tesla that talks to it with newTesla(), or
+ * pass teslaURI() and streamingURI() to the Tesla constructor.
+ * <P>
+ * The server can be made to misbehave: every request can be delayed, and a
+ * fraction of them can fail with a 503 or a 401. Vehicles fall asleep after
+ * a period without requests, answer 408 while asleep, and take a while to
+ * wake up. Streaming tokens are only listed for vehicles that are awake,
+ * and they can be rotated periodically.
+ * <P>
+ * Run on its own it is a soak test: it streams and polls every vehicle and
+ * reports what it served.
+ * <P>
+ * Usage: MockTeslaServer [vehicles] [seconds]
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class MockTeslaServer {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static final String Username = "mock@example.com";
+    public static final String Password = "mock";
+    public static final String AccessToken = "mock-access-token";
+
+    private static final String OptionCodes = "MDLS,RENA,AU01,BP00,PBSB,RFPO,WT19,COUS";
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final HttpServer        server;
+    private final ExecutorService   executor;
+    private final List<MockVehicle> vehicles;
+    private final Set<String>       accessTokens;
+    private final AtomicLong        nextToken = new AtomicLong();
+
+    private volatile long   minLatency = 0, maxLatency = 0;
+    private volatile double errorRate = 0, unauthorizedRate = 0;
+    private volatile long   sleepAfter = 10 * 60 * 1000;
+    private volatile long   wakeDelay = 5 * 1000;
+    private volatile long   tokenLifetime = 0;
+    private volatile long   streamInterval = 250;
+    private volatile long   streamDuration = 2 * 60 * 1000;
+
+    // Statistics
+    private final AtomicLong nRequests = new AtomicLong();
+    private final AtomicLong nErrors = new AtomicLong();
+    private final AtomicLong nUnauthorized = new AtomicLong();
+    private final AtomicLong nUnavailable = new AtomicLong();
+    private final AtomicLong nStreams = new AtomicLong();
+    private final AtomicLong nRecords = new AtomicLong();
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a server with awake vehicles on an ephemeral local port
+     * @param nVehicles The number of vehicles on the account
+     * @throws IOException  If the server can't be created
+     */
+    public MockTeslaServer(int nVehicles) throws IOException { this(0, nVehicles); }
+
+    public MockTeslaServer(int port, int nVehicles) throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange x) throws IOException {
+                try {
+                    dispatch(x);
+                } finally {
+                    x.close();
+                }
+            }
+        });
+        // Each open stream holds a thread, so the pool can't be bounded
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        vehicles = new ArrayList<>();
+        for (int i = 0; i < nVehicles; i++) { vehicles.add(new MockVehicle(i)); }
+        accessTokens = ConcurrentHashMap.newKeySet();
+        accessTokens.add(AccessToken);
+    }
+
+    public void start() { server.start(); }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String teslaURI() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public String streamingURI() { return teslaURI(); }
+
+    /**
+     * Create a Tesla object that talks to this server. Connect it with
+     * connect(Username, Password) or connectWithToken(Username, AccessToken).
+     * The server has no rate limits, so the Tesla object's requests aren't
+     * throttled. To test pacing, give it a budget with setRequestBudget().
+     * @return  The new Tesla object
+     */
+    public Tesla newTesla() {
+        Tesla tesla = new Tesla(new PooledTransport(), teslaURI(), streamingURI());
+        tesla.setRequestBudget(null);
+        return tesla;
+    }
+
+    /**
+     * Delay every response by a random time in a range
+     * @param min   The shortest delay (ms)
+     * @param max   The longest delay (ms)
+     */
+    public void setLatency(long min, long max) {
+        minLatency = min;
+        maxLatency = Math.max(min, max);
+    }
+
+    /**
+     * Fail a fraction of requests with a 503
+     * @param rate  The fraction, 0 to 1
+     */
+    public void setErrorRate(double rate) { errorRate = rate; }
+
+    /**
+     * Reject a fraction of requests with a 401
+     * @param rate  The fraction, 0 to 1
+     */
+    public void setUnauthorizedRate(double rate) { unauthorizedRate = rate; }
+
+    /**
+     * Set how long a vehicle stays awake without requests. 0 means the
+     * vehicles never sleep.
+     * @param millis    The idle time before sleeping
+     */
+    public void setSleepAfter(long millis) { sleepAfter = millis; }
+
+    public void setWakeDelay(long millis) { wakeDelay = millis; }
+
+    /**
+     * Set how long a streaming token is valid. When it expires the older
+     * token is dropped and a new one issued, as Tesla's servers do. 0 means
+     * tokens never expire.
+     * @param millis    The token lifetime
+     */
+    public void setTokenLifetime(long millis) { tokenLifetime = millis; }
+
+    /**
+     * Set how often streams produce a record and how long a stream lasts
+     * before the server ends it
+     * @param interval  The time between records (ms)
+     * @param duration  The length of a stream (ms)
+     */
+    public void setStreaming(long interval, long duration) {
+        streamInterval = interval;
+        streamDuration = duration;
+    }
+
+    /**
+     * Put a vehicle to sleep now
+     * @param index The vehicle's position in the vehicle list
+     */
+    public void sleep(int index) { vehicles.get(index).sleep(); }
+
+    @Override public String toString() {
+        return String.format(
+                "requests: %d, injected errors: %d, 401s: %d, 408s: %d, streams: %d, records: %d",
+                nRequests.get(), nErrors.get(), nUnauthorized.get(), nUnavailable.get(),
+                nStreams.get(), nRecords.get());
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Handling requests
+ *
+ *----------------------------------------------------------------------------*/
+
+    private void dispatch(HttpExchange x) throws IOException {
+        nRequests.incrementAndGet();
+        drain(x.getRequestBody());
+        String path = x.getRequestURI().getPath();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (maxLatency > 0) {
+            try {
+                Thread.sleep(minLatency + random.nextLong(maxLatency - minLatency + 1));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        if (random.nextDouble() < errorRate) {
+            nErrors.incrementAndGet();
+            respond(x, 503, "{\"response\":null,\"error\":\"mock: service unavailable\"}");
+            return;
+        }
+        if (random.nextDouble() < unauthorizedRate) {
+            unauthorized(x);
+            return;
+        }
+
+        if (path.startsWith("/stream/")) {
+            stream(x, path.substring("/stream/".length()).replace("/", ""));
+        } else if (path.equals("/oauth/token")) {
+            String token = "mock-" + nextToken.incrementAndGet();
+            accessTokens.add(token);
+            respond(x, 200, String.format(Locale.US,
+                    "{\"access_token\":\"%s\",\"token_type\":\"bearer\"," +
+                    "\"expires_in\":3888000,\"created_at\":%d}",
+                    token, System.currentTimeMillis() / 1000));
+        } else if (!authorized(x)) {
+            unauthorized(x);
+        } else if (path.equals("/api/1/vehicles")) {
+            StringBuilder list = new StringBuilder("{\"response\":[");
+            for (MockVehicle v : vehicles) {
+                if (v != vehicles.get(0)) list.append(',');
+                list.append(v.description());
+            }
+            respond(x, 200, list.append("],\"count\":").append(vehicles.size()).append('}').toString());
+        } else if (path.startsWith("/api/1/vehicles/")) {
+            String[] parts = path.substring("/api/1/vehicles/".length()).split("/", 2);
+            MockVehicle v = find(parts[0]);
+            if (v == null || parts.length < 2) {
+                respond(x, 404, "{\"response\":null,\"error\":\"not_found\"}");
+            } else {
+                vehicleRequest(x, v, parts[1]);
+            }
+        } else {
+            respond(x, 404, "{\"response\":null,\"error\":\"not_found\"}");
+        }
+    }
+
+    private void vehicleRequest(HttpExchange x, MockVehicle v, String request) throws IOException {
+        if (request.equals("wake_up")) {
+            v.wake();
+            respond(x, 200, "{\"response\":" + v.description() + "}");
+            return;
+        }
+        if (!v.touch()) {
+            nUnavailable.incrementAndGet();
+            respond(x, 408, "{\"response\":null,\"error\":\"vehicle unavailable: asleep\"}");
+            return;
+        }
+        String section;
+        if (request.equals("mobile_enabled")) {
+            section = "true";
+        } else if (request.equals("vehicle_data")) {
+            section = v.vehicleData();
+        } else if (request.startsWith("data_request/")) {
+            section = v.section(request.substring("data_request/".length()));
+        } else if (request.startsWith("command/")) {
+            section = "{\"reason\":\"\",\"result\":true}";
+        } else {
+            section = null;
+        }
+        if (section == null) {
+            respond(x, 404, "{\"response\":null,\"error\":\"not_found\"}");
+        } else {
+            respond(x, 200, "{\"response\":" + section + "}");
+        }
+    }
+
+    private void stream(HttpExchange x, String streamingVID) throws IOException {
+        MockVehicle v = null;
+        for (MockVehicle mv : vehicles) {
+            if (mv.streamingVID.equals(streamingVID)) v = mv;
+        }
+        String auth = x.getRequestHeaders().getFirst("Authorization");
+        String token = null;
+        if (auth != null && auth.startsWith("Basic ")) {
+            String credentials = new String(
+                    Base64.getDecoder().decode(auth.substring(6).trim()), StandardCharsets.UTF_8);
+            token = credentials.substring(credentials.indexOf(':') + 1);
+        }
+        if (v == null || token == null || !v.validToken(token)) {
+            unauthorized(x);
+            return;
+        }
+
+        nStreams.incrementAndGet();
+        x.sendResponseHeaders(200, 0);
+        long end = System.currentTimeMillis() + streamDuration;
+        try (OutputStream out = x.getResponseBody()) {
+            while (System.currentTimeMillis() < end && v.touch()) {
+                out.write(v.streamRecord(streamInterval).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                nRecords.incrementAndGet();
+                Thread.sleep(streamInterval);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down
+        } catch (IOException e) {
+            // The client went away
+        }
+    }
+
+    private boolean authorized(HttpExchange x) {
+        String auth = x.getRequestHeaders().getFirst("Authorization");
+        return auth != null && auth.startsWith("Bearer ") &&
+               accessTokens.contains(auth.substring(7).trim());
+    }
+
+    private void unauthorized(HttpExchange x) throws IOException {
+        nUnauthorized.incrementAndGet();
+        respond(x, 401, "{\"error\":\"invalid_token\"}");
+    }
+
+    private MockVehicle find(String id) {
+        for (MockVehicle v : vehicles) { if (v.id.equals(id)) return v; }
+        return null;
+    }
+
+    private static void respond(HttpExchange x, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        x.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        x.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = x.getResponseBody()) { out.write(bytes); }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[1024];
+        while (in.read(buf) != -1) { }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - A simulated vehicle
+ *
+ *----------------------------------------------------------------------------*/
+
+    private class MockVehicle {
+        final String id, streamingVID, vin, name;
+        long    lastActivity, wakeAt = 0, tokensIssuedAt;
+        boolean asleep = false;
+        String[] tokens = new String[2];
+        double  odometer, lat, lng, speed = 0;
+        int     soc, heading;
+
+        MockVehicle(int index) {
+            id = String.valueOf(10000000000L + index);
+            streamingVID = String.valueOf(20000 + index);
+            vin = String.format("5YJSA1CN0DFP%05d", index);
+            name = "Mock " + (index + 1);
+            odometer = 10000 + 1000 * index;
+            lat = 37.39 + index * 0.01;
+            lng = -122.15;
+            soc = 80;
+            lastActivity = tokensIssuedAt = System.currentTimeMillis();
+            tokens[0] = newToken();
+            tokens[1] = newToken();
+        }
+
+        // Record activity. Returns false if the vehicle is asleep.
+        synchronized boolean touch() {
+            if (!awake()) return false;
+            lastActivity = System.currentTimeMillis();
+            return true;
+        }
+
+        synchronized void sleep() { asleep = true; wakeAt = 0; }
+
+        synchronized void wake() {
+            if (awake() || wakeAt != 0) return;
+            wakeAt = System.currentTimeMillis() + wakeDelay;
+        }
+
+        synchronized boolean validToken(String token) {
+            return awake() && (token.equals(tokens[0]) || token.equals(tokens[1]));
+        }
+
+        private boolean awake() {
+            long now = System.currentTimeMillis();
+            if (asleep && wakeAt != 0 && now >= wakeAt) {
+                asleep = false;
+                wakeAt = 0;
+                lastActivity = now;
+            } else if (!asleep && sleepAfter > 0 && now - lastActivity > sleepAfter) {
+                asleep = true;
+                speed = 0;
+            }
+            if (!asleep && tokenLifetime > 0 && now - tokensIssuedAt > tokenLifetime) {
+                tokens[0] = tokens[1];
+                tokens[1] = newToken();
+                tokensIssuedAt = now;
+            }
+            return !asleep;
+        }
+
+        private String newToken() { return Long.toHexString(ThreadLocalRandom.current().nextLong()); }
+
+        synchronized String description() {
+            boolean awake = awake();
+            return String.format(Locale.US,
+                    "{\"id\":%s,\"id_s\":\"%s\",\"vehicle_id\":%s,\"vin\":\"%s\"," +
+                    "\"display_name\":\"%s\",\"option_codes\":\"%s\",\"color\":null," +
+                    "\"tokens\":%s,\"state\":\"%s\",\"in_service\":false," +
+                    "\"api_version\":3,\"user_id\":1}",
+                    id, id, streamingVID, vin, name, OptionCodes,
+                    awake ? "[\"" + tokens[0] + "\",\"" + tokens[1] + "\"]" : "null",
+                    awake ? "online" : "asleep");
+        }
+
+        synchronized String vehicleData() {
+            return String.format(
+                    "{\"id\":%s,\"vehicle_id\":%s,\"state\":\"online\"," +
+                    "\"charge_state\":%s,\"drive_state\":%s,\"gui_settings\":%s," +
+                    "\"climate_state\":%s,\"vehicle_state\":%s,\"vehicle_config\":%s}",
+                    id, streamingVID, section("charge_state"), section("drive_state"),
+                    section("gui_settings"), section("climate_state"),
+                    section("vehicle_state"), section("vehicle_config"));
+        }
+
+        synchronized String section(String name) {
+            long now = System.currentTimeMillis();
+            switch (name) {
+                case "charge_state":
+                    return String.format(Locale.US,
+                            "{\"charging_state\":\"Disconnected\",\"battery_level\":%d," +
+                            "\"usable_battery_level\":%d,\"battery_range\":%.2f," +
+                            "\"est_battery_range\":%.2f,\"ideal_battery_range\":%.2f," +
+                            "\"charge_limit_soc\":90,\"charge_rate\":0.0,\"charger_power\":0," +
+                            "\"charge_port_door_open\":false,\"timestamp\":%d}",
+                            soc, soc, soc * 2.65, soc * 2.4, soc * 3.1, now);
+                case "drive_state":
+                    return String.format(Locale.US,
+                            "{\"shift_state\":%s,\"speed\":%s,\"power\":%d,\"latitude\":%.6f," +
+                            "\"longitude\":%.6f,\"heading\":%d,\"gps_as_of\":%d,\"timestamp\":%d}",
+                            speed > 0 ? "\"D\"" : "null", speed > 0 ? String.valueOf((int)speed) : "null",
+                            (int)(speed * 0.3), lat, lng, heading, now / 1000, now);
+                case "gui_settings":
+                    return "{\"gui_distance_units\":\"mi/hr\",\"gui_temperature_units\":\"F\"," +
+                           "\"gui_charge_rate_units\":\"mi/hr\",\"gui_24_hour_time\":false," +
+                           "\"gui_range_display\":\"Rated\",\"timestamp\":" + now + "}";
+                case "climate_state":
+                    return "{\"inside_temp\":21.5,\"outside_temp\":17.0,\"driver_temp_setting\":21.0," +
+                           "\"passenger_temp_setting\":21.0,\"is_auto_conditioning_on\":false," +
+                           "\"is_climate_on\":false,\"fan_status\":0,\"timestamp\":" + now + "}";
+                case "vehicle_state":
+                    return String.format(Locale.US,
+                            "{\"api_version\":3,\"car_version\":\"2026.40.1\",\"locked\":true," +
+                            "\"odometer\":%.6f,\"df\":0,\"pf\":0,\"dr\":0,\"pr\":0,\"ft\":0,\"rt\":0," +
+                            "\"valet_mode\":false,\"is_user_present\":false," +
+                            "\"vehicle_name\":\"%s\",\"timestamp\":%d}",
+                            odometer, name, now);
+                case "vehicle_config":
+                    return "{\"car_type\":\"models\",\"exterior_color\":\"Red\"," +
+                           "\"wheel_type\":\"Base19\",\"has_air_suspension\":true," +
+                           "\"rhd\":false,\"timestamp\":" + now + "}";
+                default:
+                    return null;
+            }
+        }
+
+        // One streaming record, in the order of Streamer.Keys, for a car
+        // that has been driving around for the last interval
+        synchronized String streamRecord(long interval) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            speed = Math.max(0, Math.min(75, speed + random.nextDouble(-5, 6)));
+            heading = (heading + random.nextInt(-10, 11) + 360) % 360;
+            double miles = speed * interval / 3600000.0;
+            odometer += miles;
+            lat += miles / 69.0 * Math.cos(Math.toRadians(heading));
+            lng += miles / 54.6 * Math.sin(Math.toRadians(heading));
+            int power = (int)(speed * 0.3) + random.nextInt(-5, 20);
+            return String.format(Locale.US, "%d,%.1f,%d,%d,%d,%d,%.6f,%.6f,%d,%s,%d,%d,%d\r\n",
+                    System.currentTimeMillis(), odometer, (int)speed, soc, 50 + random.nextInt(5),
+                    heading, lat, lng, power, speed > 0 ? "D" : "P",
+                    (int)(soc * 2.65), (int)(soc * 2.4), heading);
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * Soak test
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static void main(String[] args) throws Exception {
+        int nVehicles = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+        MockTeslaServer server = new MockTeslaServer(nVehicles);
+        server.setLatency(20, 150);
+        server.setErrorRate(0.02);
+        server.setTokenLifetime(30 * 1000);
+        server.setStreaming(250, 20 * 1000);
+        server.start();
+
+        Tesla tesla = server.newTesla();
+        if (!tesla.connect(Username, Password)) {
+            System.err.println("Unable to connect to " + server.teslaURI());
+            server.stop();
+            System.exit(1);
+        }
+
+        final AtomicLong nStreamed = new AtomicLong(), nSnapshots = new AtomicLong();
+        List<Vehicle> vehicles = tesla.getVehicles();
+        for (Vehicle v : vehicles) {
+            v.getStreamer().publisher().subscribe(new Flow.Subscriber<StreamState>() {
+                @Override public void onSubscribe(Flow.Subscription s) { s.request(Long.MAX_VALUE); }
+                @Override public void onNext(StreamState state) { nStreamed.incrementAndGet(); }
+                @Override public void onError(Throwable t) { t.printStackTrace(); }
+                @Override public void onComplete() { }
+            });
+        }
+
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        while (System.currentTimeMillis() < end) {
+            for (Vehicle v : vehicles) {
+                VehicleSnapshot s = v.querySnapshot();
+                if (s.valid) nSnapshots.incrementAndGet();
+            }
+            Thread.sleep(5 * 1000);
+            System.out.format("streamed: %d, snapshots: %d -- server %s\n",
+                    nStreamed.get(), nSnapshots.get(), server);
+        }
+
+        for (Vehicle v : vehicles) { v.getStreamer().publisher().close(); }
+        tesla.getTransport().close();
+        server.stop();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * RateLimiterTest.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.noroomattheinn.utils.Pair;
+import org.noroomattheinn.utils.RateLimiter;
+
+/**
+ * RateLimiterTest: Drives a RateLimiter from several threads at once, using
+ * every way of acquiring a permit, and checks that no window of any limit's
+ * period ever holds more than that limit's count of requests. The time of
+ * each request is taken just after its permit was granted, so windows are
+ * checked a few milliseconds short of the full period to allow for the
+ * scheduling delay between the two. Exits with status 1 on failure.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class RateLimiterTest {
+
+    static final long SlackInNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        checkBurst();
+        checkWindows("10 in 1s, tryAcquire", limits(10, 1), 3500, false);
+        checkWindows("10 in 1s + 20 in 3s, mixed", limits(10, 1, 20, 3), 7500, true);
+        System.out.println(failures == 0 ? "PASS" : "FAIL: " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // A full window allows exactly count requests and then nothing more
+    // until the oldest of them is a full period old
+    static void checkBurst() {
+        RateLimiter limiter = new RateLimiter(limits(10, 1));
+        int granted = 0;
+        while (limiter.tryAcquire()) { granted++; }
+        if (granted != 10) fail("Burst", "granted " + granted + " of 10");
+        long wait = limiter.nanosUntilAvailable();
+        if (wait < TimeUnit.MILLISECONDS.toNanos(900)) {
+            fail("Burst", "next permit in " + wait / 1000000 + "ms, expected about 1000ms");
+        }
+        if (limiter.bindingLimit() == null) fail("Burst", "no binding limit");
+    }
+
+    static void checkWindows(String what, final List<Pair<Integer,Integer>> limits,
+                             long durationInMillis, boolean mixed) throws Exception {
+        final RateLimiter limiter = new RateLimiter(limits);
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationInMillis);
+        final List<Long> times = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int mode = mixed ? t : 0;
+            threads.add(new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        while (System.nanoTime() < end) { acquire(limiter, mode, times); }
+                    } catch (InterruptedException e) { }
+                }
+            }));
+        }
+        for (Thread t : threads) { t.start(); }
+        for (Thread t : threads) { t.join(); }
+        Thread.sleep(100);  // Let the last async acquisitions complete
+
+        long[] sorted;
+        synchronized (times) {
+            sorted = new long[times.size()];
+            for (int i = 0; i < sorted.length; i++) { sorted[i] = times.get(i); }
+        }
+        Arrays.sort(sorted);
+        for (Pair<Integer,Integer> limit : limits) {
+            long window = TimeUnit.SECONDS.toNanos(limit.item2) - SlackInNanos;
+            int most = mostInAnyWindow(sorted, window);
+            System.out.format("%-30s %4d requests, at most %2d in any %ds window (limit %d)\n",
+                    what, sorted.length, most, limit.item2, limit.item1);
+            if (most > limit.item1) {
+                fail(what, most + " requests in " + limit.item2 + "s, limit " + limit.item1);
+            }
+        }
+    }
+
+    static void acquire(RateLimiter limiter, int mode, final List<Long> times)
+            throws InterruptedException {
+        switch (mode) {
+            case 0:
+                if (limiter.tryAcquire()) { record(times); } else { Thread.sleep(1); }
+                break;
+            case 1:
+                limiter.acquire();
+                record(times);
+                break;
+            case 2:
+                limiter.acquire(2);
+                record(times);
+                break;
+            default:
+                limiter.acquireAsync().thenRun(new Runnable() {
+                    @Override public void run() { record(times); }
+                });
+                Thread.sleep(300);
+                break;
+        }
+    }
+
+    static void record(List<Long> times) {
+        long now = System.nanoTime();
+        synchronized (times) { times.add(now); }
+    }
+
+    static int mostInAnyWindow(long[] sorted, long window) {
+        int most = 0;
+        for (int first = 0, last = 0; last < sorted.length; last++) {
+            while (sorted[last] - sorted[first] >= window) { first++; }
+            most = Math.max(most, last - first + 1);
+        }
+        return most;
+    }
+
+    static List<Pair<Integer,Integer>> limits(int... countsAndSeconds) {
+        List<Pair<Integer,Integer>> limits = new ArrayList<>();
+        for (int i = 0; i < countsAndSeconds.length; i += 2) {
+            limits.add(new Pair<>(countsAndSeconds[i], countsAndSeconds[i + 1]));
+        }
+        return limits;
+    }
+
+    static void fail(String what, String why) {
+        failures++;
+        System.out.println("FAILED " + what + ": " + why);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * StateCodecTest.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.noroomattheinn.tesla.BaseState;
+import org.noroomattheinn.tesla.ChargeState;
+import org.noroomattheinn.tesla.DriveState;
+import org.noroomattheinn.tesla.GUIState;
+import org.noroomattheinn.tesla.HVACState;
+import org.noroomattheinn.tesla.StateCodec;
+import org.noroomattheinn.tesla.StateDelta;
+import org.noroomattheinn.tesla.StreamState;
+import org.noroomattheinn.tesla.VehicleConfig;
+import org.noroomattheinn.tesla.VehicleState;
+import us.monoid.json.JSONObject;
+
+/**
+ * StateCodecTest: Checks that every supported state class survives a round
+ * trip through StateCodec, singly and as a sequence, that invalid states stay
+ * invalid, and that corrupt input is rejected. Also checks that a StateDelta
+ * between two states, and its binary form, turns one into the other. Reports
+ * the size of each encoding next to the size of its JSON. Exits with status 1
+ * on failure.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class StateCodecTest {
+
+    static final String Charge =
+            "{\"charging_state\":\"Charging\",\"charge_limit_soc\":90," +
+            "\"battery_range\":201.55,\"est_battery_range\":180.12," +
+            "\"ideal_battery_range\":240.7,\"battery_level\":72," +
+            "\"charger_pilot_current\":40,\"charger_power\":10," +
+            "\"time_to_full_charge\":1.75,\"charge_rate\":29.6," +
+            "\"charge_port_door_open\":true,\"conn_charge_cable\":\"SAE\"," +
+            "\"scheduled_charging_start_time\":null,\"charger_phases\":1," +
+            "\"fast_charger_type\":\"<invalid>\",\"charge_port_latch\":\"Engaged\"}";
+
+    static final String Drive =
+            "{\"shift_state\":\"D\",\"speed\":42,\"power\":18,\"latitude\":37.4919," +
+            "\"longitude\":-121.9447,\"heading\":181,\"gps_as_of\":1508793015," +
+            "\"native_location_supported\":1,\"native_type\":\"wgs\"}";
+
+    static final String GUI =
+            "{\"gui_distance_units\":\"mi/hr\",\"gui_temperature_units\":\"F\"," +
+            "\"gui_charge_rate_units\":\"mi/hr\",\"gui_24_hour_time\":false," +
+            "\"gui_range_display\":\"Rated\"}";
+
+    static final String HVAC =
+            "{\"inside_temp\":21.5,\"outside_temp\":17.0,\"driver_temp_setting\":21.0," +
+            "\"passenger_temp_setting\":21.0,\"is_climate_on\":true,\"fan_status\":3," +
+            "\"seat_heater_left\":1,\"left_temp_direction\":0}";
+
+    static final String Vehicle =
+            "{\"api_version\":3,\"car_version\":\"2026.40.1\",\"df\":0,\"pf\":1," +
+            "\"locked\":true,\"media_state\":{\"remote_control_enabled\":true}," +
+            "\"odometer\":20125.305648,\"sun_roof_state\":\"vent\"," +
+            "\"software_update\":{\"expected_duration_sec\":2700,\"status\":\"available\"}," +
+            "\"speed_limit_mode\":{\"active\":true,\"current_limit_mph\":85.0}," +
+            "\"vehicle_name\":\"Test\"}";
+
+    static final String Config =
+            "{\"car_type\":\"models2\",\"exterior_color\":\"Pearl\",\"rhd\":false," +
+            "\"rear_seat_heaters\":1,\"sun_roof_installed\":2,\"wheel_type\":\"Base19\"}";
+
+    static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        List<BaseState> states = new ArrayList<>();
+        states.add(new ChargeState(new JSONObject(Charge)));
+        states.add(new DriveState(new JSONObject(Drive)));
+        states.add(new GUIState(new JSONObject(GUI)));
+        states.add(new HVACState(new JSONObject(HVAC)));
+        states.add(new VehicleState(new JSONObject(Vehicle)));
+        states.add(new VehicleConfig(new JSONObject(Config)));
+        states.add(new ChargeState());
+        states.add(streamState());
+
+        for (BaseState s : states) {
+            byte[] bytes = StateCodec.encode(s);
+            BaseState decoded = StateCodec.decode(bytes);
+            check(s.getClass().getSimpleName(), s, decoded);
+            check(s.getClass().getSimpleName() + " (re-encoded)",
+                    s, StateCodec.decode(StateCodec.encode(decoded)));
+            System.out.format("    %-14s %4d bytes binary, %4d bytes JSON\n",
+                    s.getClass().getSimpleName(), bytes.length,
+                    s.rawState.toString().getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateCodec.Writer writer = new StateCodec.Writer(new DataOutputStream(out));
+        for (int i = 0; i < 3; i++) { for (BaseState s : states) { writer.write(s); } }
+        StateCodec.Reader reader = new StateCodec.Reader(
+                new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        for (int i = 0; i < 3; i++) {
+            for (BaseState s : states) { check("Sequence", s, reader.read()); }
+        }
+        try {
+            reader.read();
+            fail("Sequence", "read past the end");
+        } catch (EOFException e) { }
+        System.out.format("    %d states in sequence: %d bytes\n", 3 * states.size(), out.size());
+
+        byte[] corrupt = StateCodec.encode(states.get(0));
+        corrupt[2] ^= 1;    // Damage the fingerprint
+        try {
+            StateCodec.decode(corrupt);
+            fail("Corrupt", "accepted a bad fingerprint");
+        } catch (IOException e) { }
+
+        checkDeltas();
+
+        System.out.println(failures == 0 ? "PASS" : "FAIL: " + failures + " failures");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    static void checkDeltas() throws Exception {
+        VehicleState before = new VehicleState(new JSONObject(Vehicle));
+        JSONObject changed = new JSONObject(Vehicle);
+        changed.put("locked", false);
+        changed.put("odometer", 20131.5);
+        changed.getJSONObject("speed_limit_mode").put("current_limit_mph", 70.0);
+        changed.remove("media_state");
+        VehicleState after = new VehicleState(changed);
+
+        StateDelta<VehicleState> delta = StateDelta.between(before, after);
+        if (delta.size() != 4) fail("Delta", "expected 4 changes, got " + delta.changedKeys());
+        check("Delta", after, delta.apply(before));
+        check("Delta (reversed)", before, StateDelta.between(after, before).apply(after));
+        check("Delta (from nothing)", after, StateDelta.between(null, after).apply(null));
+        if (!StateDelta.between(after, delta.apply(before)).isEmpty()) {
+            fail("Delta", "applied delta differs from its target");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        delta.writeTo(new DataOutputStream(out));
+        StateDelta<?> read = StateDelta.readFrom(
+                new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        if (read.stateClass() != VehicleState.class) {
+            fail("Delta (binary)", "read a delta for " + read.stateClass());
+        } else {
+            @SuppressWarnings("unchecked")
+            StateDelta<VehicleState> typed = (StateDelta<VehicleState>)read;
+            check("Delta (binary)", after, typed.apply(before));
+        }
+        System.out.format("    %s: %d bytes, full state %d bytes\n",
+                delta, out.size(), StateCodec.encode(after).length);
+    }
+
+    static StreamState streamState() {
+        StreamState s = StreamState.newReusable();
+        s.vehicleTimestamp = 1508793015713L;
+        s.speed = 42.5;
+        s.odometer = 20125.3;
+        s.soc = 72;
+        s.elevation = 30;
+        s.estHeading = 180;
+        s.heading = 181;
+        s.estLat = 37.4919;
+        s.estLng = -121.9447;
+        s.power = 18;
+        s.range = 201;
+        s.estRange = 180;
+        return s;
+    }
+
+    // Compare the public fields, other than rawState, of two state objects
+    static void check(String what, BaseState expected, BaseState actual) throws Exception {
+        if (expected.getClass() != actual.getClass()) {
+            fail(what, "decoded as " + actual.getClass().getSimpleName());
+            return;
+        }
+        for (Field f : expected.getClass().getFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.getName().equals("rawState")) continue;
+            Object e = f.get(expected), a = f.get(actual);
+            if (e == null ? a != null : !e.equals(a)) {
+                fail(what, f.getName() + ": expected " + e + ", got " + a);
+            }
+        }
+        if (expected instanceof StreamState &&
+            !((StreamState)expected).shiftState().equals(((StreamState)actual).shiftState())) {
+            fail(what, "shiftState differs");
+        }
+    }
+
+    static void fail(String what, String why) {
+        failures++;
+        System.out.println("FAILED " + what + ": " + why);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * StreamParserBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.noroomattheinn.tesla.StreamParser;
+import org.noroomattheinn.tesla.StreamState;
+import org.noroomattheinn.tesla.Streamer;
+import us.monoid.json.JSONException;
+import us.monoid.json.JSONObject;
+
+/**
+ * StreamParserBenchmark: Compares decoding streaming records the way
+ * Streamer used to (readLine, split, JSONObject, StreamState) with a
+ * StreamParser filling a reused StreamState. Reports time and bytes
+ * allocated per record.
+ * <P>
+ * Usage: StreamParserBenchmark [records] [rounds]
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class StreamParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int nRecords = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int nRounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] data = generate(nRecords);
+
+        for (int round = 0; round < nRounds; round++) {
+            boolean report = (round == nRounds - 1);
+            measure("readLine/split/JSONObject", report, nRecords, () -> legacy(data));
+            measure("StreamParser, reused StreamState", report, nRecords, () -> parser(data));
+        }
+    }
+
+    static byte[] generate(int nRecords) {
+        Random r = new Random(42);
+        String[] shifts = {"", "P", "D", "R", "N"};
+        StringBuilder sb = new StringBuilder();
+        long ts = 1400000000000L;
+        for (int i = 0; i < nRecords; i++) {
+            sb.append(ts += 500).append(',')
+              .append(String.format("%.1f", 10000 + r.nextDouble() * 1000)).append(',')
+              .append(r.nextInt(80)).append(',')
+              .append(r.nextInt(100)).append(',')
+              .append(r.nextInt(500)).append(',')
+              .append(r.nextInt(360)).append(',')
+              .append(String.format("%.6f", 37 + r.nextDouble())).append(',')
+              .append(String.format("%.6f", -122 + r.nextDouble())).append(',')
+              .append(r.nextInt(200) - 50).append(',')
+              .append(shifts[r.nextInt(shifts.length)]).append(',')
+              .append(r.nextInt(300)).append(',')
+              .append(r.nextInt(300)).append(',')
+              .append(r.nextInt(360)).append("\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static long legacy(byte[] data) throws IOException {
+        Streamer.Keys[] keyList = Streamer.Keys.values();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(data)));
+        long checksum = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            JSONObject jo = new JSONObject();
+            String vals[] = line.split(",");
+            for (int i = 0; i < keyList.length; i++) {
+                try {
+                    jo.put(keyList[i], vals[i]);
+                } catch (JSONException ex) {
+                    return -1;
+                }
+            }
+            checksum += new StreamState(jo).soc;
+        }
+        return checksum;
+    }
+
+    static long parser(byte[] data) throws IOException {
+        StreamParser p = new StreamParser(new ByteArrayInputStream(data));
+        StreamState s = StreamState.newReusable();
+        long checksum = 0;
+        while (p.next(s)) { checksum += s.soc; }
+        return checksum;
+    }
+
+    interface Body { long run() throws Exception; }
+
+    private static void measure(String name, boolean report, int nRecords, Body body)
+            throws Exception {
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long bytes0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        long checksum = body.run();
+        long elapsed = System.nanoTime() - t0;
+        long bytes = mx.getThreadAllocatedBytes(tid) - bytes0;
+        if (report) {
+            System.out.format("%-35s %8.1f ns/record %8.1f bytes/record (checksum %d)\n",
+                    name, elapsed / (double)nRecords, bytes / (double)nRecords, checksum);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * StreamParserTest.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.noroomattheinn.tesla.StreamParser;
+import org.noroomattheinn.tesla.StreamState;
+
+/**
+ * StreamParserTest: Checks that StreamParser decodes the decimal fields of a
+ * record to exactly the value Double.parseDouble gives for the same text.
+ * Numbers of up to 20 digits, with and without a sign and a fraction, are
+ * generated at random, along with a few known hard cases. Exits with status
+ * 1 on failure.
+ * <P>
+ * Usage: StreamParserTest [samples] [seed]
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class StreamParserTest {
+
+    static final String[] Known = {
+        "52721178218.599590", "0.1", "-0.0", "0", "9007199254740993",
+        "123456789012345.6", "1.7976931348623157", "0.000000000000000000000001",
+        "37.49190000000000000", "-121.9447", "20125.305648"
+    };
+
+    static int failures = 0;
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Random random = new Random(seed);
+
+        StreamState s = StreamState.newReusable();
+        for (String n : Known) { check(n, s); }
+        for (int i = 0; i < samples; i++) { check(randomNumber(random), s); }
+
+        System.out.format("%d samples (seed %d): %s\n", samples + Known.length, seed,
+                failures == 0 ? "PASS" : "FAIL: " + failures + " differ");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // Decode the number as the odometer field of a record
+    static void check(String n, StreamState s) {
+        byte[] record = ("1508793015713," + n + ",0,72,0,0,0,0,0,D,200,180,0")
+                .getBytes(StandardCharsets.US_ASCII);
+        StreamParser.parse(record, 0, record.length, s);
+        double expected = Double.parseDouble(n);
+        if (Double.doubleToLongBits(s.odometer) != Double.doubleToLongBits(expected)) {
+            if (++failures <= 10) {
+                System.out.println("FAILED " + n + ": got " + s.odometer + ", expected " + expected);
+            }
+        }
+    }
+
+    static String randomNumber(Random random) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(4) == 0) sb.append('-');
+        int nDigits = 1 + random.nextInt(20);
+        int point = random.nextInt(nDigits + 1);    // nDigits means no point
+        for (int i = 0; i < nDigits; i++) {
+            if (i == point && i > 0) sb.append('.');
+            sb.append((char)('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
@@ -6,11 +6,13 @@
 
 package org.noroomattheinn.tesla.test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.noroomattheinn.utils.Handler;
+import org.noroomattheinn.tesla.StreamPublisher;
 import org.noroomattheinn.tesla.StreamState;
-import org.noroomattheinn.tesla.Streamer;
 import org.noroomattheinn.tesla.Vehicle;
-import org.noroomattheinn.utils.Utils;
+import org.noroomattheinn.utils.Flow;
 
 /**
  * StreamHandler
@@ -42,17 +44,31 @@ public class StreamingHandler extends TeslaHandler  {
     class StreamHandler extends Handler {
         StreamHandler() { super("stream", "Display streaming state", "s"); }
         @Override public boolean execute() {
-            Streamer streamer = vehicle.getStreamer();
-            state = streamer.beginNewStream();
-            System.out.println(state);
-            for (int i = 0; i < 10; i++) {
-                System.out.println("Streaming Status:");
-                if ( (state = streamer.tryExistingStream()) != null) {
-                    System.out.println(state);
-                } else {
-                    System.out.println("    [No change in state]");
+            final CountDownLatch received = new CountDownLatch(10);
+            vehicle.getStreamer().publisher().subscribe(new Flow.Subscriber<StreamState>() {
+                private Flow.Subscription subscription;
+                @Override public void onSubscribe(Flow.Subscription s) {
+                    subscription = s;
+                    s.request(1);
                 }
-                Utils.sleep(500);
+                @Override public void onNext(StreamState s) {
+                    state = s;
+                    System.out.println("Streaming Status:");
+                    System.out.println(s);
+                    received.countDown();
+                    if (received.getCount() == 0) subscription.cancel();
+                    else subscription.request(1);
+                }
+                @Override public void onError(Throwable t) {
+                    System.out.println("Streaming failed: " + t);
+                }
+                @Override public void onComplete() { }
+            }, StreamPublisher.OverflowPolicy.LatestOnly, 1);
+            try {
+                if (!received.await(60, TimeUnit.SECONDS))
+                    System.out.println("    [Timed out waiting for streaming data]");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
             return true;
         }
@@ -0,0 +1,117 @@
+/*
+ * ThreadingBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.noroomattheinn.utils.Executor;
+import org.noroomattheinn.utils.ThreadManager;
+
+/**
+ * ThreadingBenchmark: Simulates polling a fleet of vehicles, one Executor per
+ * vehicle, where each poll blocks for a fixed time as a REST call would.
+ * Reports the memory used once the Executors are running and the number of
+ * polls completed per second. The mode selects whether each Executor gets a
+ * platform thread or a virtual thread (Java 21 or later). Run once per mode,
+ * since the ThreadManager can only be created once per JVM.
+ * <P>
+ * Usage: ThreadingBenchmark [platform|virtual] [vehicles] [rounds] [latencyMs]
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class ThreadingBenchmark {
+
+    private static final Executor.FeedbackListener Quiet = new Executor.FeedbackListener() {
+        @Override public void requestStarted(Executor.Request r) { }
+        @Override public void requestCompleted(Executor.Request r) { }
+        @Override public void completionHistogram(String name, Map<Integer,Integer> h) { }
+    };
+
+    private static class Poll extends Executor.Request {
+        final CountDownLatch done;
+        Poll(CountDownLatch done) { super(null); this.done = done; }
+        @Override protected String getRequestName() { return "Poll"; }
+    }
+
+    private static class Poller extends Executor<Poll> {
+        private final long latency;
+
+        Poller(String name, long latency) {
+            super(name, Quiet);
+            this.latency = latency;
+        }
+
+        @Override protected boolean execRequest(Poll p) throws Exception {
+            Thread.sleep(latency);      // Stands in for a blocking REST call
+            p.done.countDown();
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "virtual";
+        int nVehicles = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long latency = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+        long baseline = memoryInUse();
+        ThreadManager tm = ThreadManager.create(mode.equals("virtual"));
+        if (mode.equals("virtual") && !tm.usesVirtualThreads()) {
+            System.out.println("This JVM doesn't support virtual threads");
+            System.exit(1);
+        }
+
+        List<Poller> pollers = new ArrayList<>(nVehicles);
+        for (int i = 0; i < nVehicles; i++) {
+            pollers.add(new Poller("Vehicle " + i, latency));
+        }
+        round(pollers);     // Warm up and make sure every thread is running
+        long inUse = memoryInUse() - baseline;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) { round(pollers); }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.format("%s: %d vehicles, %d ms per poll\n", mode, nVehicles, latency);
+        System.out.format("    %-22s %10.1f MB\n", "memory in use", inUse / (1024.0 * 1024));
+        System.out.format("    %-22s %10d\n", "platform threads",
+                ManagementFactory.getThreadMXBean().getThreadCount());
+        System.out.format("    %-22s %10.0f polls/sec\n", "throughput",
+                nVehicles * rounds / seconds);
+        System.exit(0);
+    }
+
+    // Poll every vehicle once and wait for all of the polls to complete
+    private static void round(List<Poller> pollers) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(pollers.size());
+        for (Poller p : pollers) { p.produce(new Poll(done)); }
+        done.await();
+    }
+
+    // The resident set size where /proc is available (thread stacks aren't
+    // part of the heap), otherwise the heap in use after a GC
+    private static long memoryInUse() {
+        try (BufferedReader r = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) { }
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * TransportBenchmark.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.tesla.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.noroomattheinn.utils.PooledTransport;
+import org.noroomattheinn.utils.Transport;
+import org.noroomattheinn.utils.URLConnectionTransport;
+
+/**
+ * TransportBenchmark: Measures requests/second for each Transport against a
+ * local stub server that answers like a data_request endpoint.
+ * <P>
+ * Usage: TransportBenchmark [threads] [seconds]
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+
+public class TransportBenchmark {
+
+    private static final byte[] ChargeStateBody = (
+            "{\"response\":{\"charging_state\":\"Charging\",\"battery_level\":72," +
+            "\"battery_range\":201.5,\"charge_rate\":22.1,\"charger_power\":11}}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final String Path = "/api/1/vehicles/1/data_request/charge_state";
+
+    public static void main(String[] args) throws Exception {
+        int nThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Without this the stub server's writes wait on delayed ACKs, which
+        // penalizes exactly the keep-alive connections we want to measure
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange x) throws IOException {
+                x.getResponseHeaders().add("Content-Type", "application/json");
+                x.sendResponseHeaders(200, ChargeStateBody.length);
+                try (OutputStream out = x.getResponseBody()) { out.write(ChargeStateBody); }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(nThreads));
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + Path;
+
+        Map<String,String> close = new LinkedHashMap<>();
+        close.put("Connection", "close");
+
+        try {
+            run("URLConnection, new connection per request",
+                new URLConnectionTransport(), close, url, nThreads, seconds);
+            run("URLConnection, JDK keep-alive",
+                new URLConnectionTransport(), null, url, nThreads, seconds);
+            PooledTransport pooled = new PooledTransport(nThreads, 30 * 1000);
+            run("PooledTransport", pooled, null, url, nThreads, seconds);
+            System.out.format("    connections opened: %d, reused: %d\n",
+                    pooled.connectionsOpened(), pooled.connectionsReused());
+            pooled.close();
+        } finally {
+            server.stop(0);
+            ((ExecutorService)server.getExecutor()).shutdownNow();
+        }
+    }
+
+    private static void run(
+            String name, final Transport transport, final Map<String,String> headers,
+            final String url, int nThreads, int seconds) throws Exception {
+        final AtomicLong nRequests = new AtomicLong();
+        final AtomicLong nErrors = new AtomicLong();
+        final long warmupEnd = System.nanoTime() + 1000L * 1000 * 1000;
+        final long end = warmupEnd + seconds * 1000L * 1000 * 1000;
+
+        Thread[] threads = new Thread[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override public void run() {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        try {
+                            Map<String,String> h = new LinkedHashMap<>();
+                            if (headers != null) h.putAll(headers);
+                            Transport.Response r = transport.execute(
+                                    Transport.Request.get(url, h, 10 * 1000));
+                            r.asString();
+                            if (now > warmupEnd) nRequests.incrementAndGet();
+                        } catch (IOException e) {
+                            nErrors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) { t.join(); }
+        System.out.format("%-45s %10.0f requests/sec (%d errors)\n",
+                name, nRequests.get() / (double)seconds, nErrors.get());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Backoff.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff: Computes the delays between successive retries of an operation.
+ * The delay doubles with each consecutive failure, up to a maximum, and is
+ * randomized ("jittered") so that many clients that failed at the same
+ * moment, e.g. because the server went away, don't all retry at once. Each
+ * delay is drawn uniformly from the upper half of the current exponential
+ * window, so it is never much shorter than intended.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class Backoff {
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final long initialDelay;
+    private final long maxDelay;
+    private int attempts;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a Backoff
+     * @param initialDelay  The delay (ms) before the first retry
+     * @param maxDelay      The longest delay (ms) that will be returned
+     */
+    public Backoff(long initialDelay, long maxDelay) {
+        this.initialDelay = initialDelay;
+        this.maxDelay = Math.max(initialDelay, maxDelay);
+        this.attempts = 0;
+    }
+
+    /**
+     * Return the delay before the next retry and count the attempt
+     * @return  The delay in milliseconds
+     */
+    public synchronized long nextDelay() {
+        long window = initialDelay << Math.min(attempts, 30);
+        if (window <= 0 || window > maxDelay) window = maxDelay;
+        attempts++;
+        long half = window / 2;
+        return half + ThreadLocalRandom.current().nextLong(window - half + 1);
+    }
+
+    /**
+     * Start over after a success
+     */
+    public synchronized void reset() { attempts = 0; }
+
+    /**
+     * Returns the number of delays handed out since the last reset
+     * @return  The number of consecutive retries
+     */
+    public synchronized int attempts() { return attempts; }
+}
@@ -0,0 +1,115 @@
+/*
+ * CircuitBreaker.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+/**
+ * CircuitBreaker: Stops an operation from being attempted after it has
+ * failed repeatedly. After a run of consecutive failures the breaker "opens"
+ * and refuses attempts for a while. Then it lets a single trial attempt
+ * through ("half open"): if the trial succeeds the breaker closes again,
+ * otherwise it reopens for another period.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class CircuitBreaker {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    public enum State { Closed, Open, HalfOpen };
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final int   failureThreshold;
+    private final long  openDuration;
+    private State       state;
+    private int         failures;
+    private long        openedAt;
+    private boolean     trialInProgress;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a CircuitBreaker, initially closed
+     * @param failureThreshold  The number of consecutive failures that opens
+     *                          the breaker
+     * @param openDuration      How long (ms) the breaker stays open before
+     *                          allowing a trial attempt
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.state = State.Closed;
+        this.failures = 0;
+        this.trialInProgress = false;
+    }
+
+    /**
+     * Ask whether an attempt may be made now. When the breaker is half
+     * open, only one caller is allowed through until it reports the outcome.
+     * @return  true if the attempt may proceed
+     *          false if the breaker is open
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case Closed:
+                return true;
+            case Open:
+                if (System.currentTimeMillis() - openedAt < openDuration) return false;
+                state = State.HalfOpen;
+                trialInProgress = true;
+                return true;
+            case HalfOpen:
+            default:
+                if (trialInProgress) return false;
+                trialInProgress = true;
+                return true;
+        }
+    }
+
+    /**
+     * Report a successful attempt. This closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.Closed;
+        failures = 0;
+        trialInProgress = false;
+    }
+
+    /**
+     * Report a failed attempt. This may open the breaker.
+     */
+    public synchronized void recordFailure() {
+        trialInProgress = false;
+        if (state == State.HalfOpen || ++failures >= failureThreshold) {
+            state = State.Open;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State state() { return state; }
+
+    /**
+     * Returns how long until an open breaker will allow a trial attempt
+     * @return  The time in milliseconds. 0 if an attempt is allowed now.
+     */
+    public synchronized long millisUntilRetry() {
+        if (state != State.Open) return 0;
+        return Math.max(0, openDuration - (System.currentTimeMillis() - openedAt));
+    }
+}
@@ -5,15 +5,33 @@
  */
 package org.noroomattheinn.utils;
 
+import java.util.HashMap;
 import java.util.Map;
-import java.util.TimerTask;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.noroomattheinn.tesla.Tesla.logger;
 
 /**
  * Executor: Produce state updates on demand.
+ * <P>
+ * By default each Executor has a thread of its own and a bounded queue;
+ * producers block while the queue is full. An Executor created with a Pool
+ * instead shares the Pool's worker threads with the other Executors using it.
+ * Its pending requests are held in the Pool's priority queue, ordered by
+ * Request.priority(), and a request with the same name (getRequestName()) as
+ * one that is already pending replaces it rather than being queued behind
+ * it, so producers never block. A pooled Executor still executes its own
+ * requests one at a time.
+ * <P>
+ * Threads come from the ThreadManager, so an Executor's own thread, and a
+ * Pool's workers, are virtual threads if the ThreadManager was created to
+ * use them. Executor locks with a ReentrantLock rather than synchronized so
+ * that a virtual thread blocked in produce() doesn't pin its carrier thread.
  *
  * @author Joe Pasqua <joe at NoRoomAtTheInn dot org>
  */
@@ -30,6 +48,15 @@ public abstract class Executor<R extends Executor.Request> implements Runnable {
     protected final TreeMap<Integer,Integer> histogram;
     protected final FeedbackListener        listener;
     protected       int                     nRequestsExecuted;
+    protected final Pool                    pool;
+    
+    // Serializes produce(). The fields below are used only when the
+    // Executor is pooled and are guarded by lock.
+    private final ReentrantLock             lock;
+    private final HashMap<String,Task>      pending;
+    private final PriorityQueue<Task>       ready;
+    private       Task                      scheduled;  // In the pool's queue
+    private       boolean                   running;
     
 /*==============================================================================
  * -------                                                               -------
@@ -72,24 +99,154 @@ public abstract class Executor<R extends Executor.Request> implements Runnable {
      *                  will be provided
      */
     public Executor(String name, FeedbackListener listener) {
+        this(name, listener, null);
+    }
+    
+    /**
+     * Create an Executor whose requests are executed by the worker threads
+     * of a Pool rather than by a thread of its own.
+     * @param name      The name of this Executor
+     * @param listener  The FeedbackListener to which progress information
+     *                  will be provided
+     * @param pool      The Pool whose workers will execute requests, or null
+     *                  to give this Executor its own thread
+     */
+    public Executor(String name, FeedbackListener listener, Pool pool) {
         this.queue = new ArrayBlockingQueue<>(20);
         this.name = name;
         this.histogram = new TreeMap<>();
         this.nRequestsExecuted = 0;
         this.listener = listener;
-        ThreadManager.get().launch((Runnable)this, name);
+        this.pool = pool;
+        this.lock = new ReentrantLock();
+        this.pending = new HashMap<>();
+        this.ready = new PriorityQueue<>();
+        this.scheduled = null;
+        this.running = false;
+        if (pool == null) ThreadManager.get().launch((Runnable)this, name);
     }
     
     /**
-     * Enqueue a request for later execution
+     * Enqueue a request for later execution. If this Executor is pooled and a
+     * request with the same name is already pending, the newer of the two
+     * takes its place and the other is dropped.
      * @param r The request to be enqueued for later execution
      */
-    public synchronized void produce(R r) {
+    public void produce(R r) {
+        lock.lock();
         try {
             R filtered = filter(r);
-            if (filtered != null) queue.put(filtered);
-        } catch (InterruptedException ex) {
-            logger.warning(name + " interrupted adding  to queue: " + ex.getMessage());
+            if (filtered == null) return;
+            if (pool != null) {
+                String key = filtered.getRequestName();
+                Task t = pending.get(key);
+                if (t != null) {
+                    if (filtered.timeOfRequest >= t.request.timeOfRequest) t.request = filtered;
+                    return;
+                }
+                t = new Task(this, key, filtered);
+                pending.put(key, t);
+                ready.add(t);
+                if (running) return;    // The next one is submitted on completion
+                if (scheduled == null || t.compareTo(scheduled) < 0) {
+                    // Moving this Executor up the queue leaves its old entry
+                    // behind; workers skip it (see runNext)
+                    pool.submit(scheduled = t);
+                }
+                return;
+            }
+            try {
+                queue.put(filtered);
+            } catch (InterruptedException ex) {
+                logger.warning(name + " interrupted adding  to queue: " + ex.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Pool: A bounded set of worker threads shared by the Executors created
+     * with it. Requests are executed highest priority first and, within a
+     * priority, in the order they were produced. Each Executor has at most
+     * one live request in the Pool's queue at a time, so no Executor can
+     * occupy more than one worker. When a more urgent request moves an
+     * Executor up the queue, its old entry is left in place and skipped when
+     * a worker reaches it, rather than removed, which would take time linear
+     * in the size of the queue. The workers are started when the first
+     * request is submitted, and they run until the ThreadManager shuts down.
+     */
+    public static final class Pool {
+        private static Pool shared = null;
+        
+        private final String                        name;
+        private final int                           nWorkers;
+        private final PriorityBlockingQueue<Task>   queue;
+        private final AtomicLong                    sequence;
+        private volatile boolean                    started;
+        
+        /**
+         * Create a Pool
+         * @param name      The name of the pool, used to name its threads
+         * @param nWorkers  The number of worker threads
+         */
+        public Pool(String name, int nWorkers) {
+            if (nWorkers < 1) throw new IllegalArgumentException("nWorkers: " + nWorkers);
+            this.name = name;
+            this.nWorkers = nWorkers;
+            this.queue = new PriorityBlockingQueue<>();
+            this.sequence = new AtomicLong();
+            this.started = false;
+        }
+        
+        /**
+         * Returns a Pool shared by the whole app, with a worker per processor
+         * (but at least 2)
+         * @return  The shared Pool
+         */
+        public static synchronized Pool shared() {
+            if (shared == null) {
+                shared = new Pool("Executor Pool",
+                        Math.max(2, Runtime.getRuntime().availableProcessors()));
+            }
+            return shared;
+        }
+        
+        /**
+         * Returns the number of entries waiting for a worker, including any
+         * that will be skipped because their Executor moved up the queue
+         * @return  The number of waiting entries
+         */
+        public int waiting() { return queue.size(); }
+        
+        public int nWorkers() { return nWorkers; }
+        
+        private void submit(Task t) {
+            if (!started) start();
+            queue.add(t);
+        }
+        
+        private synchronized void start() {
+            if (started) return;
+            started = true;
+            Runnable worker = new Runnable() {
+                @Override public void run() {
+                    // A failure or interruption while executing one Executor's
+                    // request mustn't take a worker away from the others
+                    while (!ThreadManager.get().shuttingDown()) {
+                        Task t;
+                        try {
+                            t = queue.take();
+                        } catch (InterruptedException e) {
+                            continue;
+                        }
+                        t.executor.runNext(t);
+                    }
+                }
+            };
+            for (int i = 0; i < nWorkers; i++) {
+                ThreadManager.get().launch(worker, name + " " + i);
+            }
         }
     }
         
@@ -194,6 +351,15 @@ public abstract class Executor<R extends Executor.Request> implements Runnable {
          * @return 
          */
         protected String getRequestName() { return "Unknown"; }
+        
+        /**
+         * The priority of this request when executed by a Pool. Higher
+         * priority requests are executed first. Requests with the same name
+         * should have the same priority. Subclasses may override this if they
+         * want something other than the default of 0.
+         * @return  The priority
+         */
+        protected int priority() { return 0; }
     }
     
     /**
@@ -220,45 +386,111 @@ public abstract class Executor<R extends Executor.Request> implements Runnable {
  * 
  *----------------------------------------------------------------------------*/
     
+    // A pending request of a pooled Executor. Coalescing replaces request.
+    // The Executor's first Task also stands for the Executor in the pool.
+    private static final class Task implements Comparable<Task> {
+        final Executor<?>   executor;
+        final String        name;
+        final int           priority;
+        final long          sequence;
+        Request             request;    // Guarded by executor.lock
+
+        Task(Executor<?> executor, String name, Request request) {
+            this.executor = executor;
+            this.name = name;
+            this.priority = request.priority();
+            this.sequence = executor.pool.sequence.getAndIncrement();
+            this.request = request;
+        }
+
+        @Override public int compareTo(Task o) {
+            if (priority != o.priority) return priority > o.priority ? -1 : 1;
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+    
     private void retry(final R r) {
-        ThreadManager.get().addTimedTask(new TimerTask() {
+        ThreadManager.get().schedule(name + " retry", new Runnable() {
             @Override public void run() { produce(r); } },
             r.retryDelay());
     }
     
     @Override public void run() {
         while (!ThreadManager.get().shuttingDown()) {
-            R r = null;
+            R r;
             try {
                 r = queue.take();
-                if (requestSuperseded(r)) continue;
-                listener.requestStarted(r);
-                boolean success = execRequest(r);
-                listener.requestCompleted(r);
-                if (!success) {
-                    if (ThreadManager.get().shuttingDown()) return;
-                    if (r.moreRetries()) {
-                        logger.finest(r.getRequestName() + ": failed, retrying...");
-                        retry(r);
-                    }
-                    else {
-                        addToHistogram(r);
-                        logger.finest(
-                                r.getRequestName() + ": failed, giving up after " +
-                                r.maxRetries() + " attempt(s)");
-                    }
-                } else {
+            } catch (InterruptedException e) {
+                logger.warning("Exception in " + name + ": " + e.getMessage());
+                return;
+            }
+            if (!process(r)) return;
+        }
+    }
+    
+    // Called by a pool worker when it takes one of this Executor's entries
+    // from the pool's queue. Unless the entry was left behind when the
+    // Executor moved up the queue, execute the most urgent pending request,
+    // then put the next one (if any) in the pool's queue.
+    @SuppressWarnings("unchecked")
+    private void runNext(Task entry) {
+        R r;
+        lock.lock();
+        try {
+            if (entry != scheduled) return;
+            Task t = ready.poll();
+            pending.remove(t.name);
+            r = (R)t.request;
+            scheduled = null;
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            process(r);
+        } finally {
+            lock.lock();
+            try {
+                running = false;
+                if (!ready.isEmpty()) pool.submit(scheduled = ready.peek());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    // Execute a request, arranging a retry if it fails. Returns false if an
+    // Executor's own thread should stop; pool workers ignore it.
+    private boolean process(R r) {
+        try {
+            if (requestSuperseded(r)) return true;
+            listener.requestStarted(r);
+            boolean success = execRequest(r);
+            listener.requestCompleted(r);
+            if (!success) {
+                if (ThreadManager.get().shuttingDown()) return false;
+                if (r.moreRetries()) {
+                    logger.finest(r.getRequestName() + ": failed, retrying...");
+                    retry(r);
+                }
+                else {
                     addToHistogram(r);
                     logger.finest(
-                            r.getRequestName() + ": Succeeded after " +
-                            r.retriesPerformed()+ " attempt(s)");
+                            r.getRequestName() + ": failed, giving up after " +
+                            r.maxRetries() + " attempt(s)");
                 }
-            } catch (Exception e) {
-                if (r != null) { listener.requestCompleted(r); }
-                logger.warning("Exception in " + name + ": " + e.getMessage());
-                if (e instanceof InterruptedException) { return; }
+            } else {
+                addToHistogram(r);
+                logger.finest(
+                        r.getRequestName() + ": Succeeded after " +
+                        r.retriesPerformed()+ " attempt(s)");
             }
+        } catch (Exception e) {
+            listener.requestCompleted(r);
+            logger.warning("Exception in " + name + ": " + e.getMessage());
+            if (e instanceof InterruptedException) { return false; }
         }
+        return true;
     }
 
 }
\ No newline at end of file
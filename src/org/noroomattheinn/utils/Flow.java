@@ -0,0 +1,68 @@
+/*
+ * Flow.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+/**
+ * Flow: The Reactive Streams interfaces, with the same names and contracts as
+ * java.util.concurrent.Flow, which isn't available on Java 8. A Subscriber
+ * receives items only as fast as it requests them, which lets a Publisher
+ * decide what to do with items a slow Subscriber hasn't asked for yet.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public final class Flow {
+
+    private Flow() { }
+
+    public interface Publisher<T> {
+        /**
+         * Add a Subscriber. Its onSubscribe method is called with a new
+         * Subscription before any other method.
+         * @param subscriber    The Subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        /**
+         * Called before any other method of the Subscriber. No items are
+         * delivered until Subscription.request() is called.
+         * @param subscription  The new Subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item. Never called more often than requested.
+         * @param item  The item
+         */
+        void onNext(T item);
+
+        /**
+         * Called when the Subscription fails. No further methods are called.
+         * @param throwable The cause of the failure
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no further items will be delivered
+         */
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /**
+         * Allow n more items to be delivered to the Subscriber
+         * @param n The number of additional items. Must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stop delivering items. Items may still arrive briefly afterward.
+         */
+        void cancel();
+    }
+}
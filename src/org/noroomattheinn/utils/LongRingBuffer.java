@@ -0,0 +1,93 @@
+/*
+ * LongRingBuffer.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LongRingBuffer: A RingBuffer of long values, stored unboxed. One thread inserts;
+ * any number of threads may peek without locking. Since a primitive can't be
+ * null, peeking at an element that isn't there throws an exception instead.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class LongRingBuffer extends RingIndex {
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final AtomicLongArray data;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Creates a ring buffer with the specified capacity
+     * @param capacity  The maximum number of values held
+     */
+    public LongRingBuffer(int capacity) {
+        super(capacity);
+        this.data = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Inserts a value at the end of the buffer, overwriting the oldest value
+     * if the buffer is full. Must only be called by the producer thread.
+     * @param item  The value to be inserted
+     */
+    public void insert(long item) {
+        long i = next();
+        data.lazySet(beginInsert(i), item);
+        endInsert(i);
+    }
+
+    /**
+     * Returns the nth oldest value without removing it. Since values are
+     * never removed, a caller that has seen size() > n can always peek at n.
+     * @param n The index of the value, 0 being the oldest
+     * @return  The value
+     * @throws IndexOutOfBoundsException If there are no more than n values
+     */
+    public long peekAt(int n) {
+        while (true) {
+            long i = indexOf(n);
+            if (i < 0) throw outOfBounds(n);
+            long item = data.get(slot(i));
+            if (intact(i)) return item;
+        }
+    }
+
+    /**
+     * Returns the oldest value without removing it
+     * @return  The oldest value
+     * @throws NoSuchElementException If the buffer is empty
+     */
+    public long peekFront() {
+        if (size() == 0) throw new NoSuchElementException();
+        return peekAt(0);
+    }
+
+    /**
+     * Returns the most recently inserted value
+     * @return  The newest value
+     * @throws NoSuchElementException If the buffer is empty
+     */
+    public long peekLast() {
+        while (true) {
+            long i = last();
+            if (i < 0) throw new NoSuchElementException();
+            long item = data.get(slot(i));
+            if (intact(i)) return item;
+        }
+    }
+}
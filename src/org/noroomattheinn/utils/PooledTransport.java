@@ -0,0 +1,616 @@
+/*
+ * PooledTransport.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * PooledTransport: A Transport that speaks HTTP/1.1 directly over sockets and
+ * keeps connections alive between requests. Connections are pooled per host
+ * (scheme, host, and port). At most maxConnectionsPerHost connections to a
+ * given host are in use at once; callers beyond that wait for a connection to
+ * be returned. Connections that sit idle for longer than the idle timeout are
+ * closed rather than reused.
+ * <P>
+ * A connection is returned to the pool when its Response is closed after the
+ * body has been read completely. If the body was not fully read, or the
+ * server asked to close the connection, it is discarded instead.
+ * <P>
+ * A request that fails on a reused connection before any response arrives is
+ * retried on another connection, since the server may have closed the idle
+ * one. That is only done when the request couldn't be written, or when it is
+ * a GET or HEAD that didn't time out, so commands (POSTs) are never sent to
+ * the vehicle twice.
+ * <P>
+ * Requests made through executeStreaming() each get a connection of their
+ * own that is neither pooled nor counted against maxConnectionsPerHost, so
+ * any number of long-lived streams can't starve ordinary requests.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class PooledTransport implements Transport, ThreadManager.Stoppable {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static final Logger logger = Logger.getLogger(PooledTransport.class.getName());
+
+    public  static final int  DefaultMaxConnectionsPerHost = 4;
+    public  static final long DefaultIdleTimeoutInMillis = 30 * 1000;
+    private static final int  ConnectTimeoutInMillis = 15 * 1000;
+    private static final int  MaxHeaderLineLength = 16 * 1024;
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final int   maxConnectionsPerHost;
+    private final long  idleTimeoutInMillis;
+    private final ConcurrentHashMap<String,HostPool> pools;
+    private final Set<Connection> streams = ConcurrentHashMap.newKeySet();
+    private final SSLSocketFactory sslFactory;
+    private final AtomicLong nOpened = new AtomicLong();
+    private final AtomicLong nReused = new AtomicLong();
+    private volatile boolean closed = false;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    public PooledTransport() {
+        this(DefaultMaxConnectionsPerHost, DefaultIdleTimeoutInMillis);
+    }
+
+    /**
+     * Create a PooledTransport
+     * @param maxConnectionsPerHost The maximum number of connections to any
+     *                              one host that may be in use at once
+     * @param idleTimeoutInMillis   Idle connections older than this are
+     *                              evicted rather than reused
+     */
+    public PooledTransport(int maxConnectionsPerHost, long idleTimeoutInMillis) {
+        if (maxConnectionsPerHost < 1)
+            throw new IllegalArgumentException("maxConnectionsPerHost must be >= 1");
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutInMillis = idleTimeoutInMillis;
+        this.pools = new ConcurrentHashMap<>();
+        this.sslFactory = (SSLSocketFactory)SSLSocketFactory.getDefault();
+        ThreadManager.registerStoppable(this);
+    }
+
+    @Override public Response execute(Request request) throws IOException {
+        if (closed) throw new IOException("Transport has been closed");
+        HostPool pool = poolFor(request.url);
+        try {
+            if (!pool.permits.tryAcquire(ConnectTimeoutInMillis, TimeUnit.MILLISECONDS))
+                throw new IOException("Timed out waiting for a connection to " + pool.key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + pool.key);
+        }
+
+        boolean handedOff = false;
+        try {
+            while (true) {
+                Connection c = pool.takeIdle();
+                boolean reused = (c != null);
+                if (c == null) { c = open(request.url); nOpened.incrementAndGet(); }
+                else { nReused.incrementAndGet(); }
+                pool.inUse.add(c);
+                try {
+                    Response r = c.exchange(request, pool);
+                    handedOff = true;
+                    return r;
+                } catch (IOException e) {
+                    pool.inUse.remove(c);
+                    c.destroy();
+                    // The server may have closed a pooled connection while it
+                    // sat idle. If nothing came back on a reused connection,
+                    // try again, unless the server may have acted on the
+                    // request. Failures on a fresh connection are real.
+                    if (!reused || c.responseStarted || !safeToRetry(request, c, e)) throw e;
+                    logger.finest("Stale pooled connection to " + pool.key + ", retrying");
+                }
+            }
+        } finally {
+            if (!handedOff) pool.permits.release();
+        }
+    }
+
+    @Override public Response executeStreaming(Request request) throws IOException {
+        if (closed) throw new IOException("Transport has been closed");
+        Connection c = open(request.url);
+        nOpened.incrementAndGet();
+        streams.add(c);
+        try {
+            return c.exchange(request, null);
+        } catch (IOException e) {
+            streams.remove(c);
+            c.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Close any idle connections that have exceeded the idle timeout. This
+     * happens automatically as connections are requested and returned, but
+     * may also be called periodically by long-running applications.
+     */
+    public void evictIdleConnections() {
+        for (HostPool pool : pools.values()) { pool.evictExpired(); }
+    }
+
+    @Override public void close() {
+        closed = true;
+        for (HostPool pool : pools.values()) { pool.destroyIdle(); }
+        ThreadManager.unregisterStoppable(this);
+    }
+
+    /**
+     * Abort every request that is in progress by closing its connection.
+     * Threads blocked reading a response get an IOException.
+     */
+    public void abortInFlight() {
+        for (HostPool pool : pools.values()) {
+            for (Connection c : pool.inUse) { c.destroy(); }
+        }
+        for (Connection c : streams) { c.destroy(); }
+    }
+
+    /**
+     * Close the transport and abort any requests in progress, so that
+     * shutdown isn't held up by threads blocked on the network
+     */
+    @Override public void stop() {
+        close();
+        abortInFlight();
+    }
+
+    public int  maxConnectionsPerHost() { return maxConnectionsPerHost; }
+    public long connectionsOpened() { return nOpened.get(); }
+    public long connectionsReused() { return nReused.get(); }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Managing the per-host pools
+ *
+ *----------------------------------------------------------------------------*/
+
+    private HostPool poolFor(URL url) {
+        String key = url.getProtocol() + "://" + url.getHost() + ":" + port(url);
+        HostPool pool = pools.get(key);
+        if (pool == null) {
+            HostPool newPool = new HostPool(key);
+            pool = pools.putIfAbsent(key, newPool);
+            if (pool == null) pool = newPool;
+        }
+        return pool;
+    }
+
+    private final class HostPool {
+        final String key;
+        final Semaphore permits;
+        private final ArrayDeque<Connection> idle;   // Most recently used first
+        final Set<Connection> inUse = ConcurrentHashMap.newKeySet();
+
+        HostPool(String key) {
+            this.key = key;
+            this.permits = new Semaphore(maxConnectionsPerHost, true);
+            this.idle = new ArrayDeque<>(maxConnectionsPerHost);
+        }
+
+        Connection takeIdle() {
+            evictExpired();
+            synchronized (idle) {
+                Connection c;
+                while ((c = idle.pollFirst()) != null) {
+                    if (!c.socket.isClosed()) return c;
+                }
+                return null;
+            }
+        }
+
+        void release(Connection c, boolean reusable) {
+            inUse.remove(c);
+            try {
+                if (reusable && !closed) {
+                    c.lastUsed = System.currentTimeMillis();
+                    synchronized (idle) { idle.addFirst(c); }
+                } else {
+                    c.destroy();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        void evictExpired() {
+            long cutoff = System.currentTimeMillis() - idleTimeoutInMillis;
+            synchronized (idle) {
+                Connection c;
+                while ((c = idle.peekLast()) != null && c.lastUsed < cutoff) {
+                    idle.pollLast();
+                    c.destroy();
+                }
+            }
+        }
+
+        void destroyIdle() {
+            synchronized (idle) {
+                Iterator<Connection> i = idle.iterator();
+                while (i.hasNext()) { i.next().destroy(); i.remove(); }
+            }
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Establishing connections
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static int port(URL url) {
+        return url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+    }
+
+    private Connection open(URL url) throws IOException {
+        String host = url.getHost();
+        int port = port(url);
+        boolean secure = url.getProtocol().equals("https");
+        Proxy proxy = RestHelper.getDefaultProxy();
+        boolean viaProxy = (proxy != null && proxy.type() == Proxy.Type.HTTP);
+
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(viaProxy ? proxy.address() : new InetSocketAddress(host, port),
+                           ConnectTimeoutInMillis);
+            if (viaProxy && secure) { tunnel(socket, host, port); }
+            if (secure) {
+                SSLSocket ssl = (SSLSocket)sslFactory.createSocket(socket, host, port, true);
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                ssl.setSoTimeout(ConnectTimeoutInMillis);
+                ssl.startHandshake();
+                socket = ssl;
+            }
+            return new Connection(socket, viaProxy && !secure);
+        } catch (IOException e) {
+            try { socket.close(); } catch (IOException ce) { }
+            throw e;
+        }
+    }
+
+    private void tunnel(Socket socket, String host, int port) throws IOException {
+        String target = host + ":" + port;
+        OutputStream out = socket.getOutputStream();
+        out.write(("CONNECT " + target + " HTTP/1.1\r\nHost: " + target + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        socket.setSoTimeout(ConnectTimeoutInMillis);
+        InputStream in = socket.getInputStream();
+        String status = readLine(in);
+        while (!readLine(in).isEmpty()) { } // Skip the proxy's headers
+        if (status.split(" ").length < 2 || !status.split(" ")[1].equals("200"))
+            throw new IOException("Proxy refused tunnel to " + target + ": " + status);
+    }
+
+    // Whether a request that failed before its response started may be sent
+    // again. One that was never fully written can't have been acted on. One
+    // that was may have been, so only GET and HEAD are repeated, and not
+    // after a read timeout, when the server may simply be slow.
+    private static boolean safeToRetry(Request request, Connection c, IOException e) {
+        if (!c.requestWritten) return true;
+        boolean idempotent = request.method.equals("GET") || request.method.equals("HEAD");
+        return idempotent && !(e instanceof SocketTimeoutException);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - A single HTTP/1.1 connection
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final class Connection {
+        final Socket        socket;
+        final InputStream   in;
+        final OutputStream  out;
+        final boolean       absoluteTarget; // Talking to a plain HTTP proxy
+        volatile long       lastUsed;
+        boolean             requestWritten;
+        boolean             responseStarted;
+
+        Connection(Socket socket, boolean absoluteTarget) throws IOException {
+            this.socket = socket;
+            this.in = new SocketInput(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+            this.absoluteTarget = absoluteTarget;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        // Send a request and read the response headers. The connection goes
+        // back to pool when the Response is closed; if pool is null it is a
+        // streaming connection and is closed instead.
+        Response exchange(Request request, final HostPool pool) throws IOException {
+            requestWritten = responseStarted = false;
+            socket.setSoTimeout(request.readTimeout);
+            writeRequest(request);
+            requestWritten = true;
+
+            int status;
+            String statusLine;
+            Map<String,String> headers;
+            do {    // Skip any interim (1xx) responses
+                statusLine = readLine(in);
+                responseStarted = true;
+                status = parseStatus(statusLine);
+                headers = readHeaders(in);
+            } while (status >= 100 && status < 200 && status != 101);
+
+            String connection = headers.get("connection");
+            boolean keepAlive = statusLine.startsWith("HTTP/1.1") ?
+                    !"close".equalsIgnoreCase(connection) :
+                    "keep-alive".equalsIgnoreCase(connection);
+            String te = headers.get("transfer-encoding");
+            String cl = headers.get("content-length");
+
+            final BodyStream body;
+            if (request.method.equals("HEAD") || status == 204 || status == 304) {
+                body = new FixedLengthStream(in, 0);
+            } else if (te != null && te.toLowerCase(Locale.US).contains("chunked")) {
+                body = new ChunkedStream(in);
+            } else if (cl != null) {
+                body = new FixedLengthStream(in, Long.parseLong(cl.trim()));
+            } else {
+                body = new UntilCloseStream(in);
+                keepAlive = false;
+            }
+
+            final boolean reusable = keepAlive;
+            final AtomicBoolean done = new AtomicBoolean(false);
+            return new Response(status, headers) {
+                @Override public InputStream body() { return body; }
+                @Override public void close() {
+                    if (done.compareAndSet(false, true))
+                        finish(pool, reusable && body.atEnd());
+                }
+                @Override public void abort() {
+                    destroy();
+                    if (done.compareAndSet(false, true)) finish(pool, false);
+                }
+            };
+        }
+
+        private void writeRequest(Request request) throws IOException {
+            URL url = request.url;
+            String target;
+            if (absoluteTarget) {
+                target = url.toExternalForm();
+            } else {
+                target = url.getPath().isEmpty() ? "/" : url.getPath();
+                if (url.getQuery() != null) target = target + "?" + url.getQuery();
+            }
+            StringBuilder sb = new StringBuilder(256);
+            sb.append(request.method).append(' ').append(target).append(" HTTP/1.1\r\n");
+            sb.append("Host: ").append(url.getHost());
+            if (url.getPort() != -1) sb.append(':').append(url.getPort());
+            sb.append("\r\n");
+            for (Map.Entry<String,String> h : request.headers.entrySet()) {
+                sb.append(h.getKey()).append(": ").append(h.getValue()).append("\r\n");
+            }
+            if (request.body != null) {
+                sb.append("Content-Length: ").append(request.body.length).append("\r\n");
+            } else if (request.method.equals("POST") || request.method.equals("PUT")) {
+                sb.append("Content-Length: 0\r\n");
+            }
+            sb.append("\r\n");
+            out.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+            if (request.body != null) out.write(request.body);
+            out.flush();
+        }
+
+        private void finish(HostPool pool, boolean reusable) {
+            if (pool != null) {
+                pool.release(this, reusable);
+            } else {
+                streams.remove(this);
+                destroy();
+            }
+        }
+
+        void destroy() {
+            try { socket.close(); } catch (IOException e) { }
+        }
+    }
+
+    private static int parseStatus(String statusLine) throws IOException {
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/"))
+            throw new IOException("Malformed status line: " + statusLine);
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+    }
+
+    private static Map<String,String> readHeaders(InputStream in) throws IOException {
+        Map<String,String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.US);
+            String value = line.substring(colon + 1).trim();
+            String existing = headers.get(name);
+            headers.put(name, existing == null ? value : existing + ", " + value);
+        }
+        return headers;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) throw new EOFException("Connection closed by server");
+            if (line.size() > MaxHeaderLineLength) throw new IOException("Header line too long");
+            if (b != '\r') line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Streams that buffer and frame a response body
+ * 
+ *----------------------------------------------------------------------------*/
+
+    /**
+     * An unsynchronized buffered stream. Header parsing reads a byte at a
+     * time, and BufferedInputStream's locking dominates that cost.
+     */
+    private static final class SocketInput extends InputStream {
+        private final InputStream in;
+        private final byte[] buf = new byte[8192];
+        private int pos = 0, limit = 0;
+
+        SocketInput(InputStream in) { this.in = in; }
+
+        private boolean fill() throws IOException {
+            int n = in.read(buf, 0, buf.length);
+            if (n <= 0) return false;
+            pos = 0; limit = n;
+            return true;
+        }
+
+        @Override public int read() throws IOException {
+            if (pos == limit && !fill()) return -1;
+            return buf[pos++] & 0xff;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (pos == limit) {
+                if (len >= buf.length) return in.read(b, off, len);
+                if (!fill()) return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override public int available() throws IOException {
+            return (limit - pos) + in.available();
+        }
+    }
+
+    private static abstract class BodyStream extends InputStream {
+        protected final InputStream in;
+        BodyStream(InputStream in) { this.in = in; }
+        abstract boolean atEnd();
+        @Override public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return (n == -1) ? -1 : (one[0] & 0xff);
+        }
+        @Override public void close() { }   // Closing is handled by the Response
+    }
+
+    private static final class FixedLengthStream extends BodyStream {
+        private long remaining;
+        FixedLengthStream(InputStream in, long length) { super(in); remaining = length; }
+        @Override boolean atEnd() { return remaining == 0; }
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) return -1;
+            int n = in.read(b, off, (int)Math.min(len, remaining));
+            if (n == -1) throw new EOFException("Connection closed before end of body");
+            remaining -= n;
+            return n;
+        }
+        @Override public int available() throws IOException {
+            return (int)Math.min(in.available(), remaining);
+        }
+    }
+
+    private static final class ChunkedStream extends BodyStream {
+        private long remainingInChunk = 0;
+        private boolean eof = false;
+        ChunkedStream(InputStream in) { super(in); }
+        @Override boolean atEnd() { return eof; }
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) return -1;
+            if (remainingInChunk == 0) {
+                String sizeLine = readLine(in);
+                int semi = sizeLine.indexOf(';');
+                if (semi != -1) sizeLine = sizeLine.substring(0, semi);
+                try {
+                    remainingInChunk = Long.parseLong(sizeLine.trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed chunk size: " + sizeLine);
+                }
+                if (remainingInChunk == 0) {
+                    while (!readLine(in).isEmpty()) { }   // Discard any trailers
+                    eof = true;
+                    return -1;
+                }
+            }
+            int n = in.read(b, off, (int)Math.min(len, remainingInChunk));
+            if (n == -1) throw new EOFException("Connection closed mid-chunk");
+            remainingInChunk -= n;
+            if (remainingInChunk == 0) readLine(in);    // The CRLF after the data
+            return n;
+        }
+    }
+
+    private static final class UntilCloseStream extends BodyStream {
+        private boolean eof = false;
+        UntilCloseStream(InputStream in) { super(in); }
+        @Override boolean atEnd() { return eof; }
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) return -1;
+            int n = in.read(b, off, len);
+            if (n == -1) eof = true;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * RateLimiter.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RateLimiter: Enforces several rate limits at once (e.g. no more than 10
+ * requests in 10 seconds AND no more than 20 requests per minute). Each limit
+ * of N requests per period P is a true sliding window: no period of P seconds,
+ * wherever it starts, ever holds more than N requests. For each limit the
+ * times of the last N requests admitted are kept in a LongRingBuffer; a
+ * request may proceed once the Nth most recent of them is at least P old, so
+ * every operation is O(number of limits) and the exact time until the next
+ * request would conform is known.
+ * <P>
+ * Requests are admitted in time order, including those reserved for a time
+ * in the future, and a request counts against every limit or none of them.
+ * Admission holds a lock only long enough to check and record the time.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class RateLimiter {
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static volatile ScheduledExecutorService timer = null;
+
+    private final int       nLimits;
+    private final long[]    periods;        // P in ns
+    private final int[]     counts;
+    private final int[]     seconds;
+    private final LongRingBuffer[] admitted;    // Times of the last N requests
+    private long            latest;         // Time of the latest admission
+    private boolean         any;            // Whether latest is valid
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a RateLimiter that enforces all of the specified limits
+     * @param limits    A list of (count, seconds) pairs. Each says that no
+     *                  more than count requests may occur in any period of
+     *                  the specified number of seconds.
+     */
+    public RateLimiter(List<Pair<Integer,Integer>> limits) {
+        nLimits = limits.size();
+        periods = new long[nLimits];
+        counts = new int[nLimits];
+        seconds = new int[nLimits];
+        admitted = new LongRingBuffer[nLimits];
+        for (int i = 0; i < nLimits; i++) {
+            Pair<Integer,Integer> limit = limits.get(i);
+            if (limit.item1 < 1 || limit.item2 < 1)
+                throw new IllegalArgumentException("Limits must be positive");
+            counts[i] = limit.item1;
+            seconds[i] = limit.item2;
+            periods[i] = TimeUnit.SECONDS.toNanos(limit.item2);
+            admitted[i] = new LongRingBuffer(limit.item1);
+        }
+    }
+
+    /**
+     * Take a permit if one is available right now. Never waits.
+     * @return  true if a permit was taken
+     *          false if taking one now would exceed a limit
+     */
+    public boolean tryAcquire() { return tryAcquire(0); }
+    
+    /**
+     * Take a permit if one is available right now while leaving at least
+     * the specified number of permits available in every limit. This lets
+     * low priority callers stay out of the way of high priority ones.
+     * Never waits.
+     * @param headroom  The number of permits to leave untouched in each
+     *                  limit. It is capped at one less than the limit's count.
+     * @return  true if a permit was taken
+     *          false if taking one now would exceed a limit or the headroom
+     */
+    public synchronized boolean tryAcquire(int headroom) {
+        long now = System.nanoTime();
+        if (conformingAt(now, headroom) != now) return false;
+        admit(now);
+        return true;
+    }
+
+    /**
+     * Reserve the next available permit. This always succeeds, but the
+     * caller must not proceed until the returned delay has elapsed.
+     * @return  The number of nanoseconds until the reserved permit may be
+     *          used. 0 if it may be used immediately.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        long at = conformingAt(now, 0);
+        admit(at);
+        return at - now;
+    }
+
+    /**
+     * Reserve a permit and wait until it may be used.
+     * @throws InterruptedException If interrupted while waiting. The permit
+     *                              is consumed regardless.
+     */
+    public void acquire() throws InterruptedException {
+        long deadline = System.nanoTime() + reserve();
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Reserve a permit without blocking the caller.
+     * @return  A future that completes when the reserved permit may be used
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        long delay = reserve();
+        final CompletableFuture<Void> f = new CompletableFuture<>();
+        if (delay <= 0) {
+            f.complete(null);
+        } else {
+            timer().schedule(new Runnable() {
+                @Override public void run() { f.complete(null); } },
+                delay, TimeUnit.NANOSECONDS);
+        }
+        return f;
+    }
+
+    /**
+     * Wait until a permit can be taken while leaving the specified headroom
+     * (see tryAcquire(int)). Unlike acquire(), nothing is reserved while
+     * waiting, so callers that don't need headroom are never queued behind
+     * this one.
+     * @param headroom  The number of permits to leave in each limit
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void acquire(int headroom) throws InterruptedException {
+        while (!tryAcquire(headroom)) {
+            LockSupport.parkNanos(this, Math.max(nanosUntilAvailable(headroom), 1));
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+    
+    /**
+     * The non-blocking form of acquire(int)
+     * @param headroom  The number of permits to leave in each limit
+     * @return  A future that completes once a permit has been taken
+     */
+    public CompletableFuture<Void> acquireAsync(int headroom) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        retryAcquire(f, headroom);
+        return f;
+    }
+    
+    /**
+     * Returns how long a request made now would have to wait. This does not
+     * reserve anything, so the answer may be stale by the time it is used.
+     * @return  The wait in nanoseconds. 0 if a permit is available now.
+     */
+    public long nanosUntilAvailable() { return nanosUntilAvailable(0); }
+    
+    /**
+     * Returns how long a request made now would have to wait in order to
+     * leave the specified headroom. This does not reserve anything.
+     * @param headroom  The number of permits to leave in each limit
+     * @return  The wait in nanoseconds. 0 if a permit is available now.
+     */
+    public synchronized long nanosUntilAvailable(int headroom) {
+        long now = System.nanoTime();
+        return conformingAt(now, headroom) - now;
+    }
+
+    /**
+     * Returns the long-run rate this limiter allows, i.e. that of its most
+     * restrictive limit averaged over its period.
+     * @return  The sustainable rate in permits per second
+     */
+    public double sustainedRate() {
+        double rate = Double.MAX_VALUE;
+        for (int i = 0; i < nLimits; i++) {
+            rate = Math.min(rate, counts[i] / (double)seconds[i]);
+        }
+        return rate;
+    }
+
+    /**
+     * Describe the limit that is currently holding requests back, if any.
+     * @return  A description such as "20 requests in 60 seconds", or null
+     *          if no limit currently requires a wait
+     */
+    public synchronized String bindingLimit() {
+        long now = System.nanoTime();
+        int binding = -1;
+        long at = now;
+        for (int i = 0; i < nLimits; i++) {
+            long earliest = notBefore(at, i, counts[i]);
+            if (earliest != at) { at = earliest; binding = i; }
+        }
+        if (binding == -1) return null;
+        return counts[binding] + " requests in " + seconds[binding] + " seconds";
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - The sliding window computations. Callers hold the lock.
+ *
+ *----------------------------------------------------------------------------*/
+
+    // The earliest time at or after now at which a request conforms to all
+    // of the limits with the given headroom. Leaving h permits unused means
+    // only N - h requests may be in the window. A request is never admitted
+    // ahead of one already reserved, which keeps each ring in time order.
+    // Times are System.nanoTime() values, so they are only compared by
+    // subtraction.
+    private long conformingAt(long now, int headroom) {
+        long at = (any && latest - now > 0) ? latest : now;
+        for (int i = 0; i < nLimits; i++) {
+            int allowed = counts[i] - Math.min(Math.max(headroom, 0), counts[i] - 1);
+            at = notBefore(at, i, allowed);
+        }
+        return at;
+    }
+
+    // The later of at and the earliest time at which limit i has room for a
+    // request when only the given number of requests may be in its window,
+    // which is one period after the request that many back
+    private long notBefore(long at, int i, int allowed) {
+        LongRingBuffer ring = admitted[i];
+        int size = ring.size();
+        if (size < allowed) return at;
+        long earliest = ring.peekAt(size - allowed) + periods[i];
+        return (earliest - at > 0) ? earliest : at;
+    }
+
+    // Record a request admitted at the specified time
+    private void admit(long at) {
+        for (int i = 0; i < nLimits; i++) { admitted[i].insert(at); }
+        latest = at;
+        any = true;
+    }
+
+    private void retryAcquire(final CompletableFuture<Void> f, final int headroom) {
+        if (tryAcquire(headroom)) {
+            f.complete(null);
+            return;
+        }
+        timer().schedule(new Runnable() {
+            @Override public void run() { retryAcquire(f, headroom); } },
+            Math.max(nanosUntilAvailable(headroom), 1), TimeUnit.NANOSECONDS);
+    }
+
+    private static ScheduledExecutorService timer() {
+        ScheduledExecutorService t = timer;
+        if (t == null) {
+            synchronized (RateLimiter.class) {
+                if ((t = timer) == null) {
+                    ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1,
+                        new ThreadFactory() {
+                            @Override public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "RateLimiter Timer");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                    stpe.setRemoveOnCancelPolicy(true);
+                    timer = t = stpe;
+                }
+            }
+        }
+        return t;
+    }
+}
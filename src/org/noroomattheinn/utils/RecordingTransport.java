@@ -0,0 +1,252 @@
+/*
+ * RecordingTransport.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RecordingTransport: A Transport that passes requests to another Transport
+ * and records each response to a file as it is read, so that it can be
+ * played back later by a ReplayTransport. A streaming response is recorded a
+ * line at a time, each line with the time it arrived, so the playback can
+ * reproduce the rate at which the records came in.
+ * <P>
+ * Request headers and bodies are not recorded, but response bodies are,
+ * and these include the access token returned when logging in and the
+ * streaming tokens in the vehicle list. Treat recordings accordingly.
+ * <P>
+ * The file is a sequence of entries, each starting with a tag, the id of the
+ * exchange it belongs to, and the milliseconds elapsed since the previous
+ * entry. Integers are varints.
+ * <pre>
+ *   Exchange:  'X' id delta latency method path status
+ *   Body:      'B' id delta length bytes
+ *   End:       'E' id delta
+ * </pre>
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class RecordingTransport implements Transport {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static final Logger logger = Logger.getLogger(RecordingTransport.class.getName());
+
+    static final int  Magic = 0x54525031;   // "TRP1"
+    static final byte Exchange = 'X', Body = 'B', End = 'E';
+
+    private static final int MaxLineLength = 8 * 1024;    // Longer lines are split
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final Transport         delegate;
+    private final DataOutputStream  out;
+    private final AtomicInteger     nextID = new AtomicInteger();
+    private long                    lastEntry;
+    private boolean                 closed = false;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Create a RecordingTransport
+     * @param delegate  The Transport that actually issues the requests
+     * @param recording The file to record to. It is overwritten.
+     * @throws IOException  If the file can't be created
+     */
+    public RecordingTransport(Transport delegate, File recording) throws IOException {
+        this.delegate = delegate;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recording)));
+        this.out.writeInt(Magic);
+        this.out.writeLong(System.currentTimeMillis());
+        this.out.flush();
+        this.lastEntry = now();
+    }
+
+    @Override public Response execute(Request request) throws IOException {
+        long start = now();
+        return record(request, start, delegate.execute(request));
+    }
+
+    @Override public Response executeStreaming(Request request) throws IOException {
+        long start = now();
+        return record(request, start, delegate.executeStreaming(request));
+    }
+
+    private Response record(Request request, long start, Response response)
+            throws IOException {
+        int id = nextID.incrementAndGet();
+        synchronized (this) {
+            if (begin(Exchange, id)) {
+                writeVarint(now() - start);
+                out.writeUTF(request.method);
+                out.writeUTF(request.url.getFile());
+                writeVarint(response.status);
+                out.flush();
+            }
+        }
+        return new RecordedResponse(id, response);
+    }
+
+    /**
+     * Finish the recording and close the underlying Transport
+     */
+    @Override public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                try { out.close(); } catch (IOException e) {
+                    logger.log(Level.WARNING, "Can't finish recording", e);
+                }
+            }
+        }
+        delegate.close();
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Writing entries. Callers hold the lock.
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static long now() { return System.nanoTime() / 1000000; }
+
+    private boolean begin(byte tag, int id) throws IOException {
+        if (closed) return false;
+        long t = now();
+        out.writeByte(tag);
+        writeVarint(id);
+        writeVarint(t - lastEntry);
+        lastEntry = t;
+        return true;
+    }
+
+    private void writeVarint(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    private void recordBody(int id, byte[] b, int length) {
+        synchronized (this) {
+            try {
+                if (begin(Body, id)) {
+                    writeVarint(length);
+                    out.write(b, 0, length);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Can't record response", e);
+            }
+        }
+    }
+
+    private void recordEnd(int id) {
+        synchronized (this) {
+            try {
+                if (begin(End, id)) out.flush();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Can't record response", e);
+            }
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - A Response whose body is recorded as it is read
+ *
+ *----------------------------------------------------------------------------*/
+
+    private class RecordedResponse extends Response {
+        final int       id;
+        final Response  response;
+        final byte[]    line = new byte[MaxLineLength];
+        int             lineLength = 0;
+        boolean         ended = false;
+        InputStream     body = null;
+
+        RecordedResponse(int id, Response response) {
+            super(response.status, new HashMap<String,String>());
+            this.id = id;
+            this.response = response;
+        }
+
+        @Override public String header(String name) { return response.header(name); }
+
+        @Override public synchronized InputStream body() {
+            if (body == null) {
+                final InputStream in = response.body();
+                body = new InputStream() {
+                    @Override public int read() throws IOException {
+                        int c = in.read();
+                        if (c == -1) end(); else received((byte)c);
+                        return c;
+                    }
+                    @Override public int read(byte[] b, int off, int len) throws IOException {
+                        int n = in.read(b, off, len);
+                        if (n == -1) end();
+                        for (int i = 0; i < n; i++) { received(b[off + i]); }
+                        return n;
+                    }
+                    @Override public int available() throws IOException { return in.available(); }
+                    @Override public void close() throws IOException { in.close(); }
+                };
+            }
+            return body;
+        }
+
+        @Override public void close() {
+            end();
+            response.close();
+        }
+
+        @Override public void abort() {
+            end();
+            response.abort();
+        }
+
+        // A line (including its newline) is recorded when it is complete
+        private synchronized void received(byte c) {
+            if (ended) return;
+            line[lineLength++] = c;
+            if (c == '\n' || lineLength == line.length) {
+                recordBody(id, line, lineLength);
+                lineLength = 0;
+            }
+        }
+
+        private synchronized void end() {
+            if (ended) return;
+            ended = true;
+            if (lineLength > 0) recordBody(id, line, lineLength);
+            lineLength = 0;
+            recordEnd(id);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * ReplayTransport.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * ReplayTransport: A Transport that answers requests from a recording made
+ * by RecordingTransport instead of going to a server. This lets a Tesla
+ * object, its Vehicles and their Streamers run offline against real data.
+ * <P>
+ * A request is answered with the next unused recorded response for the same
+ * method and path (the host is ignored). Once all of them have been used,
+ * the last one is repeated, so polling loops keep running. Requests that
+ * were never recorded get a 404.
+ * <P>
+ * Responses are paced as they were recorded: each response is delayed by
+ * the recorded latency, and each line of its body is delivered when it
+ * arrived relative to the start of the response. A speed of 1 replays in
+ * real time, N replays N times faster and MaxSpeed doesn't wait at all.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class ReplayTransport implements Transport {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static final Logger logger = Logger.getLogger(ReplayTransport.class.getName());
+
+    public static final double RealTime = 1.0;
+    public static final double MaxSpeed = Double.POSITIVE_INFINITY;
+
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final double speed;
+    private final Map<String,ArrayDeque<Exchange>> exchanges;
+    private final long recordedAt;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Load a recording
+     * @param recording The file written by a RecordingTransport
+     * @param speed     How many times faster than real time to replay
+     * @throws IOException  If the recording can't be read
+     */
+    public ReplayTransport(File recording, double speed) throws IOException {
+        if (!(speed > 0)) throw new IllegalArgumentException("speed must be positive");
+        this.speed = speed;
+        this.exchanges = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(recording)))) {
+            if (in.readInt() != RecordingTransport.Magic) {
+                throw new IOException("Not a recording: " + recording);
+            }
+            recordedAt = in.readLong();
+            load(in);
+        }
+    }
+
+    /**
+     * Returns when the recording was made
+     * @return  The start of the recording in milliseconds since the epoch
+     */
+    public long recordedAt() { return recordedAt; }
+
+    @Override public Response execute(Request request) throws IOException {
+        Exchange e = next(request.method + " " + request.url.getFile());
+        if (e == null) {
+            logger.fine("No recorded response for " + request.method + " " + request.url);
+            return new ReplayedResponse(404, new ArrayList<Segment>());
+        }
+        pause(e.latency);
+        return new ReplayedResponse(e.status, e.body);
+    }
+
+    @Override public void close() { }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Loading the recording
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static class Segment {
+        final long   offset;    // Milliseconds after the response began
+        final byte[] bytes;
+        Segment(long offset, byte[] bytes) { this.offset = offset; this.bytes = bytes; }
+    }
+
+    private static class Exchange {
+        final long          latency;
+        final int           status;
+        final long          startedAt;
+        final List<Segment> body = new ArrayList<>();
+        Exchange(long latency, int status, long startedAt) {
+            this.latency = latency;
+            this.status = status;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private void load(DataInputStream in) throws IOException {
+        Map<Long,Exchange> byID = new HashMap<>();
+        long time = 0;
+        while (true) {
+            int tag = in.read();
+            if (tag == -1) break;
+            try {
+                long id = readVarint(in);
+                time += readVarint(in);
+                switch (tag) {
+                    case RecordingTransport.Exchange: {
+                        long latency = readVarint(in);
+                        String key = in.readUTF() + " " + in.readUTF();
+                        Exchange e = new Exchange(latency, (int)readVarint(in), time);
+                        byID.put(id, e);
+                        ArrayDeque<Exchange> q = exchanges.get(key);
+                        if (q == null) exchanges.put(key, q = new ArrayDeque<>());
+                        q.add(e);
+                        break;
+                    }
+                    case RecordingTransport.Body: {
+                        byte[] bytes = new byte[(int)readVarint(in)];
+                        in.readFully(bytes);
+                        Exchange e = byID.get(id);
+                        if (e != null) e.body.add(new Segment(time - e.startedAt, bytes));
+                        break;
+                    }
+                    case RecordingTransport.End:
+                        byID.remove(id);
+                        break;
+                    default:
+                        throw new IOException("Corrupt recording");
+                }
+            } catch (EOFException e) {
+                break;  // The recording was cut short, use what's there
+            }
+        }
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            v |= (long)(b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+/*------------------------------------------------------------------------------
+ *
+ * PRIVATE - Playing it back
+ *
+ *----------------------------------------------------------------------------*/
+
+    private synchronized Exchange next(String key) {
+        ArrayDeque<Exchange> q = exchanges.get(key);
+        if (q == null || q.isEmpty()) return null;
+        return (q.size() > 1) ? q.poll() : q.peek();
+    }
+
+    private void pause(long recordedMillis) {
+        long delay = scaled(recordedMillis);
+        if (delay > 0) Utils.yieldFor(delay);
+    }
+
+    private long scaled(long recordedMillis) {
+        return (speed == MaxSpeed) ? 0 : (long)(recordedMillis / speed);
+    }
+
+    private class ReplayedResponse extends Response {
+        final List<Segment> segments;
+        final long          startedAt = System.currentTimeMillis();
+        InputStream         body = null;
+        boolean             aborted = false;
+
+        ReplayedResponse(int status, List<Segment> segments) {
+            super(status, new HashMap<String,String>());
+            this.segments = segments;
+        }
+
+        @Override public synchronized InputStream body() {
+            if (body == null) body = new SegmentStream();
+            return body;
+        }
+
+        @Override public void close() { }
+
+        @Override public synchronized void abort() {
+            aborted = true;
+            notifyAll();
+        }
+
+        // Wait until the segment is due. Returns false if aborted meanwhile.
+        private synchronized boolean await(Segment s) {
+            long due = startedAt + scaled(s.offset);
+            long now;
+            while (!aborted && (now = System.currentTimeMillis()) < due) {
+                try {
+                    wait(due - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !aborted;
+        }
+
+        private class SegmentStream extends InputStream {
+            int segment = 0, pos = 0;
+
+            @Override public int read() throws IOException {
+                byte[] one = new byte[1];
+                return (read(one, 0, 1) == -1) ? -1 : (one[0] & 0xFF);
+            }
+
+            @Override public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                while (segment < segments.size()) {
+                    Segment s = segments.get(segment);
+                    if (pos == 0 && !await(s)) throw new IOException("Stream closed");
+                    if (pos < s.bytes.length) {
+                        int n = Math.min(len, s.bytes.length - pos);
+                        System.arraycopy(s.bytes, pos, b, off, n);
+                        pos += n;
+                        return n;
+                    }
+                    segment++;
+                    pos = 0;
+                }
+                return -1;
+            }
+        }
+    }
+}
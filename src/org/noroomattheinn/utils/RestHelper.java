@@ -6,9 +6,12 @@
 
 package org.noroomattheinn.utils;
 
+import java.net.InetSocketAddress;
+import java.net.Proxy;
 import java.net.URLConnection;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import us.monoid.json.JSONException;
@@ -37,6 +40,7 @@ public class RestHelper {
  *----------------------------------------------------------------------------*/
 
     private static Resty.Proxy proxy = null;
+    private static Proxy netProxy = null;
     
 /*==============================================================================
  * -------                                                               -------
@@ -59,8 +63,16 @@ public class RestHelper {
     
     public static void setDefaultProxy(String host, int port) {
         proxy = new Resty.Proxy(host, port);
+        netProxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port));
     }
     
+    /**
+     * Return the proxy established by setDefaultProxy() for use by
+     * Transports that don't go through Resty.
+     * @return  The default proxy or null if none has been set
+     */
+    public static Proxy getDefaultProxy() { return netProxy; }
+    
 
 /*------------------------------------------------------------------------------
  *
@@ -112,42 +124,59 @@ public class RestHelper {
     }
         
     public static class Throttle extends Resty.Option {
-        private CircularBuffer<Pair<Long,String>> timestamps = new CircularBuffer<>(200);
-        private List<Pair<Integer,Integer>> rateLimits;
+        private final RateLimiter limiter;
         
         public Throttle(List<Pair<Integer,Integer>> rateLimits) {
-            this.rateLimits = rateLimits;
+            this.limiter = new RateLimiter(rateLimits);
         }
         
         @Override public void apply(URLConnection aConnection) {
-            String endpoint = aConnection.getURL().toExternalForm();
-            timestamps.insert(new Pair<>(System.currentTimeMillis(), endpoint));
-            while (rateLimit(endpoint)) {
-                Utils.sleep(5 * 1000);
+            apply(aConnection.getURL().toExternalForm());
+        }
+        
+        /**
+         * Record a request to the specified endpoint and wait, if necessary,
+         * until issuing it would not exceed any of the rate limits. The wait
+         * is exactly as long as required by the most restrictive limit.
+         * @param endpoint  The endpoint about to be requested
+         */
+        public void apply(String endpoint) {
+            logIfThrottled(endpoint);
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
         
-        private boolean rateLimit(String endpoint) {
-            long now = System.currentTimeMillis();
-            int size = timestamps.size();
-
-            for (Pair<Integer,Integer> limit : rateLimits) {
-                int count = limit.item1;
-                int seconds = limit.item2;
-                if (size < count) return false;
-
-                Pair<Long,String> p = timestamps.peekAt(size - count);
-                long nthRequest = p.item1;
-
-                if ((now - nthRequest) < seconds * 1000) {
-                    logger.log(
-                        Level.INFO, "Throttling: More than {0} requests in {1} seconds - {2}", 
-                        new Object[]{count, seconds, endpoint});
-                    return true;
-                }    
+        /**
+         * Record a request to the specified endpoint if that can be done
+         * without exceeding any of the rate limits.
+         * @param endpoint  The endpoint about to be requested
+         * @return  true if the request may be issued now
+         *          false if it would exceed a rate limit (nothing is recorded)
+         */
+        public boolean tryApply(String endpoint) {
+            return limiter.tryAcquire();
+        }
+        
+        /**
+         * Record a request to the specified endpoint without blocking.
+         * @param endpoint  The endpoint about to be requested
+         * @return  A future that completes when the request may be issued
+         */
+        public CompletableFuture<Void> applyAsync(String endpoint) {
+            logIfThrottled(endpoint);
+            return limiter.acquireAsync();
+        }
+        
+        private void logIfThrottled(String endpoint) {
+            String limit = limiter.bindingLimit();
+            if (limit != null) {
+                logger.log(
+                    Level.INFO, "Throttling: More than {0} - {1}", 
+                    new Object[]{limit, endpoint});
             }
-
-            return false;
         }
     }
     
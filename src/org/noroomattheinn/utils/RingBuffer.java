@@ -0,0 +1,90 @@
+/*
+ * RingBuffer.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * RingBuffer: A lock-free circular buffer for one producer and any number of
+ * readers. When the buffer is full, inserting overwrites the oldest element.
+ * As with CircularBuffer, it is possible to peek at any element in the
+ * buffer, not just the first and last; unlike CircularBuffer, elements can't
+ * be removed, and nothing is synchronized. Only one thread may insert.
+ * <P>
+ * LongRingBuffer and DoubleRingBuffer are the same thing for primitives,
+ * without the boxing.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class RingBuffer<T> extends RingIndex {
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    private final AtomicReferenceArray<T> data;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    /**
+     * Creates a ring buffer with the specified capacity
+     * @param capacity  The maximum number of elements held
+     */
+    public RingBuffer(int capacity) {
+        super(capacity);
+        this.data = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Inserts an item at the end of the buffer, overwriting the oldest item
+     * if the buffer is full. Must only be called by the producer thread.
+     * @param item  The item to be inserted
+     */
+    public void insert(T item) {
+        long i = next();
+        data.lazySet(beginInsert(i), item);
+        endInsert(i);
+    }
+
+    /**
+     * Returns the nth oldest element without removing it
+     * @param n The index of the element, 0 being the oldest
+     * @return  The element, or null if there are no more than n elements
+     */
+    public T peekAt(int n) {
+        while (true) {
+            long i = indexOf(n);
+            if (i < 0) return null;
+            T item = data.get(slot(i));
+            if (intact(i)) return item;
+        }
+    }
+
+    /**
+     * Returns the oldest element without removing it
+     * @return  The oldest element, or null if the buffer is empty
+     */
+    public T peekFront() { return peekAt(0); }
+
+    /**
+     * Returns the most recently inserted element
+     * @return  The newest element, or null if the buffer is empty
+     */
+    public T peekLast() {
+        while (true) {
+            long i = last();
+            if (i < 0) return null;
+            T item = data.get(slot(i));
+            if (intact(i)) return item;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * RingIndex.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RingIndex: The bookkeeping shared by RingBuffer, LongRingBuffer and
+ * DoubleRingBuffer. Elements are numbered in insertion order; element i lives
+ * in slot i % capacity until element i + capacity overwrites it.
+ * <P>
+ * The single producer advances "started" before it stores an element and
+ * "published" after. A reader finds the element it wants from "published",
+ * reads the slot, and then checks "started" to make sure the producer hadn't
+ * begun to overwrite the slot in the meantime. If it had, the reader tries
+ * again. The slot reads and writes go through atomic arrays so that the
+ * checks are ordered with respect to them.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+abstract class RingIndex {
+/*------------------------------------------------------------------------------
+ *
+ * Internal State
+ *
+ *----------------------------------------------------------------------------*/
+
+    protected final int     capacity;
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    RingIndex(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the number of elements in the buffer (not the capacity). Since
+     * elements are never removed, the size never shrinks.
+     * @return  The number of elements
+     */
+    public int size() { return (int)Math.min(published.get(), capacity); }
+
+    public int capacity() { return capacity; }
+
+    /**
+     * Returns the number of elements ever inserted, including those that
+     * have since been overwritten
+     * @return  The number of insertions
+     */
+    public long inserted() { return published.get(); }
+
+/*------------------------------------------------------------------------------
+ *
+ * Methods used by the buffers
+ *
+ *----------------------------------------------------------------------------*/
+
+    // Producer: announce element i, returning its slot
+    final int beginInsert(long i) {
+        started.set(i + 1);
+        return slot(i);
+    }
+
+    // Producer: the element numbered by beginInsert() has been stored
+    final void endInsert(long i) { published.lazySet(i + 1); }
+
+    // Producer: the number of the next element
+    final long next() { return published.get(); }
+
+    // The number of the nth oldest element present, or -1 if there isn't one
+    final long indexOf(int n) {
+        long p = published.get();
+        long size = Math.min(p, capacity);
+        return (n < 0 || n >= size) ? -1 : p - size + n;
+    }
+
+    // The number of the newest element, or -1 if the buffer is empty
+    final long last() { return published.get() - 1; }
+
+    final int slot(long i) { return (int)(i % capacity); }
+
+    // Whether element i was still in its slot after the slot was read
+    final boolean intact(long i) { return started.get() - i <= capacity; }
+
+    final IndexOutOfBoundsException outOfBounds(int n) {
+        return new IndexOutOfBoundsException("Index: " + n + ", Size: " + size());
+    }
+}
@@ -8,15 +8,39 @@ package org.noroomattheinn.utils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Timer;
+import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.io.IOUtils;
 
 /**
  * ThreadManager: Manage (start, stop, cleanup) threads used by the app
+ * <P>
+ * When created with virtual threads enabled, and running on a JVM that has
+ * them (Java 21 or later), the threads launched by the ThreadManager are
+ * virtual threads rather than platform threads. A virtual thread that blocks
+ * on I/O releases its carrier thread, so thousands of pollers and stream
+ * readers can block cheaply. Virtual threads are created reflectively so
+ * that the library still runs on older JVMs, where the ThreadManager falls
+ * back to platform threads.
+ * <P>
+ * Timed and periodic tasks run on a small pool of timer threads. A task that
+ * throws is logged rather than stopping the timer, and a slow task delays
+ * only the tasks that are waiting for the same thread. Each task can be
+ * cancelled with the ScheduledFuture returned when it is scheduled, and the
+ * lateness and run time of tasks are tracked by name (see timerStats()).
  *
  * @author Joe Pasqua <joe at NoRoomAtTheInn dot org>
  */
@@ -30,12 +54,15 @@ public class ThreadManager {
     
     private static ThreadManager instance = null;
     private static final Logger logger = Logger.getLogger(ThreadManager.class.getName());
+    private static final int TimerThreads = 2;
     
     private int threadID = 0;
     
     private final ArrayList<Thread> threads;
-    private final List<Stoppable>   stopList;
-    private final Timer             timer;
+    private final CopyOnWriteArrayList<Stoppable> stopList;
+    private final ScheduledThreadPoolExecutor       timer;
+    private final ConcurrentHashMap<String,TaskStats> timerStats;
+    private final ThreadFactory     virtualThreads; // null if not in use
     private boolean                 shuttingDown;
     
 /*==============================================================================
@@ -45,25 +72,72 @@ public class ThreadManager {
  *============================================================================*/
     
 
-    public static ThreadManager create() {
+    public static ThreadManager create() { return create(false); }
+    
+    /**
+     * Create the ThreadManager. Only the first call has any effect; later
+     * calls return the existing instance.
+     * @param useVirtualThreads Launch virtual threads rather than platform
+     *                          threads, if the JVM supports them
+     * @return  The ThreadManager
+     */
+    public static synchronized ThreadManager create(boolean useVirtualThreads) {
         if (instance != null) return instance;
-        return (instance = new ThreadManager());
+        ThreadFactory factory = null;
+        if (useVirtualThreads) {
+            factory = virtualThreadFactory();
+            if (factory == null) {
+                logger.warning("Virtual threads aren't available, using platform threads");
+            }
+        }
+        return (instance = new ThreadManager(factory));
     }
     
     public static ThreadManager get() { return instance; }
     
-    public interface Stoppable { public void stop(); }
+    /**
+     * Stoppable: A service that is shut down along with the ThreadManager.
+     * Each Stoppable is given until a deadline to drain (finish in-flight
+     * work) and is then stopped. Stoppables are drained and stopped in
+     * parallel, so stop() should abort anything still in progress (e.g.
+     * close sockets) rather than wait for it.
+     */
+    public interface Stoppable {
+        public void stop();
+        
+        /**
+         * Finish in-flight work, returning by the deadline. The default
+         * returns immediately.
+         * @param deadline  The time (as System.currentTimeMillis()) by which
+         *                  draining must be complete
+         */
+        public default void drain(long deadline) { }
+    }
+    
+    /** The default bound on the time shutDown() takes */
+    public static final long DefaultShutdownTimeout = 5 * 1000;
     
     public boolean shuttingDown() { return shuttingDown; }
     
+    /**
+     * Returns whether launch() creates virtual threads
+     * @return  true if launched threads are virtual
+     */
+    public boolean usesVirtualThreads() { return virtualThreads != null; }
+    
+    /**
+     * Returns whether this JVM supports virtual threads
+     * @return  true if virtual threads are supported
+     */
+    public static boolean virtualThreadsSupported() { return virtualThreadFactory() != null; }
     
     public synchronized Thread launch(Runnable r, String name) {
         if (shuttingDown) return null;
         
-        Thread t = new Thread(r);
+        Thread t = (virtualThreads != null) ? virtualThreads.newThread(r) : new Thread(r);
         if (name == null) name = String.valueOf(threadID++);
         t.setName("00 VT - " + name);
-        t.setDaemon(true);
+        t.setDaemon(true);      // Virtual threads are always daemons
         t.start();
         threads.add(t);
 
@@ -79,48 +153,198 @@ public class ThreadManager {
         return t;
     }
     
-    public void addTimedTask(TimerTask task, long delay) {
-        timer.schedule(task, delay);
+    /**
+     * Run a task once after a delay. The task is named by its class in the
+     * timer statistics. Use the returned ScheduledFuture, not
+     * TimerTask.cancel(), to cancel the task.
+     * @param task  The task to run
+     * @param delay The delay in milliseconds
+     * @return      A handle that can be used to cancel the task, or null if
+     *              the ThreadManager is shutting down
+     */
+    public ScheduledFuture<?> addTimedTask(TimerTask task, long delay) {
+        return schedule(task.getClass().getName(), task, delay);
+    }
+    
+    /**
+     * Run a task once after a delay
+     * @param name  The name under which timer statistics are kept for the task
+     * @param task  The task to run
+     * @param delay The delay in milliseconds
+     * @return      A handle that can be used to cancel the task, or null if
+     *              the ThreadManager is shutting down
+     */
+    public ScheduledFuture<?> schedule(String name, Runnable task, long delay) {
+        if (shuttingDown) return null;
+        try {
+            Timed t = new Timed(name, task, delay, 0);
+            return timer.schedule(t, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;    // We started shutting down
+        }
     }
     
-    public void addStoppable(Stoppable s) { stopList.add(s); }
+    /**
+     * Run a task repeatedly at a fixed rate. Unlike a task scheduled directly
+     * on a ScheduledExecutorService, the task continues to be run if it throws
+     * an exception.
+     * @param name  The name under which timer statistics are kept for the task
+     * @param task  The task to run
+     * @param initialDelay  The delay before the first run in milliseconds
+     * @param period        The time between the start of successive runs in
+     *                      milliseconds
+     * @return      A handle that can be used to cancel the task, or null if
+     *              the ThreadManager is shutting down
+     */
+    public ScheduledFuture<?> schedulePeriodic(
+            String name, Runnable task, long initialDelay, long period) {
+        if (shuttingDown) return null;
+        try {
+            Timed t = new Timed(name, task, initialDelay, period);
+            return timer.scheduleAtFixedRate(t, initialDelay, period, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;    // We started shutting down
+        }
+    }
+    
+    /**
+     * Returns the statistics for each name under which tasks have been run
+     * @return  A live, unmodifiable map from name to statistics
+     */
+    public Map<String,TaskStats> timerStats() {
+        return Collections.unmodifiableMap(timerStats);
+    }
+    
+    /**
+     * TaskStats: How late and how long the runs of tasks with a given name
+     * have been. A run's lateness is the time from when it was due to when it
+     * started.
+     */
+    public static final class TaskStats {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLateness = new AtomicLong();
+        private final AtomicLong maxLateness = new AtomicLong();
+        private final AtomicLong totalRunTime = new AtomicLong();
+        
+        public long runs() { return runs.get(); }
+        
+        public long failures() { return failures.get(); }
+        
+        public double meanLatenessMillis() { return mean(totalLateness); }
+        
+        public double maxLatenessMillis() { return maxLateness.get() / 1e6; }
+        
+        public double meanRunMillis() { return mean(totalRunTime); }
+        
+        @Override public String toString() {
+            return String.format(
+                    "%d runs, %d failures, lateness %.1f ms mean %.1f ms max, run %.1f ms mean",
+                    runs(), failures(), meanLatenessMillis(), maxLatenessMillis(),
+                    meanRunMillis());
+        }
+        
+        private void record(long lateness, long runTime, boolean failed) {
+            runs.incrementAndGet();
+            if (failed) failures.incrementAndGet();
+            totalLateness.addAndGet(lateness);
+            totalRunTime.addAndGet(runTime);
+            long max;
+            while (lateness > (max = maxLateness.get()) &&
+                   !maxLateness.compareAndSet(max, lateness)) { }
+        }
+        
+        private double mean(AtomicLong total) {
+            long n = runs.get();
+            return (n == 0) ? 0 : total.get() / 1e6 / n;
+        }
+    }
+    
+    public void addStoppable(Stoppable s) { stopList.addIfAbsent(s); }
+    
+    public void removeStoppable(Stoppable s) { stopList.remove(s); }
+    
+    /**
+     * Arrange for a service to be stopped when the ThreadManager shuts down,
+     * if one has been created. Services that hold threads or connections
+     * call this themselves when they start, so an app needn't register each
+     * one with addStoppable().
+     * @param s The service
+     */
+    public static void registerStoppable(Stoppable s) {
+        ThreadManager tm = get();
+        if (tm != null) tm.addStoppable(s);
+    }
     
-    public synchronized void shutDown() {
+    /**
+     * Undo registerStoppable() for a service that has been stopped or closed,
+     * so the ThreadManager doesn't hold on to it
+     * @param s The service
+     */
+    public static void unregisterStoppable(Stoppable s) {
+        ThreadManager tm = get();
+        if (tm != null) tm.removeStoppable(s);
+    }
+    
+    public void shutDown() { shutDown(DefaultShutdownTimeout); }
+    
+    /**
+     * Shut down all threads and services, taking no more than (roughly) the
+     * given time regardless of how many threads there are. The first half
+     * of the time is for the Stoppables to drain; they are then stopped.
+     * Once they have stopped, or three quarters of the time has passed,
+     * every launched thread is interrupted and the remaining time is spent
+     * waiting for them to exit. Threads that
+     * haven't exited by the deadline (e.g. because they're stuck in I/O that
+     * no Stoppable aborted) are logged and abandoned; they're daemons, so
+     * they don't keep the JVM alive.
+     * @param timeout   The time allowed for shutdown in milliseconds
+     */
+    public synchronized void shutDown(long timeout) {
+        if (shuttingDown) return;
         shuttingDown = true;
-        timer.cancel();
-        for (Stoppable s : stopList) { s.stop(); }
+        long start = System.currentTimeMillis();
+        final long drainDeadline = start + timeout / 2;
+        long stopDeadline = start + timeout * 3 / 4;
+        long deadline = start + timeout;
+        timer.shutdownNow();
         
-        int nActive;
-        do {
-            nActive = 0;
-            logger.finest("Iterating through terminate loop");
-            for (Thread t : threads) {
-                Thread.State state = t.getState();
-                switch (state) {
-                    case NEW:
-                    case RUNNABLE:
-                        nActive++;
-                        logger.finest("Active thread: " + t.getName());
-                        break;
-
-                    case TERMINATED:
-                        logger.finest("Terminated thread: " + t.getName());
-                        break;
-
-                    case BLOCKED:
-                    case TIMED_WAITING:
-                    case WAITING:
-                        logger.finest("About to interrupt thread: " + t.getName());
-                        nActive++;
-                        t.interrupt();
-                        Utils.yieldFor(100);
-                        break;
-
-                    default:
-                        break;
+        // Drain, then stop, each Stoppable on a thread of its own
+        List<Thread> stoppers = new ArrayList<>(stopList.size());
+        for (final Stoppable s : stopList) {
+            Thread t = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        s.drain(drainDeadline);
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Exception draining " + s, e);
+                    }
+                    try {
+                        s.stop();
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Exception stopping " + s, e);
+                    }
                 }
+            }, "00 VT - Stopping " + s);
+            t.setDaemon(true);
+            t.start();
+            stoppers.add(t);
+        }
+        awaitAll(stoppers, stopDeadline);
+        
+        Thread self = Thread.currentThread();
+        for (Thread t : threads) { if (t != self) t.interrupt(); }
+        List<Thread> stuck = awaitAll(threads, deadline);
+        stuck.addAll(awaitAll(stoppers, deadline));
+        if (!stuck.isEmpty()) {
+            StringBuilder names = new StringBuilder();
+            for (Thread t : stuck) {
+                if (names.length() > 0) names.append(", ");
+                names.append(t.getName());
             }
-        } while (nActive > 0);
+            logger.warning(stuck.size() + " thread(s) didn't exit during shutdown: " + names);
+        }
+        logger.finest("Shutdown took " + (System.currentTimeMillis() - start) + "ms");
     }
     
     public void sleep(long timeInMillis) { Utils.sleep(timeInMillis,  sdPredicate); }
@@ -156,7 +380,7 @@ public class ThreadManager {
         Runnable watchdog = new Runnable() {
             @Override public void run() {
                 long targetTime = System.currentTimeMillis() + timeout;
-                while (System.currentTimeMillis() < targetTime) {
+                while (System.currentTimeMillis() < targetTime && !shuttingDown) {
                     if (hasExited(p)) {
                         int exitVal = p.exitValue();
                         logger.info("External process completed: " + name + "(" + exitVal + ")");
@@ -182,17 +406,95 @@ public class ThreadManager {
         }
     }
     
+    // Wait until each thread has exited or the deadline has passed. Returns
+    // the threads that are still alive.
+    private static List<Thread> awaitAll(List<Thread> toAwait, long deadline) {
+        List<Thread> alive = new ArrayList<>();
+        for (Thread t : toAwait) {
+            if (t == Thread.currentThread()) continue;
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                if (remaining > 0) t.join(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (t.isAlive()) alive.add(t);
+        }
+        return alive;
+    }
+    
+/*------------------------------------------------------------------------------
+ *
+ * Run timed tasks, keeping statistics and containing failures
+ * 
+ *----------------------------------------------------------------------------*/
+    
+    private final class Timed implements Runnable {
+        private final String    name;
+        private final Runnable  task;
+        private final long      period;     // In nanos, 0 if not periodic
+        private final TaskStats stats;
+        private long            due;        // Only touched by the running task
+        
+        Timed(String name, Runnable task, long delay, long period) {
+            this.name = name;
+            this.task = task;
+            this.period = TimeUnit.MILLISECONDS.toNanos(period);
+            this.due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            TaskStats s = timerStats.get(name);
+            if (s == null) {
+                TaskStats existing = timerStats.putIfAbsent(name, s = new TaskStats());
+                if (existing != null) s = existing;
+            }
+            this.stats = s;
+        }
+        
+        @Override public void run() {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                task.run();
+            } catch (Exception e) {
+                failed = true;
+                logger.log(Level.WARNING, "Timed task " + name + " failed", e);
+            }
+            stats.record(Math.max(0, start - due), System.nanoTime() - start, failed);
+            due += period;
+        }
+    }
+    
 /*------------------------------------------------------------------------------
  *
  * Hide the constructor
  * 
  *----------------------------------------------------------------------------*/
     
-    private ThreadManager() {
+    private ThreadManager(ThreadFactory virtualThreads) {
         this.threads = new ArrayList<>();
-        this.stopList = new ArrayList<>();
-        this.timer = new Timer();
+        this.stopList = new CopyOnWriteArrayList<>();
+        this.timer = new ScheduledThreadPoolExecutor(TimerThreads, new ThreadFactory() {
+            private int timerID = 0;
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "00 VT - Timer " + timerID++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timerStats = new ConcurrentHashMap<>();
+        this.virtualThreads = virtualThreads;
         this.shuttingDown = false;
     }
+    
+    // Thread.ofVirtual().factory(), or null if the JVM predates virtual threads
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
 }
 
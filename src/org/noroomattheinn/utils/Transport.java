@@ -0,0 +1,157 @@
+/*
+ * Transport.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Transport: The mechanism used to move a single HTTP request and its response
+ * between the client and a server. Tesla and Streamer send everything through
+ * a Transport so that the underlying connection handling (one connection per
+ * request, a pool of keep-alive connections, a recording, ...) can be chosen
+ * independently of the API logic.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public interface Transport {
+
+    /**
+     * Send a request and return the response. The caller owns the returned
+     * Response and must close() it when done with the body. Implementations
+     * return responses for every status code; it is up to the caller to
+     * decide what constitutes an error.
+     * @param request   The request to send
+     * @return          The response. Never null.
+     * @throws IOException  If the request could not be sent or the response
+     *                      could not be read
+     */
+    Response execute(Request request) throws IOException;
+
+    /**
+     * Send a request whose response body streams for as long as the server
+     * keeps it open (e.g. a vehicle's streaming telemetry). Implementations
+     * that limit or pool connections shouldn't let such a response hold on
+     * to one of them. By default this is the same as execute().
+     * @param request   The request to send
+     * @return          The response. Never null.
+     * @throws IOException  If the request could not be sent or the response
+     *                      could not be read
+     */
+    default Response executeStreaming(Request request) throws IOException {
+        return execute(request);
+    }
+
+    /**
+     * Release any resources (e.g. pooled connections) held by this Transport
+     */
+    void close();
+
+/*------------------------------------------------------------------------------
+ *
+ * Request and Response
+ *
+ *----------------------------------------------------------------------------*/
+
+    public static class Request {
+        public final String method;
+        public final URL    url;
+        public final Map<String,String> headers;
+        public final byte[] body;
+        public final int    readTimeout;
+
+        public Request(String method, URL url, Map<String,String> headers,
+                       byte[] body, int readTimeout) {
+            this.method = method;
+            this.url = url;
+            this.headers = (headers == null) ?
+                    new LinkedHashMap<String,String>() : headers;
+            this.body = body;
+            this.readTimeout = readTimeout;
+        }
+
+        public static Request get(String url, Map<String,String> headers, int readTimeout)
+                throws IOException {
+            return new Request("GET", new URL(url), headers, null, readTimeout);
+        }
+
+        public static Request post(String url, Map<String,String> headers,
+                                   String json, int readTimeout) throws IOException {
+            Map<String,String> h = new LinkedHashMap<>(headers);
+            h.put("Content-Type", "application/json; charset=utf-8");
+            return new Request("POST", new URL(url), h,
+                    json.getBytes(StandardCharsets.UTF_8), readTimeout);
+        }
+    }
+
+    public static abstract class Response {
+        public final int status;
+        private final Map<String,String> headers;
+
+        /**
+         * Create a Response
+         * @param status    The HTTP status code
+         * @param headers   The response headers. Keys must be lower case.
+         */
+        protected Response(int status, Map<String,String> headers) {
+            this.status = status;
+            this.headers = headers;
+        }
+
+        public String header(String name) {
+            return headers.get(name.toLowerCase(Locale.US));
+        }
+
+        public boolean ok() { return status >= 200 && status < 300; }
+
+        /**
+         * Return the body of the response as a stream. The stream must be
+         * consumed and/or the response closed in order for any underlying
+         * connection to be reused.
+         * @return  The body of the response
+         */
+        public abstract InputStream body();
+
+        /**
+         * Indicate that the caller is done with this Response. If the body
+         * has been fully read, the underlying connection may be reused.
+         */
+        public abstract void close();
+
+        /**
+         * Forcibly terminate this response and the connection beneath it.
+         * This may be called from a thread other than the one reading the
+         * body in order to unblock it.
+         */
+        public abstract void abort();
+
+        /**
+         * Read the entire body, close the response, and return the body as
+         * a UTF-8 string.
+         * @return  The body of the response
+         * @throws IOException  If the body could not be read
+         */
+        public String asString() throws IOException {
+            try {
+                InputStream in = body();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+                byte[] buf = new byte[4096];
+                int n;
+                while ((n = in.read(buf)) != -1) { out.write(buf, 0, n); }
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            } finally {
+                close();
+            }
+        }
+    }
+}
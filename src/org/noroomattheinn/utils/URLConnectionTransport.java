@@ -0,0 +1,79 @@
+/*
+ * URLConnectionTransport.java - Copyright(c) 2026 James Burke
+ * Provided under the MIT License. See the LICENSE file for details.
+ * Created: Oct 17, 2026
+ */
+
+package org.noroomattheinn.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * URLConnectionTransport: A Transport that opens a new HttpURLConnection for
+ * every request. This is how the library has always talked to Tesla (via
+ * Resty) and it remains useful where the JDK's networking configuration
+ * (proxies, authenticators, etc.) must be honored.
+ *
+ * @author James Burke <jburke at jbctech dot com>
+ */
+public class URLConnectionTransport implements Transport {
+
+/*------------------------------------------------------------------------------
+ *
+ * Constants and Enums
+ *
+ *----------------------------------------------------------------------------*/
+
+    private static final int ConnectTimeoutInMillis = 15 * 1000;
+
+/*==============================================================================
+ * -------                                                               -------
+ * -------              Public Interface To This Class                   -------
+ * -------                                                               -------
+ *============================================================================*/
+
+    @Override public Response execute(Request request) throws IOException {
+        Proxy proxy = RestHelper.getDefaultProxy();
+        final HttpURLConnection c = (HttpURLConnection)((proxy == null) ?
+                request.url.openConnection() : request.url.openConnection(proxy));
+        c.setConnectTimeout(ConnectTimeoutInMillis);
+        c.setReadTimeout(request.readTimeout);
+        c.setRequestMethod(request.method);
+        for (Map.Entry<String,String> h : request.headers.entrySet()) {
+            c.setRequestProperty(h.getKey(), h.getValue());
+        }
+        if (request.body != null) {
+            c.setDoOutput(true);
+            c.setFixedLengthStreamingMode(request.body.length);
+            try (OutputStream out = c.getOutputStream()) { out.write(request.body); }
+        }
+
+        int status = c.getResponseCode();
+        Map<String,String> headers = new HashMap<>();
+        for (Map.Entry<String,List<String>> h : c.getHeaderFields().entrySet()) {
+            if (h.getKey() != null && !h.getValue().isEmpty())
+                headers.put(h.getKey().toLowerCase(Locale.US), h.getValue().get(0));
+        }
+        InputStream in = (status >= 400) ? c.getErrorStream() : c.getInputStream();
+        final InputStream body = (in == null) ? new ByteArrayInputStream(new byte[0]) : in;
+
+        return new Response(status, headers) {
+            @Override public InputStream body() { return body; }
+            @Override public void close() {
+                try { body.close(); } catch (IOException e) { }
+            }
+            @Override public void abort() { c.disconnect(); }
+        };
+    }
+
+    @Override public void close() { }
+}